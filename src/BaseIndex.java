@@ -1,10 +1,24 @@
 
 
+import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
 
 public interface BaseIndex {
 	
 	public PostingList readPosting (FileChannel fc);
 	
-	public void writePosting (FileChannel fc, PostingList p);
+	public void writePosting (SeekableByteChannel fc, PostingList p);
+	
+	/*
+	 * Read the posting list starting at the current position of buf, leaving buf positioned right after it. A posting
+	 * list cut short by the end of buf must end in a BufferUnderflowException, so the caller can refill and retry.
+	 */
+	public PostingList readPosting (ByteBuffer buf);
+	
+	/*
+	 * Open a cursor over the posting list that starts at the given absolute offset of buf (usually the whole index file
+	 * mapped into memory). The cursor must only use absolute reads, so buf can be shared by any number of cursors.
+	 */
+	public PostingCursor openCursor (ByteBuffer buf, int position);
 }
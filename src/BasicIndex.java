@@ -7,10 +7,10 @@
  */
 
 import java.io.IOException;
+import java.nio.BufferUnderflowException;
 import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
-import java.util.List;
-import java.util.Vector;
+import java.nio.channels.SeekableByteChannel;
 
 public class BasicIndex implements BaseIndex {
 
@@ -29,9 +29,8 @@ public class BasicIndex implements BaseIndex {
 			buffer = ByteBuffer.allocate(size * 4);
 			fc.read(buffer);
 			buffer.rewind();
-			List<Integer> docIds = new Vector<Integer>(size);
-			while (size-- != 0)
-				docIds.add(buffer.getInt());
+			int[] docIds = new int[size];
+			buffer.asIntBuffer().get(docIds);
 			buffer.clear();
 			buffer = null;
 			return new PostingList(termId, docIds);
@@ -40,16 +39,27 @@ public class BasicIndex implements BaseIndex {
 		}
 	}
 
-	public void writePosting(FileChannel fc, PostingList p) {
-		List<Integer> docIds = p.getList();
-		int size = docIds.size();
+	public PostingList readPosting(ByteBuffer buf) {
+		int termId = buf.getInt();
+		int size = buf.getInt();
+		if (buf.remaining() < size * 4)
+			throw new BufferUnderflowException();
+		int[] docIds = new int[size];
+		buf.asIntBuffer().get(docIds);
+		buf.position(buf.position() + size * 4);
+		return new PostingList(termId, docIds);
+	}
+
+	public void writePosting(SeekableByteChannel fc, PostingList p) {
+		int[] docIds = p.getArray();
+		int size = p.size();
 		// Every posting is of size 8 + 4 * (document frequency)
 		// Put all necessary values into the buffer then write to the file channel, then we are done
 		ByteBuffer buffer = ByteBuffer.allocate(8 + size * 4);
 		buffer.putInt(p.getTermId());
 		buffer.putInt(size);
-		for (int docId : docIds)
-			buffer.putInt(docId);
+		buffer.asIntBuffer().put(docIds, 0, size);
+		buffer.position(8 + size * 4);
 		buffer.flip();
 		try {
 			fc.write(buffer);
@@ -58,4 +68,70 @@ public class BasicIndex implements BaseIndex {
 		} catch (IOException e) {
 		}
 	}
+
+	public PostingCursor openCursor(ByteBuffer buf, int position) {
+		return new BasicCursor(buf, position);
+	}
+
+	/**
+	 * Every docId is a fixed-width integer, so the cursor simply reads the next 4 bytes straight from the buffer. For the
+	 * same reason the position of any docId is known without skip entries, and advance() gallops over the list.
+	 */
+	private static class BasicCursor implements PostingCursor {
+
+		private final ByteBuffer buf;
+		private final int termId;
+		private final int size;
+		// Absolute offset of the first docId
+		private final int start;
+		// Index of the current docId, -1 before the first one
+		private int i = -1;
+		private int docId = 0;
+
+		BasicCursor(ByteBuffer buf, int position) {
+			this.buf = buf;
+			this.termId = buf.getInt(position);
+			this.size = buf.getInt(position + 4);
+			this.start = position + 8;
+		}
+
+		public int getTermId() {
+			return termId;
+		}
+
+		public int size() {
+			return size;
+		}
+
+		public int docId() {
+			return docId;
+		}
+
+		public int nextDoc() {
+			return docId = ++i < size ? buf.getInt(start + 4 * i) : NO_MORE_DOCS;
+		}
+
+		public int advance(int target) {
+			if (docId >= target)
+				return docId;
+			// Double the step until we pass a docId >= target, every docId before lo is known to be smaller than target
+			int lo = i + 1, hi = lo, step = 1;
+			while (hi < size && buf.getInt(start + 4 * hi) < target) {
+				lo = hi + 1;
+				hi = lo + step;
+				step <<= 1;
+			}
+			// Then binary search the first docId >= target in [lo, hi)
+			hi = Math.min(hi, size);
+			while (lo < hi) {
+				int mid = (lo + hi) >>> 1;
+				if (buf.getInt(start + 4 * mid) < target)
+					lo = mid + 1;
+				else
+					hi = mid;
+			}
+			i = lo;
+			return docId = i < size ? buf.getInt(start + 4 * i) : NO_MORE_DOCS;
+		}
+	}
 }
@@ -0,0 +1,317 @@
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Binary counterpart of term.dict, doc.dict and posting.dict, laid out so that the query side can map the files into
+ * memory and look entries up in place, without parsing anything at startup. All numbers are big-endian.
+ *
+ * term.bin: terms sorted by their UTF-8 bytes and front-coded, see FrontCodedTerms.
+ *
+ * posting.bin: the largest termId m, then m + 1 positions in corpus.index (longs) and m + 1 document frequencies, both
+ * indexed by termId.
+ *
+ * doc.bin: the largest docId m, then m + 2 offsets into the name bytes, then the UTF-8 bytes of every document name,
+ * indexed by docId.
+ *
+ * positions.bin: the largest termId m, then m + 1 positions in positions.index (longs), indexed by termId. Only an
+ * index of positions has one (see Positions).
+ *
+ * freqs.bin: the largest termId m, then m + 1 positions in freqs.index (longs), indexed by termId (see Frequencies).
+ *
+ * length.bin: the largest docId m, the number of tokens in all documents (a long), then the number of tokens in every
+ * document (m + 1 ints), indexed by docId.
+ *
+ * A segment directory only holds a posting.bin, and a positions.bin and a freqs.bin if positions and frequencies are
+ * indexed, for the posting lists of its own corpus.index. Only the files present in a directory are mapped.
+ */
+public class BinaryDictionary {
+
+	private final FrontCodedTerms terms;
+	private final ByteBuffer postings, docs, positions, freqs, lengths;
+	private final int maxTermId, maxDocId;
+
+	/**
+	 * Map the binary dictionaries of an index directory into memory
+	 */
+	public BinaryDictionary(String indexDirname) throws IOException {
+		File termFile = new File(indexDirname, "term.bin"), docFile = new File(indexDirname, "doc.bin");
+		File positionsFile = new File(indexDirname, "positions.bin"), freqsFile = new File(indexDirname, "freqs.bin");
+		File lengthFile = new File(indexDirname, "length.bin");
+		terms = termFile.exists() ? new FrontCodedTerms(map(termFile)) : null;
+		postings = map(new File(indexDirname, "posting.bin"));
+		docs = docFile.exists() ? map(docFile) : null;
+		positions = positionsFile.exists() ? map(positionsFile) : null;
+		freqs = freqsFile.exists() ? map(freqsFile) : null;
+		lengths = lengthFile.exists() ? map(lengthFile) : null;
+		maxTermId = postings.getInt(0);
+		maxDocId = docs == null ? -1 : docs.getInt(0);
+	}
+
+	private static ByteBuffer map(File file) throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try {
+			FileChannel fc = raf.getChannel();
+			return fc.map(FileChannel.MapMode.READ_ONLY, 0, fc.size());
+		} finally {
+			raf.close(); // the mapping stays valid
+		}
+	}
+
+	/**
+	 * @return termId of a term, or -1 if the term is not in the index
+	 */
+	public int termId(String term) {
+		return terms.termId(term);
+	}
+
+	/**
+	 * @return (term, termId) of every term starting with prefix, in the order of their UTF-8 bytes
+	 */
+	public List<Pair<String, Integer>> termsWithPrefix(String prefix) {
+		return terms.withPrefix(prefix);
+	}
+
+	/*
+	 * Compare the bytes of buf in [from, to) with key, as unsigned bytes
+	 */
+	static int compare(ByteBuffer buf, int from, int to, byte[] key) {
+		int n = Math.min(to - from, key.length);
+		for (int i = 0; i < n; i++) {
+			int cmp = (buf.get(from + i) & 0xff) - (key[i] & 0xff);
+			if (cmp != 0)
+				return cmp;
+		}
+		return (to - from) - key.length;
+	}
+
+	/**
+	 * @return position of the posting list of termId in corpus.index
+	 */
+	public long position(int termId) {
+		return postings.getLong(4 + 8 * termId);
+	}
+
+	/**
+	 * @return document frequency of termId, 0 if corpus.index has no posting list for termId
+	 */
+	public int docFreq(int termId) {
+		if (termId > maxTermId)
+			return 0;
+		return postings.getInt(4 + 8 * (maxTermId + 1) + 4 * termId);
+	}
+
+	/**
+	 * @return whether positions of termIds are indexed
+	 */
+	public boolean hasPositions() {
+		return positions != null;
+	}
+
+	/**
+	 * @return position of the positions of termId in positions.index
+	 */
+	public long positionsPosition(int termId) {
+		return positions.getLong(4 + 8 * termId);
+	}
+
+	/**
+	 * @return whether term frequencies are indexed
+	 */
+	public boolean hasFreqs() {
+		return freqs != null;
+	}
+
+	/**
+	 * @return position of the frequencies of termId in freqs.index
+	 */
+	public long freqsPosition(int termId) {
+		return freqs.getLong(4 + 8 * termId);
+	}
+
+	/**
+	 * @return whether the lengths of documents are known
+	 */
+	public boolean hasDocLengths() {
+		return lengths != null;
+	}
+
+	/**
+	 * @return number of tokens in the document with docId
+	 */
+	public int docLength(int docId) {
+		return lengths.getInt(12 + 4 * docId);
+	}
+
+	/**
+	 * @return average number of tokens in a document
+	 */
+	public double averageDocLength() {
+		int maxDocId = lengths.getInt(0);
+		return maxDocId == 0 ? 0 : (double) lengths.getLong(4) / maxDocId;
+	}
+
+	public int maxTermId() {
+		return maxTermId;
+	}
+
+	public int maxDocId() {
+		return maxDocId;
+	}
+
+	/**
+	 * @return name of the document with docId
+	 */
+	public String docName(int docId) {
+		int offsets = 4, bytes = offsets + 4 * (maxDocId + 2);
+		int from = docs.getInt(offsets + 4 * docId), to = docs.getInt(offsets + 4 * docId + 4);
+		byte[] name = new byte[to - from];
+		for (int i = 0; i < name.length; i++)
+			name[i] = docs.get(bytes + from + i);
+		return new String(name, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Write term.bin from every term along with its termId, in any order
+	 */
+	public static void writeTerms(String outputDirname, String[] terms, int[] termIds) throws IOException {
+		int n = terms.length;
+		final byte[][] keys = new byte[n][];
+		Integer[] order = new Integer[n];
+		for (int t = 0; t < n; t++) {
+			keys[t] = terms[t].getBytes(StandardCharsets.UTF_8);
+			order[t] = t;
+		}
+		Arrays.sort(order, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer i1, Integer i2) {
+				return compareBytes(keys[i1], keys[i2]);
+			}
+		});
+		byte[][] sortedKeys = new byte[n][];
+		int[] sortedIds = new int[n];
+		for (int i = 0; i < n; i++) {
+			sortedKeys[i] = keys[order[i]];
+			sortedIds[i] = termIds[order[i]];
+		}
+		DataOutputStream out = open(new File(outputDirname, "term.bin"));
+		FrontCodedTerms.write(out, sortedKeys, sortedIds);
+		out.close();
+	}
+
+	/**
+	 * Write posting.bin from the positions and document frequencies of termIds 0 to maxTermId
+	 */
+	public static void writePostings(String outputDirname, long[] positions, int[] freqs, int maxTermId)
+			throws IOException {
+		DataOutputStream out = open(new File(outputDirname, "posting.bin"));
+		out.writeInt(maxTermId);
+		for (int termId = 0; termId <= maxTermId; termId++)
+			out.writeLong(positions[termId]);
+		for (int termId = 0; termId <= maxTermId; termId++)
+			out.writeInt(freqs[termId]);
+		out.close();
+	}
+
+	/**
+	 * Write positions.bin from the positions of termIds 0 to maxTermId in positions.index
+	 */
+	public static void writePositions(String outputDirname, long[] positions, int maxTermId) throws IOException {
+		writePositions(new File(outputDirname, "positions.bin"), positions, maxTermId);
+	}
+
+	/**
+	 * Write freqs.bin from the positions of termIds 0 to maxTermId in freqs.index
+	 */
+	public static void writeFreqs(String outputDirname, long[] positions, int maxTermId) throws IOException {
+		writePositions(new File(outputDirname, "freqs.bin"), positions, maxTermId);
+	}
+
+	private static void writePositions(File file, long[] positions, int maxTermId) throws IOException {
+		DataOutputStream out = open(file);
+		out.writeInt(maxTermId);
+		for (int termId = 0; termId <= maxTermId; termId++)
+			out.writeLong(positions[termId]);
+		out.close();
+	}
+
+	/**
+	 * Write length.bin from the lengths of documents 0 to maxDocId
+	 */
+	public static void writeDocLengths(String outputDirname, int[] lengths, int maxDocId) throws IOException {
+		long total = 0;
+		for (int docId = 0; docId <= maxDocId; docId++)
+			total += lengths[docId];
+		DataOutputStream out = open(new File(outputDirname, "length.bin"));
+		out.writeInt(maxDocId);
+		out.writeLong(total);
+		for (int docId = 0; docId <= maxDocId; docId++)
+			out.writeInt(lengths[docId]);
+		out.close();
+	}
+
+	/**
+	 * Read the lengths of documents back from length.bin, indexed by docId
+	 */
+	public static int[] readDocLengths(String indexDirname) throws IOException {
+		ByteBuffer buf = map(new File(indexDirname, "length.bin"));
+		int[] lengths = new int[buf.getInt(0) + 1];
+		buf.position(12);
+		buf.asIntBuffer().get(lengths);
+		return lengths;
+	}
+
+	/**
+	 * Write doc.bin from every document name along with its docId, in any order
+	 */
+	public static void writeDocs(String outputDirname, String[] docNames, int[] docIds) throws IOException {
+		int maxDocId = 0;
+		for (int docId : docIds)
+			maxDocId = Math.max(maxDocId, docId);
+		byte[][] names = new byte[maxDocId + 1][];
+		for (int d = 0; d < docNames.length; d++)
+			names[docIds[d]] = docNames[d].getBytes(StandardCharsets.UTF_8);
+		DataOutputStream out = open(new File(outputDirname, "doc.bin"));
+		out.writeInt(maxDocId);
+		int offset = 0;
+		out.writeInt(offset);
+		for (byte[] name : names)
+			out.writeInt(offset += name == null ? 0 : name.length);
+		for (byte[] name : names) {
+			if (name != null)
+				out.write(name);
+		}
+		out.close();
+	}
+
+	private static DataOutputStream open(File file) throws IOException {
+		return new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16));
+	}
+
+	static int compareBytes(byte[] a, byte[] b) {
+		return compareBytes(a, a.length, b);
+	}
+
+	/*
+	 * Compare the first length bytes of a with b, as unsigned bytes
+	 */
+	static int compareBytes(byte[] a, int length, byte[] b) {
+		int n = Math.min(length, b.length);
+		for (int i = 0; i < n; i++) {
+			int cmp = (a[i] & 0xff) - (b[i] & 0xff);
+			if (cmp != 0)
+				return cmp;
+		}
+		return length - b.length;
+	}
+}
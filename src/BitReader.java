@@ -0,0 +1,105 @@
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * Reads a stream of bits, most significant bit first, from a ByteBuffer written by BitWriter. Bytes are loaded into a
+ * 64-bit accumulator up to eight at a time using absolute reads only, so the buffer may be shared. Running into the
+ * limit of the buffer ends in a BufferUnderflowException.
+ */
+public class BitReader {
+
+	private final ByteBuffer buf;
+	private final int limit;
+	// Absolute offset of the next byte to load
+	private int pos;
+	// Loaded bits, left-aligned: the next bit to read is the most significant one
+	private long acc = 0;
+	private int count = 0;
+
+	public BitReader(ByteBuffer buf, int position) {
+		this.buf = buf;
+		this.pos = position;
+		this.limit = buf.limit();
+	}
+
+	private void refill() {
+		while (count <= 56 && pos < limit) {
+			acc |= (buf.get(pos++) & 0xffL) << (56 - count);
+			count += 8;
+		}
+	}
+
+	/**
+	 * @param n
+	 *            number of bits, at most 32
+	 * @return the next n bits as an unsigned number
+	 */
+	public int readBits(int n) {
+		if (n == 0)
+			return 0;
+		if (count < n) {
+			refill();
+			if (count < n)
+				throw new BufferUnderflowException();
+		}
+		int value = (int) (acc >>> (64 - n));
+		acc <<= n;
+		count -= n;
+		return value;
+	}
+
+	/**
+	 * @return the next number, Elias gamma coded
+	 */
+	public int readGamma() {
+		// Loaded bits past count are always zero, so running out of them looks like a run of zeros
+		int zeros = Long.numberOfLeadingZeros(acc);
+		if (zeros >= count) {
+			refill();
+			zeros = Long.numberOfLeadingZeros(acc);
+			if (zeros >= count)
+				throw new BufferUnderflowException();
+		}
+		acc <<= zeros;
+		count -= zeros;
+		return readBits(zeros + 1);
+	}
+
+	/**
+	 * @return the next number, Elias delta coded
+	 */
+	public int readDelta() {
+		int bits = readGamma();
+		return (1 << (bits - 1)) | readBits(bits - 1);
+	}
+
+	/**
+	 * Move forward by the given number of bits without decoding them
+	 *
+	 * @param bits
+	 */
+	public void skip(long bits) {
+		long target = (long) pos * 8 - count + bits;
+		pos = (int) (target >>> 3);
+		acc = 0;
+		count = 0;
+		readBits((int) (target & 7));
+	}
+
+	/**
+	 * Drop the bits left before the next byte boundary
+	 */
+	public void align() {
+		int padding = count & 7;
+		acc <<= padding;
+		count -= padding;
+	}
+
+	/**
+	 * @return absolute offset of the byte the next bit comes from, only meaningful right after align()
+	 */
+	public int position() {
+		return pos - count / 8;
+	}
+}
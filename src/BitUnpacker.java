@@ -0,0 +1,870 @@
+import java.util.Arrays;
+
+/**
+ * Unpacking of the bit-packed blocks of PForIndex, one routine per bit width b. A routine unpacks 32 numbers of b bits
+ * from b words, lowest bits first: every shift and mask is a constant and there is neither a loop nor a branch, where
+ * a loop over any b has to compute where each number lies. The routines are mechanical, spelled out rather than written
+ * as a loop because the JIT does not unroll one with a variable bit width into anything like them.
+ */
+class BitUnpacker {
+
+	/**
+	 * Unpack 128 numbers of b bits from the first 4 * b words
+	 */
+	static void unpack(int[] words, int b, int[] out) {
+		switch (b) {
+		case 0:
+			Arrays.fill(out, 0, 128, 0);
+			break;
+		case 1:
+			for (int g = 0; g < 4; g++)
+				unpack1(words, g * 1, out, g * 32);
+			break;
+		case 2:
+			for (int g = 0; g < 4; g++)
+				unpack2(words, g * 2, out, g * 32);
+			break;
+		case 3:
+			for (int g = 0; g < 4; g++)
+				unpack3(words, g * 3, out, g * 32);
+			break;
+		case 4:
+			for (int g = 0; g < 4; g++)
+				unpack4(words, g * 4, out, g * 32);
+			break;
+		case 5:
+			for (int g = 0; g < 4; g++)
+				unpack5(words, g * 5, out, g * 32);
+			break;
+		case 6:
+			for (int g = 0; g < 4; g++)
+				unpack6(words, g * 6, out, g * 32);
+			break;
+		case 7:
+			for (int g = 0; g < 4; g++)
+				unpack7(words, g * 7, out, g * 32);
+			break;
+		case 8:
+			for (int g = 0; g < 4; g++)
+				unpack8(words, g * 8, out, g * 32);
+			break;
+		case 9:
+			for (int g = 0; g < 4; g++)
+				unpack9(words, g * 9, out, g * 32);
+			break;
+		case 10:
+			for (int g = 0; g < 4; g++)
+				unpack10(words, g * 10, out, g * 32);
+			break;
+		case 11:
+			for (int g = 0; g < 4; g++)
+				unpack11(words, g * 11, out, g * 32);
+			break;
+		case 12:
+			for (int g = 0; g < 4; g++)
+				unpack12(words, g * 12, out, g * 32);
+			break;
+		case 13:
+			for (int g = 0; g < 4; g++)
+				unpack13(words, g * 13, out, g * 32);
+			break;
+		case 14:
+			for (int g = 0; g < 4; g++)
+				unpack14(words, g * 14, out, g * 32);
+			break;
+		case 15:
+			for (int g = 0; g < 4; g++)
+				unpack15(words, g * 15, out, g * 32);
+			break;
+		case 16:
+			for (int g = 0; g < 4; g++)
+				unpack16(words, g * 16, out, g * 32);
+			break;
+		case 17:
+			for (int g = 0; g < 4; g++)
+				unpack17(words, g * 17, out, g * 32);
+			break;
+		case 18:
+			for (int g = 0; g < 4; g++)
+				unpack18(words, g * 18, out, g * 32);
+			break;
+		case 19:
+			for (int g = 0; g < 4; g++)
+				unpack19(words, g * 19, out, g * 32);
+			break;
+		case 20:
+			for (int g = 0; g < 4; g++)
+				unpack20(words, g * 20, out, g * 32);
+			break;
+		case 21:
+			for (int g = 0; g < 4; g++)
+				unpack21(words, g * 21, out, g * 32);
+			break;
+		case 22:
+			for (int g = 0; g < 4; g++)
+				unpack22(words, g * 22, out, g * 32);
+			break;
+		case 23:
+			for (int g = 0; g < 4; g++)
+				unpack23(words, g * 23, out, g * 32);
+			break;
+		case 24:
+			for (int g = 0; g < 4; g++)
+				unpack24(words, g * 24, out, g * 32);
+			break;
+		case 25:
+			for (int g = 0; g < 4; g++)
+				unpack25(words, g * 25, out, g * 32);
+			break;
+		case 26:
+			for (int g = 0; g < 4; g++)
+				unpack26(words, g * 26, out, g * 32);
+			break;
+		case 27:
+			for (int g = 0; g < 4; g++)
+				unpack27(words, g * 27, out, g * 32);
+			break;
+		case 28:
+			for (int g = 0; g < 4; g++)
+				unpack28(words, g * 28, out, g * 32);
+			break;
+		case 29:
+			for (int g = 0; g < 4; g++)
+				unpack29(words, g * 29, out, g * 32);
+			break;
+		case 30:
+			for (int g = 0; g < 4; g++)
+				unpack30(words, g * 30, out, g * 32);
+			break;
+		case 31:
+			for (int g = 0; g < 4; g++)
+				unpack31(words, g * 31, out, g * 32);
+			break;
+		case 32:
+			for (int g = 0; g < 4; g++)
+				unpack32(words, g * 32, out, g * 32);
+			break;
+		default:
+			throw new IllegalArgumentException("Bit width " + b);
+		}
+	}
+
+	private static void unpack1(int[] w, int wi, int[] out, int oi) {
+		int w0 = w[wi];
+		out[oi] = w0 & 1; out[oi + 1] = w0 >>> 1 & 1; out[oi + 2] = w0 >>> 2 & 1; out[oi + 3] = w0 >>> 3 & 1;
+		out[oi + 4] = w0 >>> 4 & 1; out[oi + 5] = w0 >>> 5 & 1; out[oi + 6] = w0 >>> 6 & 1; out[oi + 7] = w0 >>> 7 & 1;
+		out[oi + 8] = w0 >>> 8 & 1; out[oi + 9] = w0 >>> 9 & 1; out[oi + 10] = w0 >>> 10 & 1;
+		out[oi + 11] = w0 >>> 11 & 1;
+		out[oi + 12] = w0 >>> 12 & 1; out[oi + 13] = w0 >>> 13 & 1; out[oi + 14] = w0 >>> 14 & 1;
+		out[oi + 15] = w0 >>> 15 & 1;
+		out[oi + 16] = w0 >>> 16 & 1; out[oi + 17] = w0 >>> 17 & 1; out[oi + 18] = w0 >>> 18 & 1;
+		out[oi + 19] = w0 >>> 19 & 1;
+		out[oi + 20] = w0 >>> 20 & 1; out[oi + 21] = w0 >>> 21 & 1; out[oi + 22] = w0 >>> 22 & 1;
+		out[oi + 23] = w0 >>> 23 & 1;
+		out[oi + 24] = w0 >>> 24 & 1; out[oi + 25] = w0 >>> 25 & 1; out[oi + 26] = w0 >>> 26 & 1;
+		out[oi + 27] = w0 >>> 27 & 1;
+		out[oi + 28] = w0 >>> 28 & 1; out[oi + 29] = w0 >>> 29 & 1; out[oi + 30] = w0 >>> 30 & 1;
+		out[oi + 31] = w0 >>> 31;
+	}
+
+	private static void unpack2(int[] w, int wi, int[] out, int oi) {
+		int w0 = w[wi], w1 = w[wi + 1];
+		out[oi] = w0 & 3; out[oi + 1] = w0 >>> 2 & 3; out[oi + 2] = w0 >>> 4 & 3; out[oi + 3] = w0 >>> 6 & 3;
+		out[oi + 4] = w0 >>> 8 & 3; out[oi + 5] = w0 >>> 10 & 3; out[oi + 6] = w0 >>> 12 & 3;
+		out[oi + 7] = w0 >>> 14 & 3;
+		out[oi + 8] = w0 >>> 16 & 3; out[oi + 9] = w0 >>> 18 & 3; out[oi + 10] = w0 >>> 20 & 3;
+		out[oi + 11] = w0 >>> 22 & 3;
+		out[oi + 12] = w0 >>> 24 & 3; out[oi + 13] = w0 >>> 26 & 3; out[oi + 14] = w0 >>> 28 & 3;
+		out[oi + 15] = w0 >>> 30;
+		out[oi + 16] = w1 & 3; out[oi + 17] = w1 >>> 2 & 3; out[oi + 18] = w1 >>> 4 & 3; out[oi + 19] = w1 >>> 6 & 3;
+		out[oi + 20] = w1 >>> 8 & 3; out[oi + 21] = w1 >>> 10 & 3; out[oi + 22] = w1 >>> 12 & 3;
+		out[oi + 23] = w1 >>> 14 & 3;
+		out[oi + 24] = w1 >>> 16 & 3; out[oi + 25] = w1 >>> 18 & 3; out[oi + 26] = w1 >>> 20 & 3;
+		out[oi + 27] = w1 >>> 22 & 3;
+		out[oi + 28] = w1 >>> 24 & 3; out[oi + 29] = w1 >>> 26 & 3; out[oi + 30] = w1 >>> 28 & 3;
+		out[oi + 31] = w1 >>> 30;
+	}
+
+	private static void unpack3(int[] w, int wi, int[] out, int oi) {
+		int w0 = w[wi], w1 = w[wi + 1], w2 = w[wi + 2];
+		out[oi] = w0 & 7; out[oi + 1] = w0 >>> 3 & 7; out[oi + 2] = w0 >>> 6 & 7; out[oi + 3] = w0 >>> 9 & 7;
+		out[oi + 4] = w0 >>> 12 & 7; out[oi + 5] = w0 >>> 15 & 7; out[oi + 6] = w0 >>> 18 & 7;
+		out[oi + 7] = w0 >>> 21 & 7;
+		out[oi + 8] = w0 >>> 24 & 7; out[oi + 9] = w0 >>> 27 & 7; out[oi + 10] = (w0 >>> 30 | w1 << 2) & 7;
+		out[oi + 11] = w1 >>> 1 & 7;
+		out[oi + 12] = w1 >>> 4 & 7; out[oi + 13] = w1 >>> 7 & 7; out[oi + 14] = w1 >>> 10 & 7;
+		out[oi + 15] = w1 >>> 13 & 7;
+		out[oi + 16] = w1 >>> 16 & 7; out[oi + 17] = w1 >>> 19 & 7; out[oi + 18] = w1 >>> 22 & 7;
+		out[oi + 19] = w1 >>> 25 & 7;
+		out[oi + 20] = w1 >>> 28 & 7; out[oi + 21] = (w1 >>> 31 | w2 << 1) & 7; out[oi + 22] = w2 >>> 2 & 7;
+		out[oi + 23] = w2 >>> 5 & 7;
+		out[oi + 24] = w2 >>> 8 & 7; out[oi + 25] = w2 >>> 11 & 7; out[oi + 26] = w2 >>> 14 & 7;
+		out[oi + 27] = w2 >>> 17 & 7;
+		out[oi + 28] = w2 >>> 20 & 7; out[oi + 29] = w2 >>> 23 & 7; out[oi + 30] = w2 >>> 26 & 7;
+		out[oi + 31] = w2 >>> 29;
+	}
+
+	private static void unpack4(int[] w, int wi, int[] out, int oi) {
+		int w0 = w[wi], w1 = w[wi + 1], w2 = w[wi + 2], w3 = w[wi + 3];
+		out[oi] = w0 & 0xf; out[oi + 1] = w0 >>> 4 & 0xf; out[oi + 2] = w0 >>> 8 & 0xf; out[oi + 3] = w0 >>> 12 & 0xf;
+		out[oi + 4] = w0 >>> 16 & 0xf; out[oi + 5] = w0 >>> 20 & 0xf; out[oi + 6] = w0 >>> 24 & 0xf;
+		out[oi + 7] = w0 >>> 28;
+		out[oi + 8] = w1 & 0xf; out[oi + 9] = w1 >>> 4 & 0xf; out[oi + 10] = w1 >>> 8 & 0xf;
+		out[oi + 11] = w1 >>> 12 & 0xf;
+		out[oi + 12] = w1 >>> 16 & 0xf; out[oi + 13] = w1 >>> 20 & 0xf; out[oi + 14] = w1 >>> 24 & 0xf;
+		out[oi + 15] = w1 >>> 28;
+		out[oi + 16] = w2 & 0xf; out[oi + 17] = w2 >>> 4 & 0xf; out[oi + 18] = w2 >>> 8 & 0xf;
+		out[oi + 19] = w2 >>> 12 & 0xf;
+		out[oi + 20] = w2 >>> 16 & 0xf; out[oi + 21] = w2 >>> 20 & 0xf; out[oi + 22] = w2 >>> 24 & 0xf;
+		out[oi + 23] = w2 >>> 28;
+		out[oi + 24] = w3 & 0xf; out[oi + 25] = w3 >>> 4 & 0xf; out[oi + 26] = w3 >>> 8 & 0xf;
+		out[oi + 27] = w3 >>> 12 & 0xf;
+		out[oi + 28] = w3 >>> 16 & 0xf; out[oi + 29] = w3 >>> 20 & 0xf; out[oi + 30] = w3 >>> 24 & 0xf;
+		out[oi + 31] = w3 >>> 28;
+	}
+
+	private static void unpack5(int[] w, int wi, int[] out, int oi) {
+		int w0 = w[wi], w1 = w[wi + 1], w2 = w[wi + 2], w3 = w[wi + 3], w4 = w[wi + 4];
+		out[oi] = w0 & 0x1f; out[oi + 1] = w0 >>> 5 & 0x1f; out[oi + 2] = w0 >>> 10 & 0x1f;
+		out[oi + 3] = w0 >>> 15 & 0x1f;
+		out[oi + 4] = w0 >>> 20 & 0x1f; out[oi + 5] = w0 >>> 25 & 0x1f; out[oi + 6] = (w0 >>> 30 | w1 << 2) & 0x1f;
+		out[oi + 7] = w1 >>> 3 & 0x1f;
+		out[oi + 8] = w1 >>> 8 & 0x1f; out[oi + 9] = w1 >>> 13 & 0x1f; out[oi + 10] = w1 >>> 18 & 0x1f;
+		out[oi + 11] = w1 >>> 23 & 0x1f;
+		out[oi + 12] = (w1 >>> 28 | w2 << 4) & 0x1f; out[oi + 13] = w2 >>> 1 & 0x1f; out[oi + 14] = w2 >>> 6 & 0x1f;
+		out[oi + 15] = w2 >>> 11 & 0x1f;
+		out[oi + 16] = w2 >>> 16 & 0x1f; out[oi + 17] = w2 >>> 21 & 0x1f; out[oi + 18] = w2 >>> 26 & 0x1f;
+		out[oi + 19] = (w2 >>> 31 | w3 << 1) & 0x1f;
+		out[oi + 20] = w3 >>> 4 & 0x1f; out[oi + 21] = w3 >>> 9 & 0x1f; out[oi + 22] = w3 >>> 14 & 0x1f;
+		out[oi + 23] = w3 >>> 19 & 0x1f;
+		out[oi + 24] = w3 >>> 24 & 0x1f; out[oi + 25] = (w3 >>> 29 | w4 << 3) & 0x1f; out[oi + 26] = w4 >>> 2 & 0x1f;
+		out[oi + 27] = w4 >>> 7 & 0x1f;
+		out[oi + 28] = w4 >>> 12 & 0x1f; out[oi + 29] = w4 >>> 17 & 0x1f; out[oi + 30] = w4 >>> 22 & 0x1f;
+		out[oi + 31] = w4 >>> 27;
+	}
+
+	private static void unpack6(int[] w, int wi, int[] out, int oi) {
+		int w0 = w[wi], w1 = w[wi + 1], w2 = w[wi + 2], w3 = w[wi + 3], w4 = w[wi + 4], w5 = w[wi + 5];
+		out[oi] = w0 & 0x3f; out[oi + 1] = w0 >>> 6 & 0x3f; out[oi + 2] = w0 >>> 12 & 0x3f;
+		out[oi + 3] = w0 >>> 18 & 0x3f;
+		out[oi + 4] = w0 >>> 24 & 0x3f; out[oi + 5] = (w0 >>> 30 | w1 << 2) & 0x3f; out[oi + 6] = w1 >>> 4 & 0x3f;
+		out[oi + 7] = w1 >>> 10 & 0x3f;
+		out[oi + 8] = w1 >>> 16 & 0x3f; out[oi + 9] = w1 >>> 22 & 0x3f; out[oi + 10] = (w1 >>> 28 | w2 << 4) & 0x3f;
+		out[oi + 11] = w2 >>> 2 & 0x3f;
+		out[oi + 12] = w2 >>> 8 & 0x3f; out[oi + 13] = w2 >>> 14 & 0x3f; out[oi + 14] = w2 >>> 20 & 0x3f;
+		out[oi + 15] = w2 >>> 26;
+		out[oi + 16] = w3 & 0x3f; out[oi + 17] = w3 >>> 6 & 0x3f; out[oi + 18] = w3 >>> 12 & 0x3f;
+		out[oi + 19] = w3 >>> 18 & 0x3f;
+		out[oi + 20] = w3 >>> 24 & 0x3f; out[oi + 21] = (w3 >>> 30 | w4 << 2) & 0x3f; out[oi + 22] = w4 >>> 4 & 0x3f;
+		out[oi + 23] = w4 >>> 10 & 0x3f;
+		out[oi + 24] = w4 >>> 16 & 0x3f; out[oi + 25] = w4 >>> 22 & 0x3f; out[oi + 26] = (w4 >>> 28 | w5 << 4) & 0x3f;
+		out[oi + 27] = w5 >>> 2 & 0x3f;
+		out[oi + 28] = w5 >>> 8 & 0x3f; out[oi + 29] = w5 >>> 14 & 0x3f; out[oi + 30] = w5 >>> 20 & 0x3f;
+		out[oi + 31] = w5 >>> 26;
+	}
+
+	private static void unpack7(int[] w, int wi, int[] out, int oi) {
+		int w0 = w[wi], w1 = w[wi + 1], w2 = w[wi + 2], w3 = w[wi + 3], w4 = w[wi + 4], w5 = w[wi + 5], w6 = w[wi + 6];
+		out[oi] = w0 & 0x7f; out[oi + 1] = w0 >>> 7 & 0x7f; out[oi + 2] = w0 >>> 14 & 0x7f;
+		out[oi + 3] = w0 >>> 21 & 0x7f;
+		out[oi + 4] = (w0 >>> 28 | w1 << 4) & 0x7f; out[oi + 5] = w1 >>> 3 & 0x7f; out[oi + 6] = w1 >>> 10 & 0x7f;
+		out[oi + 7] = w1 >>> 17 & 0x7f;
+		out[oi + 8] = w1 >>> 24 & 0x7f; out[oi + 9] = (w1 >>> 31 | w2 << 1) & 0x7f; out[oi + 10] = w2 >>> 6 & 0x7f;
+		out[oi + 11] = w2 >>> 13 & 0x7f;
+		out[oi + 12] = w2 >>> 20 & 0x7f; out[oi + 13] = (w2 >>> 27 | w3 << 5) & 0x7f; out[oi + 14] = w3 >>> 2 & 0x7f;
+		out[oi + 15] = w3 >>> 9 & 0x7f;
+		out[oi + 16] = w3 >>> 16 & 0x7f; out[oi + 17] = w3 >>> 23 & 0x7f; out[oi + 18] = (w3 >>> 30 | w4 << 2) & 0x7f;
+		out[oi + 19] = w4 >>> 5 & 0x7f;
+		out[oi + 20] = w4 >>> 12 & 0x7f; out[oi + 21] = w4 >>> 19 & 0x7f; out[oi + 22] = (w4 >>> 26 | w5 << 6) & 0x7f;
+		out[oi + 23] = w5 >>> 1 & 0x7f;
+		out[oi + 24] = w5 >>> 8 & 0x7f; out[oi + 25] = w5 >>> 15 & 0x7f; out[oi + 26] = w5 >>> 22 & 0x7f;
+		out[oi + 27] = (w5 >>> 29 | w6 << 3) & 0x7f;
+		out[oi + 28] = w6 >>> 4 & 0x7f; out[oi + 29] = w6 >>> 11 & 0x7f; out[oi + 30] = w6 >>> 18 & 0x7f;
+		out[oi + 31] = w6 >>> 25;
+	}
+
+	private static void unpack8(int[] w, int wi, int[] out, int oi) {
+		int w0 = w[wi], w1 = w[wi + 1], w2 = w[wi + 2], w3 = w[wi + 3], w4 = w[wi + 4], w5 = w[wi + 5], w6 = w[wi + 6];
+		int w7 = w[wi + 7];
+		out[oi] = w0 & 0xff; out[oi + 1] = w0 >>> 8 & 0xff; out[oi + 2] = w0 >>> 16 & 0xff; out[oi + 3] = w0 >>> 24;
+		out[oi + 4] = w1 & 0xff; out[oi + 5] = w1 >>> 8 & 0xff; out[oi + 6] = w1 >>> 16 & 0xff; out[oi + 7] = w1 >>> 24;
+		out[oi + 8] = w2 & 0xff; out[oi + 9] = w2 >>> 8 & 0xff; out[oi + 10] = w2 >>> 16 & 0xff;
+		out[oi + 11] = w2 >>> 24;
+		out[oi + 12] = w3 & 0xff; out[oi + 13] = w3 >>> 8 & 0xff; out[oi + 14] = w3 >>> 16 & 0xff;
+		out[oi + 15] = w3 >>> 24;
+		out[oi + 16] = w4 & 0xff; out[oi + 17] = w4 >>> 8 & 0xff; out[oi + 18] = w4 >>> 16 & 0xff;
+		out[oi + 19] = w4 >>> 24;
+		out[oi + 20] = w5 & 0xff; out[oi + 21] = w5 >>> 8 & 0xff; out[oi + 22] = w5 >>> 16 & 0xff;
+		out[oi + 23] = w5 >>> 24;
+		out[oi + 24] = w6 & 0xff; out[oi + 25] = w6 >>> 8 & 0xff; out[oi + 26] = w6 >>> 16 & 0xff;
+		out[oi + 27] = w6 >>> 24;
+		out[oi + 28] = w7 & 0xff; out[oi + 29] = w7 >>> 8 & 0xff; out[oi + 30] = w7 >>> 16 & 0xff;
+		out[oi + 31] = w7 >>> 24;
+	}
+
+	private static void unpack9(int[] w, int wi, int[] out, int oi) {
+		int w0 = w[wi], w1 = w[wi + 1], w2 = w[wi + 2], w3 = w[wi + 3], w4 = w[wi + 4], w5 = w[wi + 5], w6 = w[wi + 6];
+		int w7 = w[wi + 7];
+		int w8 = w[wi + 8];
+		out[oi] = w0 & 0x1ff; out[oi + 1] = w0 >>> 9 & 0x1ff; out[oi + 2] = w0 >>> 18 & 0x1ff;
+		out[oi + 3] = (w0 >>> 27 | w1 << 5) & 0x1ff;
+		out[oi + 4] = w1 >>> 4 & 0x1ff; out[oi + 5] = w1 >>> 13 & 0x1ff; out[oi + 6] = w1 >>> 22 & 0x1ff;
+		out[oi + 7] = (w1 >>> 31 | w2 << 1) & 0x1ff;
+		out[oi + 8] = w2 >>> 8 & 0x1ff; out[oi + 9] = w2 >>> 17 & 0x1ff; out[oi + 10] = (w2 >>> 26 | w3 << 6) & 0x1ff;
+		out[oi + 11] = w3 >>> 3 & 0x1ff;
+		out[oi + 12] = w3 >>> 12 & 0x1ff; out[oi + 13] = w3 >>> 21 & 0x1ff;
+		out[oi + 14] = (w3 >>> 30 | w4 << 2) & 0x1ff; out[oi + 15] = w4 >>> 7 & 0x1ff;
+		out[oi + 16] = w4 >>> 16 & 0x1ff; out[oi + 17] = (w4 >>> 25 | w5 << 7) & 0x1ff; out[oi + 18] = w5 >>> 2 & 0x1ff;
+		out[oi + 19] = w5 >>> 11 & 0x1ff;
+		out[oi + 20] = w5 >>> 20 & 0x1ff; out[oi + 21] = (w5 >>> 29 | w6 << 3) & 0x1ff; out[oi + 22] = w6 >>> 6 & 0x1ff;
+		out[oi + 23] = w6 >>> 15 & 0x1ff;
+		out[oi + 24] = (w6 >>> 24 | w7 << 8) & 0x1ff; out[oi + 25] = w7 >>> 1 & 0x1ff; out[oi + 26] = w7 >>> 10 & 0x1ff;
+		out[oi + 27] = w7 >>> 19 & 0x1ff;
+		out[oi + 28] = (w7 >>> 28 | w8 << 4) & 0x1ff; out[oi + 29] = w8 >>> 5 & 0x1ff; out[oi + 30] = w8 >>> 14 & 0x1ff;
+		out[oi + 31] = w8 >>> 23;
+	}
+
+	private static void unpack10(int[] w, int wi, int[] out, int oi) {
+		int w0 = w[wi], w1 = w[wi + 1], w2 = w[wi + 2], w3 = w[wi + 3], w4 = w[wi + 4], w5 = w[wi + 5], w6 = w[wi + 6];
+		int w7 = w[wi + 7];
+		int w8 = w[wi + 8], w9 = w[wi + 9];
+		out[oi] = w0 & 0x3ff; out[oi + 1] = w0 >>> 10 & 0x3ff; out[oi + 2] = w0 >>> 20 & 0x3ff;
+		out[oi + 3] = (w0 >>> 30 | w1 << 2) & 0x3ff;
+		out[oi + 4] = w1 >>> 8 & 0x3ff; out[oi + 5] = w1 >>> 18 & 0x3ff; out[oi + 6] = (w1 >>> 28 | w2 << 4) & 0x3ff;
+		out[oi + 7] = w2 >>> 6 & 0x3ff;
+		out[oi + 8] = w2 >>> 16 & 0x3ff; out[oi + 9] = (w2 >>> 26 | w3 << 6) & 0x3ff; out[oi + 10] = w3 >>> 4 & 0x3ff;
+		out[oi + 11] = w3 >>> 14 & 0x3ff;
+		out[oi + 12] = (w3 >>> 24 | w4 << 8) & 0x3ff; out[oi + 13] = w4 >>> 2 & 0x3ff; out[oi + 14] = w4 >>> 12 & 0x3ff;
+		out[oi + 15] = w4 >>> 22;
+		out[oi + 16] = w5 & 0x3ff; out[oi + 17] = w5 >>> 10 & 0x3ff; out[oi + 18] = w5 >>> 20 & 0x3ff;
+		out[oi + 19] = (w5 >>> 30 | w6 << 2) & 0x3ff;
+		out[oi + 20] = w6 >>> 8 & 0x3ff; out[oi + 21] = w6 >>> 18 & 0x3ff; out[oi + 22] = (w6 >>> 28 | w7 << 4) & 0x3ff;
+		out[oi + 23] = w7 >>> 6 & 0x3ff;
+		out[oi + 24] = w7 >>> 16 & 0x3ff; out[oi + 25] = (w7 >>> 26 | w8 << 6) & 0x3ff; out[oi + 26] = w8 >>> 4 & 0x3ff;
+		out[oi + 27] = w8 >>> 14 & 0x3ff;
+		out[oi + 28] = (w8 >>> 24 | w9 << 8) & 0x3ff; out[oi + 29] = w9 >>> 2 & 0x3ff; out[oi + 30] = w9 >>> 12 & 0x3ff;
+		out[oi + 31] = w9 >>> 22;
+	}
+
+	private static void unpack11(int[] w, int wi, int[] out, int oi) {
+		int w0 = w[wi], w1 = w[wi + 1], w2 = w[wi + 2], w3 = w[wi + 3], w4 = w[wi + 4], w5 = w[wi + 5], w6 = w[wi + 6];
+		int w7 = w[wi + 7];
+		int w8 = w[wi + 8], w9 = w[wi + 9], w10 = w[wi + 10];
+		out[oi] = w0 & 0x7ff; out[oi + 1] = w0 >>> 11 & 0x7ff; out[oi + 2] = (w0 >>> 22 | w1 << 10) & 0x7ff;
+		out[oi + 3] = w1 >>> 1 & 0x7ff;
+		out[oi + 4] = w1 >>> 12 & 0x7ff; out[oi + 5] = (w1 >>> 23 | w2 << 9) & 0x7ff; out[oi + 6] = w2 >>> 2 & 0x7ff;
+		out[oi + 7] = w2 >>> 13 & 0x7ff;
+		out[oi + 8] = (w2 >>> 24 | w3 << 8) & 0x7ff; out[oi + 9] = w3 >>> 3 & 0x7ff; out[oi + 10] = w3 >>> 14 & 0x7ff;
+		out[oi + 11] = (w3 >>> 25 | w4 << 7) & 0x7ff;
+		out[oi + 12] = w4 >>> 4 & 0x7ff; out[oi + 13] = w4 >>> 15 & 0x7ff; out[oi + 14] = (w4 >>> 26 | w5 << 6) & 0x7ff;
+		out[oi + 15] = w5 >>> 5 & 0x7ff;
+		out[oi + 16] = w5 >>> 16 & 0x7ff; out[oi + 17] = (w5 >>> 27 | w6 << 5) & 0x7ff; out[oi + 18] = w6 >>> 6 & 0x7ff;
+		out[oi + 19] = w6 >>> 17 & 0x7ff;
+		out[oi + 20] = (w6 >>> 28 | w7 << 4) & 0x7ff; out[oi + 21] = w7 >>> 7 & 0x7ff; out[oi + 22] = w7 >>> 18 & 0x7ff;
+		out[oi + 23] = (w7 >>> 29 | w8 << 3) & 0x7ff;
+		out[oi + 24] = w8 >>> 8 & 0x7ff; out[oi + 25] = w8 >>> 19 & 0x7ff; out[oi + 26] = (w8 >>> 30 | w9 << 2) & 0x7ff;
+		out[oi + 27] = w9 >>> 9 & 0x7ff;
+		out[oi + 28] = w9 >>> 20 & 0x7ff; out[oi + 29] = (w9 >>> 31 | w10 << 1) & 0x7ff;
+		out[oi + 30] = w10 >>> 10 & 0x7ff; out[oi + 31] = w10 >>> 21;
+	}
+
+	private static void unpack12(int[] w, int wi, int[] out, int oi) {
+		int w0 = w[wi], w1 = w[wi + 1], w2 = w[wi + 2], w3 = w[wi + 3], w4 = w[wi + 4], w5 = w[wi + 5], w6 = w[wi + 6];
+		int w7 = w[wi + 7];
+		int w8 = w[wi + 8], w9 = w[wi + 9], w10 = w[wi + 10], w11 = w[wi + 11];
+		out[oi] = w0 & 0xfff; out[oi + 1] = w0 >>> 12 & 0xfff; out[oi + 2] = (w0 >>> 24 | w1 << 8) & 0xfff;
+		out[oi + 3] = w1 >>> 4 & 0xfff;
+		out[oi + 4] = w1 >>> 16 & 0xfff; out[oi + 5] = (w1 >>> 28 | w2 << 4) & 0xfff; out[oi + 6] = w2 >>> 8 & 0xfff;
+		out[oi + 7] = w2 >>> 20;
+		out[oi + 8] = w3 & 0xfff; out[oi + 9] = w3 >>> 12 & 0xfff; out[oi + 10] = (w3 >>> 24 | w4 << 8) & 0xfff;
+		out[oi + 11] = w4 >>> 4 & 0xfff;
+		out[oi + 12] = w4 >>> 16 & 0xfff; out[oi + 13] = (w4 >>> 28 | w5 << 4) & 0xfff; out[oi + 14] = w5 >>> 8 & 0xfff;
+		out[oi + 15] = w5 >>> 20;
+		out[oi + 16] = w6 & 0xfff; out[oi + 17] = w6 >>> 12 & 0xfff; out[oi + 18] = (w6 >>> 24 | w7 << 8) & 0xfff;
+		out[oi + 19] = w7 >>> 4 & 0xfff;
+		out[oi + 20] = w7 >>> 16 & 0xfff; out[oi + 21] = (w7 >>> 28 | w8 << 4) & 0xfff; out[oi + 22] = w8 >>> 8 & 0xfff;
+		out[oi + 23] = w8 >>> 20;
+		out[oi + 24] = w9 & 0xfff; out[oi + 25] = w9 >>> 12 & 0xfff; out[oi + 26] = (w9 >>> 24 | w10 << 8) & 0xfff;
+		out[oi + 27] = w10 >>> 4 & 0xfff;
+		out[oi + 28] = w10 >>> 16 & 0xfff; out[oi + 29] = (w10 >>> 28 | w11 << 4) & 0xfff;
+		out[oi + 30] = w11 >>> 8 & 0xfff; out[oi + 31] = w11 >>> 20;
+	}
+
+	private static void unpack13(int[] w, int wi, int[] out, int oi) {
+		int w0 = w[wi], w1 = w[wi + 1], w2 = w[wi + 2], w3 = w[wi + 3], w4 = w[wi + 4], w5 = w[wi + 5], w6 = w[wi + 6];
+		int w7 = w[wi + 7];
+		int w8 = w[wi + 8], w9 = w[wi + 9], w10 = w[wi + 10], w11 = w[wi + 11], w12 = w[wi + 12];
+		out[oi] = w0 & 0x1fff; out[oi + 1] = w0 >>> 13 & 0x1fff; out[oi + 2] = (w0 >>> 26 | w1 << 6) & 0x1fff;
+		out[oi + 3] = w1 >>> 7 & 0x1fff;
+		out[oi + 4] = (w1 >>> 20 | w2 << 12) & 0x1fff; out[oi + 5] = w2 >>> 1 & 0x1fff;
+		out[oi + 6] = w2 >>> 14 & 0x1fff; out[oi + 7] = (w2 >>> 27 | w3 << 5) & 0x1fff;
+		out[oi + 8] = w3 >>> 8 & 0x1fff; out[oi + 9] = (w3 >>> 21 | w4 << 11) & 0x1fff;
+		out[oi + 10] = w4 >>> 2 & 0x1fff; out[oi + 11] = w4 >>> 15 & 0x1fff;
+		out[oi + 12] = (w4 >>> 28 | w5 << 4) & 0x1fff; out[oi + 13] = w5 >>> 9 & 0x1fff;
+		out[oi + 14] = (w5 >>> 22 | w6 << 10) & 0x1fff; out[oi + 15] = w6 >>> 3 & 0x1fff;
+		out[oi + 16] = w6 >>> 16 & 0x1fff; out[oi + 17] = (w6 >>> 29 | w7 << 3) & 0x1fff;
+		out[oi + 18] = w7 >>> 10 & 0x1fff; out[oi + 19] = (w7 >>> 23 | w8 << 9) & 0x1fff;
+		out[oi + 20] = w8 >>> 4 & 0x1fff; out[oi + 21] = w8 >>> 17 & 0x1fff;
+		out[oi + 22] = (w8 >>> 30 | w9 << 2) & 0x1fff; out[oi + 23] = w9 >>> 11 & 0x1fff;
+		out[oi + 24] = (w9 >>> 24 | w10 << 8) & 0x1fff; out[oi + 25] = w10 >>> 5 & 0x1fff;
+		out[oi + 26] = w10 >>> 18 & 0x1fff; out[oi + 27] = (w10 >>> 31 | w11 << 1) & 0x1fff;
+		out[oi + 28] = w11 >>> 12 & 0x1fff; out[oi + 29] = (w11 >>> 25 | w12 << 7) & 0x1fff;
+		out[oi + 30] = w12 >>> 6 & 0x1fff; out[oi + 31] = w12 >>> 19;
+	}
+
+	private static void unpack14(int[] w, int wi, int[] out, int oi) {
+		int w0 = w[wi], w1 = w[wi + 1], w2 = w[wi + 2], w3 = w[wi + 3], w4 = w[wi + 4], w5 = w[wi + 5], w6 = w[wi + 6];
+		int w7 = w[wi + 7];
+		int w8 = w[wi + 8], w9 = w[wi + 9], w10 = w[wi + 10], w11 = w[wi + 11], w12 = w[wi + 12], w13 = w[wi + 13];
+		out[oi] = w0 & 0x3fff; out[oi + 1] = w0 >>> 14 & 0x3fff; out[oi + 2] = (w0 >>> 28 | w1 << 4) & 0x3fff;
+		out[oi + 3] = w1 >>> 10 & 0x3fff;
+		out[oi + 4] = (w1 >>> 24 | w2 << 8) & 0x3fff; out[oi + 5] = w2 >>> 6 & 0x3fff;
+		out[oi + 6] = (w2 >>> 20 | w3 << 12) & 0x3fff; out[oi + 7] = w3 >>> 2 & 0x3fff;
+		out[oi + 8] = w3 >>> 16 & 0x3fff; out[oi + 9] = (w3 >>> 30 | w4 << 2) & 0x3fff;
+		out[oi + 10] = w4 >>> 12 & 0x3fff; out[oi + 11] = (w4 >>> 26 | w5 << 6) & 0x3fff;
+		out[oi + 12] = w5 >>> 8 & 0x3fff; out[oi + 13] = (w5 >>> 22 | w6 << 10) & 0x3fff;
+		out[oi + 14] = w6 >>> 4 & 0x3fff; out[oi + 15] = w6 >>> 18;
+		out[oi + 16] = w7 & 0x3fff; out[oi + 17] = w7 >>> 14 & 0x3fff; out[oi + 18] = (w7 >>> 28 | w8 << 4) & 0x3fff;
+		out[oi + 19] = w8 >>> 10 & 0x3fff;
+		out[oi + 20] = (w8 >>> 24 | w9 << 8) & 0x3fff; out[oi + 21] = w9 >>> 6 & 0x3fff;
+		out[oi + 22] = (w9 >>> 20 | w10 << 12) & 0x3fff; out[oi + 23] = w10 >>> 2 & 0x3fff;
+		out[oi + 24] = w10 >>> 16 & 0x3fff; out[oi + 25] = (w10 >>> 30 | w11 << 2) & 0x3fff;
+		out[oi + 26] = w11 >>> 12 & 0x3fff; out[oi + 27] = (w11 >>> 26 | w12 << 6) & 0x3fff;
+		out[oi + 28] = w12 >>> 8 & 0x3fff; out[oi + 29] = (w12 >>> 22 | w13 << 10) & 0x3fff;
+		out[oi + 30] = w13 >>> 4 & 0x3fff; out[oi + 31] = w13 >>> 18;
+	}
+
+	private static void unpack15(int[] w, int wi, int[] out, int oi) {
+		int w0 = w[wi], w1 = w[wi + 1], w2 = w[wi + 2], w3 = w[wi + 3], w4 = w[wi + 4], w5 = w[wi + 5], w6 = w[wi + 6];
+		int w7 = w[wi + 7];
+		int w8 = w[wi + 8], w9 = w[wi + 9], w10 = w[wi + 10], w11 = w[wi + 11], w12 = w[wi + 12], w13 = w[wi + 13];
+		int w14 = w[wi + 14];
+		out[oi] = w0 & 0x7fff; out[oi + 1] = w0 >>> 15 & 0x7fff; out[oi + 2] = (w0 >>> 30 | w1 << 2) & 0x7fff;
+		out[oi + 3] = w1 >>> 13 & 0x7fff;
+		out[oi + 4] = (w1 >>> 28 | w2 << 4) & 0x7fff; out[oi + 5] = w2 >>> 11 & 0x7fff;
+		out[oi + 6] = (w2 >>> 26 | w3 << 6) & 0x7fff; out[oi + 7] = w3 >>> 9 & 0x7fff;
+		out[oi + 8] = (w3 >>> 24 | w4 << 8) & 0x7fff; out[oi + 9] = w4 >>> 7 & 0x7fff;
+		out[oi + 10] = (w4 >>> 22 | w5 << 10) & 0x7fff; out[oi + 11] = w5 >>> 5 & 0x7fff;
+		out[oi + 12] = (w5 >>> 20 | w6 << 12) & 0x7fff; out[oi + 13] = w6 >>> 3 & 0x7fff;
+		out[oi + 14] = (w6 >>> 18 | w7 << 14) & 0x7fff; out[oi + 15] = w7 >>> 1 & 0x7fff;
+		out[oi + 16] = w7 >>> 16 & 0x7fff; out[oi + 17] = (w7 >>> 31 | w8 << 1) & 0x7fff;
+		out[oi + 18] = w8 >>> 14 & 0x7fff; out[oi + 19] = (w8 >>> 29 | w9 << 3) & 0x7fff;
+		out[oi + 20] = w9 >>> 12 & 0x7fff; out[oi + 21] = (w9 >>> 27 | w10 << 5) & 0x7fff;
+		out[oi + 22] = w10 >>> 10 & 0x7fff; out[oi + 23] = (w10 >>> 25 | w11 << 7) & 0x7fff;
+		out[oi + 24] = w11 >>> 8 & 0x7fff; out[oi + 25] = (w11 >>> 23 | w12 << 9) & 0x7fff;
+		out[oi + 26] = w12 >>> 6 & 0x7fff; out[oi + 27] = (w12 >>> 21 | w13 << 11) & 0x7fff;
+		out[oi + 28] = w13 >>> 4 & 0x7fff; out[oi + 29] = (w13 >>> 19 | w14 << 13) & 0x7fff;
+		out[oi + 30] = w14 >>> 2 & 0x7fff; out[oi + 31] = w14 >>> 17;
+	}
+
+	private static void unpack16(int[] w, int wi, int[] out, int oi) {
+		int w0 = w[wi], w1 = w[wi + 1], w2 = w[wi + 2], w3 = w[wi + 3], w4 = w[wi + 4], w5 = w[wi + 5], w6 = w[wi + 6];
+		int w7 = w[wi + 7];
+		int w8 = w[wi + 8], w9 = w[wi + 9], w10 = w[wi + 10], w11 = w[wi + 11], w12 = w[wi + 12], w13 = w[wi + 13];
+		int w14 = w[wi + 14], w15 = w[wi + 15];
+		out[oi] = w0 & 0xffff; out[oi + 1] = w0 >>> 16; out[oi + 2] = w1 & 0xffff; out[oi + 3] = w1 >>> 16;
+		out[oi + 4] = w2 & 0xffff; out[oi + 5] = w2 >>> 16; out[oi + 6] = w3 & 0xffff; out[oi + 7] = w3 >>> 16;
+		out[oi + 8] = w4 & 0xffff; out[oi + 9] = w4 >>> 16; out[oi + 10] = w5 & 0xffff; out[oi + 11] = w5 >>> 16;
+		out[oi + 12] = w6 & 0xffff; out[oi + 13] = w6 >>> 16; out[oi + 14] = w7 & 0xffff; out[oi + 15] = w7 >>> 16;
+		out[oi + 16] = w8 & 0xffff; out[oi + 17] = w8 >>> 16; out[oi + 18] = w9 & 0xffff; out[oi + 19] = w9 >>> 16;
+		out[oi + 20] = w10 & 0xffff; out[oi + 21] = w10 >>> 16; out[oi + 22] = w11 & 0xffff; out[oi + 23] = w11 >>> 16;
+		out[oi + 24] = w12 & 0xffff; out[oi + 25] = w12 >>> 16; out[oi + 26] = w13 & 0xffff; out[oi + 27] = w13 >>> 16;
+		out[oi + 28] = w14 & 0xffff; out[oi + 29] = w14 >>> 16; out[oi + 30] = w15 & 0xffff; out[oi + 31] = w15 >>> 16;
+	}
+
+	private static void unpack17(int[] w, int wi, int[] out, int oi) {
+		int w0 = w[wi], w1 = w[wi + 1], w2 = w[wi + 2], w3 = w[wi + 3], w4 = w[wi + 4], w5 = w[wi + 5], w6 = w[wi + 6];
+		int w7 = w[wi + 7];
+		int w8 = w[wi + 8], w9 = w[wi + 9], w10 = w[wi + 10], w11 = w[wi + 11], w12 = w[wi + 12], w13 = w[wi + 13];
+		int w14 = w[wi + 14], w15 = w[wi + 15];
+		int w16 = w[wi + 16];
+		out[oi] = w0 & 0x1ffff; out[oi + 1] = (w0 >>> 17 | w1 << 15) & 0x1ffff; out[oi + 2] = w1 >>> 2 & 0x1ffff;
+		out[oi + 3] = (w1 >>> 19 | w2 << 13) & 0x1ffff;
+		out[oi + 4] = w2 >>> 4 & 0x1ffff; out[oi + 5] = (w2 >>> 21 | w3 << 11) & 0x1ffff;
+		out[oi + 6] = w3 >>> 6 & 0x1ffff; out[oi + 7] = (w3 >>> 23 | w4 << 9) & 0x1ffff;
+		out[oi + 8] = w4 >>> 8 & 0x1ffff; out[oi + 9] = (w4 >>> 25 | w5 << 7) & 0x1ffff;
+		out[oi + 10] = w5 >>> 10 & 0x1ffff; out[oi + 11] = (w5 >>> 27 | w6 << 5) & 0x1ffff;
+		out[oi + 12] = w6 >>> 12 & 0x1ffff; out[oi + 13] = (w6 >>> 29 | w7 << 3) & 0x1ffff;
+		out[oi + 14] = w7 >>> 14 & 0x1ffff; out[oi + 15] = (w7 >>> 31 | w8 << 1) & 0x1ffff;
+		out[oi + 16] = (w8 >>> 16 | w9 << 16) & 0x1ffff; out[oi + 17] = w9 >>> 1 & 0x1ffff;
+		out[oi + 18] = (w9 >>> 18 | w10 << 14) & 0x1ffff; out[oi + 19] = w10 >>> 3 & 0x1ffff;
+		out[oi + 20] = (w10 >>> 20 | w11 << 12) & 0x1ffff; out[oi + 21] = w11 >>> 5 & 0x1ffff;
+		out[oi + 22] = (w11 >>> 22 | w12 << 10) & 0x1ffff; out[oi + 23] = w12 >>> 7 & 0x1ffff;
+		out[oi + 24] = (w12 >>> 24 | w13 << 8) & 0x1ffff; out[oi + 25] = w13 >>> 9 & 0x1ffff;
+		out[oi + 26] = (w13 >>> 26 | w14 << 6) & 0x1ffff; out[oi + 27] = w14 >>> 11 & 0x1ffff;
+		out[oi + 28] = (w14 >>> 28 | w15 << 4) & 0x1ffff; out[oi + 29] = w15 >>> 13 & 0x1ffff;
+		out[oi + 30] = (w15 >>> 30 | w16 << 2) & 0x1ffff; out[oi + 31] = w16 >>> 15;
+	}
+
+	private static void unpack18(int[] w, int wi, int[] out, int oi) {
+		int w0 = w[wi], w1 = w[wi + 1], w2 = w[wi + 2], w3 = w[wi + 3], w4 = w[wi + 4], w5 = w[wi + 5], w6 = w[wi + 6];
+		int w7 = w[wi + 7];
+		int w8 = w[wi + 8], w9 = w[wi + 9], w10 = w[wi + 10], w11 = w[wi + 11], w12 = w[wi + 12], w13 = w[wi + 13];
+		int w14 = w[wi + 14], w15 = w[wi + 15];
+		int w16 = w[wi + 16], w17 = w[wi + 17];
+		out[oi] = w0 & 0x3ffff; out[oi + 1] = (w0 >>> 18 | w1 << 14) & 0x3ffff; out[oi + 2] = w1 >>> 4 & 0x3ffff;
+		out[oi + 3] = (w1 >>> 22 | w2 << 10) & 0x3ffff;
+		out[oi + 4] = w2 >>> 8 & 0x3ffff; out[oi + 5] = (w2 >>> 26 | w3 << 6) & 0x3ffff;
+		out[oi + 6] = w3 >>> 12 & 0x3ffff; out[oi + 7] = (w3 >>> 30 | w4 << 2) & 0x3ffff;
+		out[oi + 8] = (w4 >>> 16 | w5 << 16) & 0x3ffff; out[oi + 9] = w5 >>> 2 & 0x3ffff;
+		out[oi + 10] = (w5 >>> 20 | w6 << 12) & 0x3ffff; out[oi + 11] = w6 >>> 6 & 0x3ffff;
+		out[oi + 12] = (w6 >>> 24 | w7 << 8) & 0x3ffff; out[oi + 13] = w7 >>> 10 & 0x3ffff;
+		out[oi + 14] = (w7 >>> 28 | w8 << 4) & 0x3ffff; out[oi + 15] = w8 >>> 14;
+		out[oi + 16] = w9 & 0x3ffff; out[oi + 17] = (w9 >>> 18 | w10 << 14) & 0x3ffff;
+		out[oi + 18] = w10 >>> 4 & 0x3ffff; out[oi + 19] = (w10 >>> 22 | w11 << 10) & 0x3ffff;
+		out[oi + 20] = w11 >>> 8 & 0x3ffff; out[oi + 21] = (w11 >>> 26 | w12 << 6) & 0x3ffff;
+		out[oi + 22] = w12 >>> 12 & 0x3ffff; out[oi + 23] = (w12 >>> 30 | w13 << 2) & 0x3ffff;
+		out[oi + 24] = (w13 >>> 16 | w14 << 16) & 0x3ffff; out[oi + 25] = w14 >>> 2 & 0x3ffff;
+		out[oi + 26] = (w14 >>> 20 | w15 << 12) & 0x3ffff; out[oi + 27] = w15 >>> 6 & 0x3ffff;
+		out[oi + 28] = (w15 >>> 24 | w16 << 8) & 0x3ffff; out[oi + 29] = w16 >>> 10 & 0x3ffff;
+		out[oi + 30] = (w16 >>> 28 | w17 << 4) & 0x3ffff; out[oi + 31] = w17 >>> 14;
+	}
+
+	private static void unpack19(int[] w, int wi, int[] out, int oi) {
+		int w0 = w[wi], w1 = w[wi + 1], w2 = w[wi + 2], w3 = w[wi + 3], w4 = w[wi + 4], w5 = w[wi + 5], w6 = w[wi + 6];
+		int w7 = w[wi + 7];
+		int w8 = w[wi + 8], w9 = w[wi + 9], w10 = w[wi + 10], w11 = w[wi + 11], w12 = w[wi + 12], w13 = w[wi + 13];
+		int w14 = w[wi + 14], w15 = w[wi + 15];
+		int w16 = w[wi + 16], w17 = w[wi + 17], w18 = w[wi + 18];
+		out[oi] = w0 & 0x7ffff; out[oi + 1] = (w0 >>> 19 | w1 << 13) & 0x7ffff; out[oi + 2] = w1 >>> 6 & 0x7ffff;
+		out[oi + 3] = (w1 >>> 25 | w2 << 7) & 0x7ffff;
+		out[oi + 4] = w2 >>> 12 & 0x7ffff; out[oi + 5] = (w2 >>> 31 | w3 << 1) & 0x7ffff;
+		out[oi + 6] = (w3 >>> 18 | w4 << 14) & 0x7ffff; out[oi + 7] = w4 >>> 5 & 0x7ffff;
+		out[oi + 8] = (w4 >>> 24 | w5 << 8) & 0x7ffff; out[oi + 9] = w5 >>> 11 & 0x7ffff;
+		out[oi + 10] = (w5 >>> 30 | w6 << 2) & 0x7ffff; out[oi + 11] = (w6 >>> 17 | w7 << 15) & 0x7ffff;
+		out[oi + 12] = w7 >>> 4 & 0x7ffff; out[oi + 13] = (w7 >>> 23 | w8 << 9) & 0x7ffff;
+		out[oi + 14] = w8 >>> 10 & 0x7ffff; out[oi + 15] = (w8 >>> 29 | w9 << 3) & 0x7ffff;
+		out[oi + 16] = (w9 >>> 16 | w10 << 16) & 0x7ffff; out[oi + 17] = w10 >>> 3 & 0x7ffff;
+		out[oi + 18] = (w10 >>> 22 | w11 << 10) & 0x7ffff; out[oi + 19] = w11 >>> 9 & 0x7ffff;
+		out[oi + 20] = (w11 >>> 28 | w12 << 4) & 0x7ffff; out[oi + 21] = (w12 >>> 15 | w13 << 17) & 0x7ffff;
+		out[oi + 22] = w13 >>> 2 & 0x7ffff; out[oi + 23] = (w13 >>> 21 | w14 << 11) & 0x7ffff;
+		out[oi + 24] = w14 >>> 8 & 0x7ffff; out[oi + 25] = (w14 >>> 27 | w15 << 5) & 0x7ffff;
+		out[oi + 26] = (w15 >>> 14 | w16 << 18) & 0x7ffff; out[oi + 27] = w16 >>> 1 & 0x7ffff;
+		out[oi + 28] = (w16 >>> 20 | w17 << 12) & 0x7ffff; out[oi + 29] = w17 >>> 7 & 0x7ffff;
+		out[oi + 30] = (w17 >>> 26 | w18 << 6) & 0x7ffff; out[oi + 31] = w18 >>> 13;
+	}
+
+	private static void unpack20(int[] w, int wi, int[] out, int oi) {
+		int w0 = w[wi], w1 = w[wi + 1], w2 = w[wi + 2], w3 = w[wi + 3], w4 = w[wi + 4], w5 = w[wi + 5], w6 = w[wi + 6];
+		int w7 = w[wi + 7];
+		int w8 = w[wi + 8], w9 = w[wi + 9], w10 = w[wi + 10], w11 = w[wi + 11], w12 = w[wi + 12], w13 = w[wi + 13];
+		int w14 = w[wi + 14], w15 = w[wi + 15];
+		int w16 = w[wi + 16], w17 = w[wi + 17], w18 = w[wi + 18], w19 = w[wi + 19];
+		out[oi] = w0 & 0xfffff; out[oi + 1] = (w0 >>> 20 | w1 << 12) & 0xfffff; out[oi + 2] = w1 >>> 8 & 0xfffff;
+		out[oi + 3] = (w1 >>> 28 | w2 << 4) & 0xfffff;
+		out[oi + 4] = (w2 >>> 16 | w3 << 16) & 0xfffff; out[oi + 5] = w3 >>> 4 & 0xfffff;
+		out[oi + 6] = (w3 >>> 24 | w4 << 8) & 0xfffff; out[oi + 7] = w4 >>> 12;
+		out[oi + 8] = w5 & 0xfffff; out[oi + 9] = (w5 >>> 20 | w6 << 12) & 0xfffff; out[oi + 10] = w6 >>> 8 & 0xfffff;
+		out[oi + 11] = (w6 >>> 28 | w7 << 4) & 0xfffff;
+		out[oi + 12] = (w7 >>> 16 | w8 << 16) & 0xfffff; out[oi + 13] = w8 >>> 4 & 0xfffff;
+		out[oi + 14] = (w8 >>> 24 | w9 << 8) & 0xfffff; out[oi + 15] = w9 >>> 12;
+		out[oi + 16] = w10 & 0xfffff; out[oi + 17] = (w10 >>> 20 | w11 << 12) & 0xfffff;
+		out[oi + 18] = w11 >>> 8 & 0xfffff; out[oi + 19] = (w11 >>> 28 | w12 << 4) & 0xfffff;
+		out[oi + 20] = (w12 >>> 16 | w13 << 16) & 0xfffff; out[oi + 21] = w13 >>> 4 & 0xfffff;
+		out[oi + 22] = (w13 >>> 24 | w14 << 8) & 0xfffff; out[oi + 23] = w14 >>> 12;
+		out[oi + 24] = w15 & 0xfffff; out[oi + 25] = (w15 >>> 20 | w16 << 12) & 0xfffff;
+		out[oi + 26] = w16 >>> 8 & 0xfffff; out[oi + 27] = (w16 >>> 28 | w17 << 4) & 0xfffff;
+		out[oi + 28] = (w17 >>> 16 | w18 << 16) & 0xfffff; out[oi + 29] = w18 >>> 4 & 0xfffff;
+		out[oi + 30] = (w18 >>> 24 | w19 << 8) & 0xfffff; out[oi + 31] = w19 >>> 12;
+	}
+
+	private static void unpack21(int[] w, int wi, int[] out, int oi) {
+		int w0 = w[wi], w1 = w[wi + 1], w2 = w[wi + 2], w3 = w[wi + 3], w4 = w[wi + 4], w5 = w[wi + 5], w6 = w[wi + 6];
+		int w7 = w[wi + 7];
+		int w8 = w[wi + 8], w9 = w[wi + 9], w10 = w[wi + 10], w11 = w[wi + 11], w12 = w[wi + 12], w13 = w[wi + 13];
+		int w14 = w[wi + 14], w15 = w[wi + 15];
+		int w16 = w[wi + 16], w17 = w[wi + 17], w18 = w[wi + 18], w19 = w[wi + 19], w20 = w[wi + 20];
+		out[oi] = w0 & 0x1fffff; out[oi + 1] = (w0 >>> 21 | w1 << 11) & 0x1fffff; out[oi + 2] = w1 >>> 10 & 0x1fffff;
+		out[oi + 3] = (w1 >>> 31 | w2 << 1) & 0x1fffff;
+		out[oi + 4] = (w2 >>> 20 | w3 << 12) & 0x1fffff; out[oi + 5] = w3 >>> 9 & 0x1fffff;
+		out[oi + 6] = (w3 >>> 30 | w4 << 2) & 0x1fffff; out[oi + 7] = (w4 >>> 19 | w5 << 13) & 0x1fffff;
+		out[oi + 8] = w5 >>> 8 & 0x1fffff; out[oi + 9] = (w5 >>> 29 | w6 << 3) & 0x1fffff;
+		out[oi + 10] = (w6 >>> 18 | w7 << 14) & 0x1fffff; out[oi + 11] = w7 >>> 7 & 0x1fffff;
+		out[oi + 12] = (w7 >>> 28 | w8 << 4) & 0x1fffff; out[oi + 13] = (w8 >>> 17 | w9 << 15) & 0x1fffff;
+		out[oi + 14] = w9 >>> 6 & 0x1fffff; out[oi + 15] = (w9 >>> 27 | w10 << 5) & 0x1fffff;
+		out[oi + 16] = (w10 >>> 16 | w11 << 16) & 0x1fffff; out[oi + 17] = w11 >>> 5 & 0x1fffff;
+		out[oi + 18] = (w11 >>> 26 | w12 << 6) & 0x1fffff; out[oi + 19] = (w12 >>> 15 | w13 << 17) & 0x1fffff;
+		out[oi + 20] = w13 >>> 4 & 0x1fffff; out[oi + 21] = (w13 >>> 25 | w14 << 7) & 0x1fffff;
+		out[oi + 22] = (w14 >>> 14 | w15 << 18) & 0x1fffff; out[oi + 23] = w15 >>> 3 & 0x1fffff;
+		out[oi + 24] = (w15 >>> 24 | w16 << 8) & 0x1fffff; out[oi + 25] = (w16 >>> 13 | w17 << 19) & 0x1fffff;
+		out[oi + 26] = w17 >>> 2 & 0x1fffff; out[oi + 27] = (w17 >>> 23 | w18 << 9) & 0x1fffff;
+		out[oi + 28] = (w18 >>> 12 | w19 << 20) & 0x1fffff; out[oi + 29] = w19 >>> 1 & 0x1fffff;
+		out[oi + 30] = (w19 >>> 22 | w20 << 10) & 0x1fffff; out[oi + 31] = w20 >>> 11;
+	}
+
+	private static void unpack22(int[] w, int wi, int[] out, int oi) {
+		int w0 = w[wi], w1 = w[wi + 1], w2 = w[wi + 2], w3 = w[wi + 3], w4 = w[wi + 4], w5 = w[wi + 5], w6 = w[wi + 6];
+		int w7 = w[wi + 7];
+		int w8 = w[wi + 8], w9 = w[wi + 9], w10 = w[wi + 10], w11 = w[wi + 11], w12 = w[wi + 12], w13 = w[wi + 13];
+		int w14 = w[wi + 14], w15 = w[wi + 15];
+		int w16 = w[wi + 16], w17 = w[wi + 17], w18 = w[wi + 18], w19 = w[wi + 19], w20 = w[wi + 20], w21 = w[wi + 21];
+		out[oi] = w0 & 0x3fffff; out[oi + 1] = (w0 >>> 22 | w1 << 10) & 0x3fffff;
+		out[oi + 2] = (w1 >>> 12 | w2 << 20) & 0x3fffff; out[oi + 3] = w2 >>> 2 & 0x3fffff;
+		out[oi + 4] = (w2 >>> 24 | w3 << 8) & 0x3fffff; out[oi + 5] = (w3 >>> 14 | w4 << 18) & 0x3fffff;
+		out[oi + 6] = w4 >>> 4 & 0x3fffff; out[oi + 7] = (w4 >>> 26 | w5 << 6) & 0x3fffff;
+		out[oi + 8] = (w5 >>> 16 | w6 << 16) & 0x3fffff; out[oi + 9] = w6 >>> 6 & 0x3fffff;
+		out[oi + 10] = (w6 >>> 28 | w7 << 4) & 0x3fffff; out[oi + 11] = (w7 >>> 18 | w8 << 14) & 0x3fffff;
+		out[oi + 12] = w8 >>> 8 & 0x3fffff; out[oi + 13] = (w8 >>> 30 | w9 << 2) & 0x3fffff;
+		out[oi + 14] = (w9 >>> 20 | w10 << 12) & 0x3fffff; out[oi + 15] = w10 >>> 10;
+		out[oi + 16] = w11 & 0x3fffff; out[oi + 17] = (w11 >>> 22 | w12 << 10) & 0x3fffff;
+		out[oi + 18] = (w12 >>> 12 | w13 << 20) & 0x3fffff; out[oi + 19] = w13 >>> 2 & 0x3fffff;
+		out[oi + 20] = (w13 >>> 24 | w14 << 8) & 0x3fffff; out[oi + 21] = (w14 >>> 14 | w15 << 18) & 0x3fffff;
+		out[oi + 22] = w15 >>> 4 & 0x3fffff; out[oi + 23] = (w15 >>> 26 | w16 << 6) & 0x3fffff;
+		out[oi + 24] = (w16 >>> 16 | w17 << 16) & 0x3fffff; out[oi + 25] = w17 >>> 6 & 0x3fffff;
+		out[oi + 26] = (w17 >>> 28 | w18 << 4) & 0x3fffff; out[oi + 27] = (w18 >>> 18 | w19 << 14) & 0x3fffff;
+		out[oi + 28] = w19 >>> 8 & 0x3fffff; out[oi + 29] = (w19 >>> 30 | w20 << 2) & 0x3fffff;
+		out[oi + 30] = (w20 >>> 20 | w21 << 12) & 0x3fffff; out[oi + 31] = w21 >>> 10;
+	}
+
+	private static void unpack23(int[] w, int wi, int[] out, int oi) {
+		int w0 = w[wi], w1 = w[wi + 1], w2 = w[wi + 2], w3 = w[wi + 3], w4 = w[wi + 4], w5 = w[wi + 5], w6 = w[wi + 6];
+		int w7 = w[wi + 7];
+		int w8 = w[wi + 8], w9 = w[wi + 9], w10 = w[wi + 10], w11 = w[wi + 11], w12 = w[wi + 12], w13 = w[wi + 13];
+		int w14 = w[wi + 14], w15 = w[wi + 15];
+		int w16 = w[wi + 16], w17 = w[wi + 17], w18 = w[wi + 18], w19 = w[wi + 19], w20 = w[wi + 20], w21 = w[wi + 21];
+		int w22 = w[wi + 22];
+		out[oi] = w0 & 0x7fffff; out[oi + 1] = (w0 >>> 23 | w1 << 9) & 0x7fffff;
+		out[oi + 2] = (w1 >>> 14 | w2 << 18) & 0x7fffff; out[oi + 3] = w2 >>> 5 & 0x7fffff;
+		out[oi + 4] = (w2 >>> 28 | w3 << 4) & 0x7fffff; out[oi + 5] = (w3 >>> 19 | w4 << 13) & 0x7fffff;
+		out[oi + 6] = (w4 >>> 10 | w5 << 22) & 0x7fffff; out[oi + 7] = w5 >>> 1 & 0x7fffff;
+		out[oi + 8] = (w5 >>> 24 | w6 << 8) & 0x7fffff; out[oi + 9] = (w6 >>> 15 | w7 << 17) & 0x7fffff;
+		out[oi + 10] = w7 >>> 6 & 0x7fffff; out[oi + 11] = (w7 >>> 29 | w8 << 3) & 0x7fffff;
+		out[oi + 12] = (w8 >>> 20 | w9 << 12) & 0x7fffff; out[oi + 13] = (w9 >>> 11 | w10 << 21) & 0x7fffff;
+		out[oi + 14] = w10 >>> 2 & 0x7fffff; out[oi + 15] = (w10 >>> 25 | w11 << 7) & 0x7fffff;
+		out[oi + 16] = (w11 >>> 16 | w12 << 16) & 0x7fffff; out[oi + 17] = w12 >>> 7 & 0x7fffff;
+		out[oi + 18] = (w12 >>> 30 | w13 << 2) & 0x7fffff; out[oi + 19] = (w13 >>> 21 | w14 << 11) & 0x7fffff;
+		out[oi + 20] = (w14 >>> 12 | w15 << 20) & 0x7fffff; out[oi + 21] = w15 >>> 3 & 0x7fffff;
+		out[oi + 22] = (w15 >>> 26 | w16 << 6) & 0x7fffff; out[oi + 23] = (w16 >>> 17 | w17 << 15) & 0x7fffff;
+		out[oi + 24] = w17 >>> 8 & 0x7fffff; out[oi + 25] = (w17 >>> 31 | w18 << 1) & 0x7fffff;
+		out[oi + 26] = (w18 >>> 22 | w19 << 10) & 0x7fffff; out[oi + 27] = (w19 >>> 13 | w20 << 19) & 0x7fffff;
+		out[oi + 28] = w20 >>> 4 & 0x7fffff; out[oi + 29] = (w20 >>> 27 | w21 << 5) & 0x7fffff;
+		out[oi + 30] = (w21 >>> 18 | w22 << 14) & 0x7fffff; out[oi + 31] = w22 >>> 9;
+	}
+
+	private static void unpack24(int[] w, int wi, int[] out, int oi) {
+		int w0 = w[wi], w1 = w[wi + 1], w2 = w[wi + 2], w3 = w[wi + 3], w4 = w[wi + 4], w5 = w[wi + 5], w6 = w[wi + 6];
+		int w7 = w[wi + 7];
+		int w8 = w[wi + 8], w9 = w[wi + 9], w10 = w[wi + 10], w11 = w[wi + 11], w12 = w[wi + 12], w13 = w[wi + 13];
+		int w14 = w[wi + 14], w15 = w[wi + 15];
+		int w16 = w[wi + 16], w17 = w[wi + 17], w18 = w[wi + 18], w19 = w[wi + 19], w20 = w[wi + 20], w21 = w[wi + 21];
+		int w22 = w[wi + 22], w23 = w[wi + 23];
+		out[oi] = w0 & 0xffffff; out[oi + 1] = (w0 >>> 24 | w1 << 8) & 0xffffff;
+		out[oi + 2] = (w1 >>> 16 | w2 << 16) & 0xffffff; out[oi + 3] = w2 >>> 8;
+		out[oi + 4] = w3 & 0xffffff; out[oi + 5] = (w3 >>> 24 | w4 << 8) & 0xffffff;
+		out[oi + 6] = (w4 >>> 16 | w5 << 16) & 0xffffff; out[oi + 7] = w5 >>> 8;
+		out[oi + 8] = w6 & 0xffffff; out[oi + 9] = (w6 >>> 24 | w7 << 8) & 0xffffff;
+		out[oi + 10] = (w7 >>> 16 | w8 << 16) & 0xffffff; out[oi + 11] = w8 >>> 8;
+		out[oi + 12] = w9 & 0xffffff; out[oi + 13] = (w9 >>> 24 | w10 << 8) & 0xffffff;
+		out[oi + 14] = (w10 >>> 16 | w11 << 16) & 0xffffff; out[oi + 15] = w11 >>> 8;
+		out[oi + 16] = w12 & 0xffffff; out[oi + 17] = (w12 >>> 24 | w13 << 8) & 0xffffff;
+		out[oi + 18] = (w13 >>> 16 | w14 << 16) & 0xffffff; out[oi + 19] = w14 >>> 8;
+		out[oi + 20] = w15 & 0xffffff; out[oi + 21] = (w15 >>> 24 | w16 << 8) & 0xffffff;
+		out[oi + 22] = (w16 >>> 16 | w17 << 16) & 0xffffff; out[oi + 23] = w17 >>> 8;
+		out[oi + 24] = w18 & 0xffffff; out[oi + 25] = (w18 >>> 24 | w19 << 8) & 0xffffff;
+		out[oi + 26] = (w19 >>> 16 | w20 << 16) & 0xffffff; out[oi + 27] = w20 >>> 8;
+		out[oi + 28] = w21 & 0xffffff; out[oi + 29] = (w21 >>> 24 | w22 << 8) & 0xffffff;
+		out[oi + 30] = (w22 >>> 16 | w23 << 16) & 0xffffff; out[oi + 31] = w23 >>> 8;
+	}
+
+	private static void unpack25(int[] w, int wi, int[] out, int oi) {
+		int w0 = w[wi], w1 = w[wi + 1], w2 = w[wi + 2], w3 = w[wi + 3], w4 = w[wi + 4], w5 = w[wi + 5], w6 = w[wi + 6];
+		int w7 = w[wi + 7];
+		int w8 = w[wi + 8], w9 = w[wi + 9], w10 = w[wi + 10], w11 = w[wi + 11], w12 = w[wi + 12], w13 = w[wi + 13];
+		int w14 = w[wi + 14], w15 = w[wi + 15];
+		int w16 = w[wi + 16], w17 = w[wi + 17], w18 = w[wi + 18], w19 = w[wi + 19], w20 = w[wi + 20], w21 = w[wi + 21];
+		int w22 = w[wi + 22], w23 = w[wi + 23];
+		int w24 = w[wi + 24];
+		out[oi] = w0 & 0x1ffffff; out[oi + 1] = (w0 >>> 25 | w1 << 7) & 0x1ffffff;
+		out[oi + 2] = (w1 >>> 18 | w2 << 14) & 0x1ffffff; out[oi + 3] = (w2 >>> 11 | w3 << 21) & 0x1ffffff;
+		out[oi + 4] = w3 >>> 4 & 0x1ffffff; out[oi + 5] = (w3 >>> 29 | w4 << 3) & 0x1ffffff;
+		out[oi + 6] = (w4 >>> 22 | w5 << 10) & 0x1ffffff; out[oi + 7] = (w5 >>> 15 | w6 << 17) & 0x1ffffff;
+		out[oi + 8] = (w6 >>> 8 | w7 << 24) & 0x1ffffff; out[oi + 9] = w7 >>> 1 & 0x1ffffff;
+		out[oi + 10] = (w7 >>> 26 | w8 << 6) & 0x1ffffff; out[oi + 11] = (w8 >>> 19 | w9 << 13) & 0x1ffffff;
+		out[oi + 12] = (w9 >>> 12 | w10 << 20) & 0x1ffffff; out[oi + 13] = w10 >>> 5 & 0x1ffffff;
+		out[oi + 14] = (w10 >>> 30 | w11 << 2) & 0x1ffffff; out[oi + 15] = (w11 >>> 23 | w12 << 9) & 0x1ffffff;
+		out[oi + 16] = (w12 >>> 16 | w13 << 16) & 0x1ffffff; out[oi + 17] = (w13 >>> 9 | w14 << 23) & 0x1ffffff;
+		out[oi + 18] = w14 >>> 2 & 0x1ffffff; out[oi + 19] = (w14 >>> 27 | w15 << 5) & 0x1ffffff;
+		out[oi + 20] = (w15 >>> 20 | w16 << 12) & 0x1ffffff; out[oi + 21] = (w16 >>> 13 | w17 << 19) & 0x1ffffff;
+		out[oi + 22] = w17 >>> 6 & 0x1ffffff; out[oi + 23] = (w17 >>> 31 | w18 << 1) & 0x1ffffff;
+		out[oi + 24] = (w18 >>> 24 | w19 << 8) & 0x1ffffff; out[oi + 25] = (w19 >>> 17 | w20 << 15) & 0x1ffffff;
+		out[oi + 26] = (w20 >>> 10 | w21 << 22) & 0x1ffffff; out[oi + 27] = w21 >>> 3 & 0x1ffffff;
+		out[oi + 28] = (w21 >>> 28 | w22 << 4) & 0x1ffffff; out[oi + 29] = (w22 >>> 21 | w23 << 11) & 0x1ffffff;
+		out[oi + 30] = (w23 >>> 14 | w24 << 18) & 0x1ffffff; out[oi + 31] = w24 >>> 7;
+	}
+
+	private static void unpack26(int[] w, int wi, int[] out, int oi) {
+		int w0 = w[wi], w1 = w[wi + 1], w2 = w[wi + 2], w3 = w[wi + 3], w4 = w[wi + 4], w5 = w[wi + 5], w6 = w[wi + 6];
+		int w7 = w[wi + 7];
+		int w8 = w[wi + 8], w9 = w[wi + 9], w10 = w[wi + 10], w11 = w[wi + 11], w12 = w[wi + 12], w13 = w[wi + 13];
+		int w14 = w[wi + 14], w15 = w[wi + 15];
+		int w16 = w[wi + 16], w17 = w[wi + 17], w18 = w[wi + 18], w19 = w[wi + 19], w20 = w[wi + 20], w21 = w[wi + 21];
+		int w22 = w[wi + 22], w23 = w[wi + 23];
+		int w24 = w[wi + 24], w25 = w[wi + 25];
+		out[oi] = w0 & 0x3ffffff; out[oi + 1] = (w0 >>> 26 | w1 << 6) & 0x3ffffff;
+		out[oi + 2] = (w1 >>> 20 | w2 << 12) & 0x3ffffff; out[oi + 3] = (w2 >>> 14 | w3 << 18) & 0x3ffffff;
+		out[oi + 4] = (w3 >>> 8 | w4 << 24) & 0x3ffffff; out[oi + 5] = w4 >>> 2 & 0x3ffffff;
+		out[oi + 6] = (w4 >>> 28 | w5 << 4) & 0x3ffffff; out[oi + 7] = (w5 >>> 22 | w6 << 10) & 0x3ffffff;
+		out[oi + 8] = (w6 >>> 16 | w7 << 16) & 0x3ffffff; out[oi + 9] = (w7 >>> 10 | w8 << 22) & 0x3ffffff;
+		out[oi + 10] = w8 >>> 4 & 0x3ffffff; out[oi + 11] = (w8 >>> 30 | w9 << 2) & 0x3ffffff;
+		out[oi + 12] = (w9 >>> 24 | w10 << 8) & 0x3ffffff; out[oi + 13] = (w10 >>> 18 | w11 << 14) & 0x3ffffff;
+		out[oi + 14] = (w11 >>> 12 | w12 << 20) & 0x3ffffff; out[oi + 15] = w12 >>> 6;
+		out[oi + 16] = w13 & 0x3ffffff; out[oi + 17] = (w13 >>> 26 | w14 << 6) & 0x3ffffff;
+		out[oi + 18] = (w14 >>> 20 | w15 << 12) & 0x3ffffff; out[oi + 19] = (w15 >>> 14 | w16 << 18) & 0x3ffffff;
+		out[oi + 20] = (w16 >>> 8 | w17 << 24) & 0x3ffffff; out[oi + 21] = w17 >>> 2 & 0x3ffffff;
+		out[oi + 22] = (w17 >>> 28 | w18 << 4) & 0x3ffffff; out[oi + 23] = (w18 >>> 22 | w19 << 10) & 0x3ffffff;
+		out[oi + 24] = (w19 >>> 16 | w20 << 16) & 0x3ffffff; out[oi + 25] = (w20 >>> 10 | w21 << 22) & 0x3ffffff;
+		out[oi + 26] = w21 >>> 4 & 0x3ffffff; out[oi + 27] = (w21 >>> 30 | w22 << 2) & 0x3ffffff;
+		out[oi + 28] = (w22 >>> 24 | w23 << 8) & 0x3ffffff; out[oi + 29] = (w23 >>> 18 | w24 << 14) & 0x3ffffff;
+		out[oi + 30] = (w24 >>> 12 | w25 << 20) & 0x3ffffff; out[oi + 31] = w25 >>> 6;
+	}
+
+	private static void unpack27(int[] w, int wi, int[] out, int oi) {
+		int w0 = w[wi], w1 = w[wi + 1], w2 = w[wi + 2], w3 = w[wi + 3], w4 = w[wi + 4], w5 = w[wi + 5], w6 = w[wi + 6];
+		int w7 = w[wi + 7];
+		int w8 = w[wi + 8], w9 = w[wi + 9], w10 = w[wi + 10], w11 = w[wi + 11], w12 = w[wi + 12], w13 = w[wi + 13];
+		int w14 = w[wi + 14], w15 = w[wi + 15];
+		int w16 = w[wi + 16], w17 = w[wi + 17], w18 = w[wi + 18], w19 = w[wi + 19], w20 = w[wi + 20], w21 = w[wi + 21];
+		int w22 = w[wi + 22], w23 = w[wi + 23];
+		int w24 = w[wi + 24], w25 = w[wi + 25], w26 = w[wi + 26];
+		out[oi] = w0 & 0x7ffffff; out[oi + 1] = (w0 >>> 27 | w1 << 5) & 0x7ffffff;
+		out[oi + 2] = (w1 >>> 22 | w2 << 10) & 0x7ffffff; out[oi + 3] = (w2 >>> 17 | w3 << 15) & 0x7ffffff;
+		out[oi + 4] = (w3 >>> 12 | w4 << 20) & 0x7ffffff; out[oi + 5] = (w4 >>> 7 | w5 << 25) & 0x7ffffff;
+		out[oi + 6] = w5 >>> 2 & 0x7ffffff; out[oi + 7] = (w5 >>> 29 | w6 << 3) & 0x7ffffff;
+		out[oi + 8] = (w6 >>> 24 | w7 << 8) & 0x7ffffff; out[oi + 9] = (w7 >>> 19 | w8 << 13) & 0x7ffffff;
+		out[oi + 10] = (w8 >>> 14 | w9 << 18) & 0x7ffffff; out[oi + 11] = (w9 >>> 9 | w10 << 23) & 0x7ffffff;
+		out[oi + 12] = w10 >>> 4 & 0x7ffffff; out[oi + 13] = (w10 >>> 31 | w11 << 1) & 0x7ffffff;
+		out[oi + 14] = (w11 >>> 26 | w12 << 6) & 0x7ffffff; out[oi + 15] = (w12 >>> 21 | w13 << 11) & 0x7ffffff;
+		out[oi + 16] = (w13 >>> 16 | w14 << 16) & 0x7ffffff; out[oi + 17] = (w14 >>> 11 | w15 << 21) & 0x7ffffff;
+		out[oi + 18] = (w15 >>> 6 | w16 << 26) & 0x7ffffff; out[oi + 19] = w16 >>> 1 & 0x7ffffff;
+		out[oi + 20] = (w16 >>> 28 | w17 << 4) & 0x7ffffff; out[oi + 21] = (w17 >>> 23 | w18 << 9) & 0x7ffffff;
+		out[oi + 22] = (w18 >>> 18 | w19 << 14) & 0x7ffffff; out[oi + 23] = (w19 >>> 13 | w20 << 19) & 0x7ffffff;
+		out[oi + 24] = (w20 >>> 8 | w21 << 24) & 0x7ffffff; out[oi + 25] = w21 >>> 3 & 0x7ffffff;
+		out[oi + 26] = (w21 >>> 30 | w22 << 2) & 0x7ffffff; out[oi + 27] = (w22 >>> 25 | w23 << 7) & 0x7ffffff;
+		out[oi + 28] = (w23 >>> 20 | w24 << 12) & 0x7ffffff; out[oi + 29] = (w24 >>> 15 | w25 << 17) & 0x7ffffff;
+		out[oi + 30] = (w25 >>> 10 | w26 << 22) & 0x7ffffff; out[oi + 31] = w26 >>> 5;
+	}
+
+	private static void unpack28(int[] w, int wi, int[] out, int oi) {
+		int w0 = w[wi], w1 = w[wi + 1], w2 = w[wi + 2], w3 = w[wi + 3], w4 = w[wi + 4], w5 = w[wi + 5], w6 = w[wi + 6];
+		int w7 = w[wi + 7];
+		int w8 = w[wi + 8], w9 = w[wi + 9], w10 = w[wi + 10], w11 = w[wi + 11], w12 = w[wi + 12], w13 = w[wi + 13];
+		int w14 = w[wi + 14], w15 = w[wi + 15];
+		int w16 = w[wi + 16], w17 = w[wi + 17], w18 = w[wi + 18], w19 = w[wi + 19], w20 = w[wi + 20], w21 = w[wi + 21];
+		int w22 = w[wi + 22], w23 = w[wi + 23];
+		int w24 = w[wi + 24], w25 = w[wi + 25], w26 = w[wi + 26], w27 = w[wi + 27];
+		out[oi] = w0 & 0xfffffff; out[oi + 1] = (w0 >>> 28 | w1 << 4) & 0xfffffff;
+		out[oi + 2] = (w1 >>> 24 | w2 << 8) & 0xfffffff; out[oi + 3] = (w2 >>> 20 | w3 << 12) & 0xfffffff;
+		out[oi + 4] = (w3 >>> 16 | w4 << 16) & 0xfffffff; out[oi + 5] = (w4 >>> 12 | w5 << 20) & 0xfffffff;
+		out[oi + 6] = (w5 >>> 8 | w6 << 24) & 0xfffffff; out[oi + 7] = w6 >>> 4;
+		out[oi + 8] = w7 & 0xfffffff; out[oi + 9] = (w7 >>> 28 | w8 << 4) & 0xfffffff;
+		out[oi + 10] = (w8 >>> 24 | w9 << 8) & 0xfffffff; out[oi + 11] = (w9 >>> 20 | w10 << 12) & 0xfffffff;
+		out[oi + 12] = (w10 >>> 16 | w11 << 16) & 0xfffffff; out[oi + 13] = (w11 >>> 12 | w12 << 20) & 0xfffffff;
+		out[oi + 14] = (w12 >>> 8 | w13 << 24) & 0xfffffff; out[oi + 15] = w13 >>> 4;
+		out[oi + 16] = w14 & 0xfffffff; out[oi + 17] = (w14 >>> 28 | w15 << 4) & 0xfffffff;
+		out[oi + 18] = (w15 >>> 24 | w16 << 8) & 0xfffffff; out[oi + 19] = (w16 >>> 20 | w17 << 12) & 0xfffffff;
+		out[oi + 20] = (w17 >>> 16 | w18 << 16) & 0xfffffff; out[oi + 21] = (w18 >>> 12 | w19 << 20) & 0xfffffff;
+		out[oi + 22] = (w19 >>> 8 | w20 << 24) & 0xfffffff; out[oi + 23] = w20 >>> 4;
+		out[oi + 24] = w21 & 0xfffffff; out[oi + 25] = (w21 >>> 28 | w22 << 4) & 0xfffffff;
+		out[oi + 26] = (w22 >>> 24 | w23 << 8) & 0xfffffff; out[oi + 27] = (w23 >>> 20 | w24 << 12) & 0xfffffff;
+		out[oi + 28] = (w24 >>> 16 | w25 << 16) & 0xfffffff; out[oi + 29] = (w25 >>> 12 | w26 << 20) & 0xfffffff;
+		out[oi + 30] = (w26 >>> 8 | w27 << 24) & 0xfffffff; out[oi + 31] = w27 >>> 4;
+	}
+
+	private static void unpack29(int[] w, int wi, int[] out, int oi) {
+		int w0 = w[wi], w1 = w[wi + 1], w2 = w[wi + 2], w3 = w[wi + 3], w4 = w[wi + 4], w5 = w[wi + 5], w6 = w[wi + 6];
+		int w7 = w[wi + 7];
+		int w8 = w[wi + 8], w9 = w[wi + 9], w10 = w[wi + 10], w11 = w[wi + 11], w12 = w[wi + 12], w13 = w[wi + 13];
+		int w14 = w[wi + 14], w15 = w[wi + 15];
+		int w16 = w[wi + 16], w17 = w[wi + 17], w18 = w[wi + 18], w19 = w[wi + 19], w20 = w[wi + 20], w21 = w[wi + 21];
+		int w22 = w[wi + 22], w23 = w[wi + 23];
+		int w24 = w[wi + 24], w25 = w[wi + 25], w26 = w[wi + 26], w27 = w[wi + 27], w28 = w[wi + 28];
+		out[oi] = w0 & 0x1fffffff; out[oi + 1] = (w0 >>> 29 | w1 << 3) & 0x1fffffff;
+		out[oi + 2] = (w1 >>> 26 | w2 << 6) & 0x1fffffff; out[oi + 3] = (w2 >>> 23 | w3 << 9) & 0x1fffffff;
+		out[oi + 4] = (w3 >>> 20 | w4 << 12) & 0x1fffffff; out[oi + 5] = (w4 >>> 17 | w5 << 15) & 0x1fffffff;
+		out[oi + 6] = (w5 >>> 14 | w6 << 18) & 0x1fffffff; out[oi + 7] = (w6 >>> 11 | w7 << 21) & 0x1fffffff;
+		out[oi + 8] = (w7 >>> 8 | w8 << 24) & 0x1fffffff; out[oi + 9] = (w8 >>> 5 | w9 << 27) & 0x1fffffff;
+		out[oi + 10] = w9 >>> 2 & 0x1fffffff; out[oi + 11] = (w9 >>> 31 | w10 << 1) & 0x1fffffff;
+		out[oi + 12] = (w10 >>> 28 | w11 << 4) & 0x1fffffff; out[oi + 13] = (w11 >>> 25 | w12 << 7) & 0x1fffffff;
+		out[oi + 14] = (w12 >>> 22 | w13 << 10) & 0x1fffffff; out[oi + 15] = (w13 >>> 19 | w14 << 13) & 0x1fffffff;
+		out[oi + 16] = (w14 >>> 16 | w15 << 16) & 0x1fffffff; out[oi + 17] = (w15 >>> 13 | w16 << 19) & 0x1fffffff;
+		out[oi + 18] = (w16 >>> 10 | w17 << 22) & 0x1fffffff; out[oi + 19] = (w17 >>> 7 | w18 << 25) & 0x1fffffff;
+		out[oi + 20] = (w18 >>> 4 | w19 << 28) & 0x1fffffff; out[oi + 21] = w19 >>> 1 & 0x1fffffff;
+		out[oi + 22] = (w19 >>> 30 | w20 << 2) & 0x1fffffff; out[oi + 23] = (w20 >>> 27 | w21 << 5) & 0x1fffffff;
+		out[oi + 24] = (w21 >>> 24 | w22 << 8) & 0x1fffffff; out[oi + 25] = (w22 >>> 21 | w23 << 11) & 0x1fffffff;
+		out[oi + 26] = (w23 >>> 18 | w24 << 14) & 0x1fffffff; out[oi + 27] = (w24 >>> 15 | w25 << 17) & 0x1fffffff;
+		out[oi + 28] = (w25 >>> 12 | w26 << 20) & 0x1fffffff; out[oi + 29] = (w26 >>> 9 | w27 << 23) & 0x1fffffff;
+		out[oi + 30] = (w27 >>> 6 | w28 << 26) & 0x1fffffff; out[oi + 31] = w28 >>> 3;
+	}
+
+	private static void unpack30(int[] w, int wi, int[] out, int oi) {
+		int w0 = w[wi], w1 = w[wi + 1], w2 = w[wi + 2], w3 = w[wi + 3], w4 = w[wi + 4], w5 = w[wi + 5], w6 = w[wi + 6];
+		int w7 = w[wi + 7];
+		int w8 = w[wi + 8], w9 = w[wi + 9], w10 = w[wi + 10], w11 = w[wi + 11], w12 = w[wi + 12], w13 = w[wi + 13];
+		int w14 = w[wi + 14], w15 = w[wi + 15];
+		int w16 = w[wi + 16], w17 = w[wi + 17], w18 = w[wi + 18], w19 = w[wi + 19], w20 = w[wi + 20], w21 = w[wi + 21];
+		int w22 = w[wi + 22], w23 = w[wi + 23];
+		int w24 = w[wi + 24], w25 = w[wi + 25], w26 = w[wi + 26], w27 = w[wi + 27], w28 = w[wi + 28], w29 = w[wi + 29];
+		out[oi] = w0 & 0x3fffffff; out[oi + 1] = (w0 >>> 30 | w1 << 2) & 0x3fffffff;
+		out[oi + 2] = (w1 >>> 28 | w2 << 4) & 0x3fffffff; out[oi + 3] = (w2 >>> 26 | w3 << 6) & 0x3fffffff;
+		out[oi + 4] = (w3 >>> 24 | w4 << 8) & 0x3fffffff; out[oi + 5] = (w4 >>> 22 | w5 << 10) & 0x3fffffff;
+		out[oi + 6] = (w5 >>> 20 | w6 << 12) & 0x3fffffff; out[oi + 7] = (w6 >>> 18 | w7 << 14) & 0x3fffffff;
+		out[oi + 8] = (w7 >>> 16 | w8 << 16) & 0x3fffffff; out[oi + 9] = (w8 >>> 14 | w9 << 18) & 0x3fffffff;
+		out[oi + 10] = (w9 >>> 12 | w10 << 20) & 0x3fffffff; out[oi + 11] = (w10 >>> 10 | w11 << 22) & 0x3fffffff;
+		out[oi + 12] = (w11 >>> 8 | w12 << 24) & 0x3fffffff; out[oi + 13] = (w12 >>> 6 | w13 << 26) & 0x3fffffff;
+		out[oi + 14] = (w13 >>> 4 | w14 << 28) & 0x3fffffff; out[oi + 15] = w14 >>> 2;
+		out[oi + 16] = w15 & 0x3fffffff; out[oi + 17] = (w15 >>> 30 | w16 << 2) & 0x3fffffff;
+		out[oi + 18] = (w16 >>> 28 | w17 << 4) & 0x3fffffff; out[oi + 19] = (w17 >>> 26 | w18 << 6) & 0x3fffffff;
+		out[oi + 20] = (w18 >>> 24 | w19 << 8) & 0x3fffffff; out[oi + 21] = (w19 >>> 22 | w20 << 10) & 0x3fffffff;
+		out[oi + 22] = (w20 >>> 20 | w21 << 12) & 0x3fffffff; out[oi + 23] = (w21 >>> 18 | w22 << 14) & 0x3fffffff;
+		out[oi + 24] = (w22 >>> 16 | w23 << 16) & 0x3fffffff; out[oi + 25] = (w23 >>> 14 | w24 << 18) & 0x3fffffff;
+		out[oi + 26] = (w24 >>> 12 | w25 << 20) & 0x3fffffff; out[oi + 27] = (w25 >>> 10 | w26 << 22) & 0x3fffffff;
+		out[oi + 28] = (w26 >>> 8 | w27 << 24) & 0x3fffffff; out[oi + 29] = (w27 >>> 6 | w28 << 26) & 0x3fffffff;
+		out[oi + 30] = (w28 >>> 4 | w29 << 28) & 0x3fffffff; out[oi + 31] = w29 >>> 2;
+	}
+
+	private static void unpack31(int[] w, int wi, int[] out, int oi) {
+		int w0 = w[wi], w1 = w[wi + 1], w2 = w[wi + 2], w3 = w[wi + 3], w4 = w[wi + 4], w5 = w[wi + 5], w6 = w[wi + 6];
+		int w7 = w[wi + 7];
+		int w8 = w[wi + 8], w9 = w[wi + 9], w10 = w[wi + 10], w11 = w[wi + 11], w12 = w[wi + 12], w13 = w[wi + 13];
+		int w14 = w[wi + 14], w15 = w[wi + 15];
+		int w16 = w[wi + 16], w17 = w[wi + 17], w18 = w[wi + 18], w19 = w[wi + 19], w20 = w[wi + 20], w21 = w[wi + 21];
+		int w22 = w[wi + 22], w23 = w[wi + 23];
+		int w24 = w[wi + 24], w25 = w[wi + 25], w26 = w[wi + 26], w27 = w[wi + 27], w28 = w[wi + 28], w29 = w[wi + 29];
+		int w30 = w[wi + 30];
+		out[oi] = w0 & 0x7fffffff; out[oi + 1] = (w0 >>> 31 | w1 << 1) & 0x7fffffff;
+		out[oi + 2] = (w1 >>> 30 | w2 << 2) & 0x7fffffff; out[oi + 3] = (w2 >>> 29 | w3 << 3) & 0x7fffffff;
+		out[oi + 4] = (w3 >>> 28 | w4 << 4) & 0x7fffffff; out[oi + 5] = (w4 >>> 27 | w5 << 5) & 0x7fffffff;
+		out[oi + 6] = (w5 >>> 26 | w6 << 6) & 0x7fffffff; out[oi + 7] = (w6 >>> 25 | w7 << 7) & 0x7fffffff;
+		out[oi + 8] = (w7 >>> 24 | w8 << 8) & 0x7fffffff; out[oi + 9] = (w8 >>> 23 | w9 << 9) & 0x7fffffff;
+		out[oi + 10] = (w9 >>> 22 | w10 << 10) & 0x7fffffff; out[oi + 11] = (w10 >>> 21 | w11 << 11) & 0x7fffffff;
+		out[oi + 12] = (w11 >>> 20 | w12 << 12) & 0x7fffffff; out[oi + 13] = (w12 >>> 19 | w13 << 13) & 0x7fffffff;
+		out[oi + 14] = (w13 >>> 18 | w14 << 14) & 0x7fffffff; out[oi + 15] = (w14 >>> 17 | w15 << 15) & 0x7fffffff;
+		out[oi + 16] = (w15 >>> 16 | w16 << 16) & 0x7fffffff; out[oi + 17] = (w16 >>> 15 | w17 << 17) & 0x7fffffff;
+		out[oi + 18] = (w17 >>> 14 | w18 << 18) & 0x7fffffff; out[oi + 19] = (w18 >>> 13 | w19 << 19) & 0x7fffffff;
+		out[oi + 20] = (w19 >>> 12 | w20 << 20) & 0x7fffffff; out[oi + 21] = (w20 >>> 11 | w21 << 21) & 0x7fffffff;
+		out[oi + 22] = (w21 >>> 10 | w22 << 22) & 0x7fffffff; out[oi + 23] = (w22 >>> 9 | w23 << 23) & 0x7fffffff;
+		out[oi + 24] = (w23 >>> 8 | w24 << 24) & 0x7fffffff; out[oi + 25] = (w24 >>> 7 | w25 << 25) & 0x7fffffff;
+		out[oi + 26] = (w25 >>> 6 | w26 << 26) & 0x7fffffff; out[oi + 27] = (w26 >>> 5 | w27 << 27) & 0x7fffffff;
+		out[oi + 28] = (w27 >>> 4 | w28 << 28) & 0x7fffffff; out[oi + 29] = (w28 >>> 3 | w29 << 29) & 0x7fffffff;
+		out[oi + 30] = (w29 >>> 2 | w30 << 30) & 0x7fffffff; out[oi + 31] = w30 >>> 1;
+	}
+
+	private static void unpack32(int[] w, int wi, int[] out, int oi) {
+		int w0 = w[wi], w1 = w[wi + 1], w2 = w[wi + 2], w3 = w[wi + 3], w4 = w[wi + 4], w5 = w[wi + 5], w6 = w[wi + 6];
+		int w7 = w[wi + 7];
+		int w8 = w[wi + 8], w9 = w[wi + 9], w10 = w[wi + 10], w11 = w[wi + 11], w12 = w[wi + 12], w13 = w[wi + 13];
+		int w14 = w[wi + 14], w15 = w[wi + 15];
+		int w16 = w[wi + 16], w17 = w[wi + 17], w18 = w[wi + 18], w19 = w[wi + 19], w20 = w[wi + 20], w21 = w[wi + 21];
+		int w22 = w[wi + 22], w23 = w[wi + 23];
+		int w24 = w[wi + 24], w25 = w[wi + 25], w26 = w[wi + 26], w27 = w[wi + 27], w28 = w[wi + 28], w29 = w[wi + 29];
+		int w30 = w[wi + 30], w31 = w[wi + 31];
+		out[oi] = w0; out[oi + 1] = w1; out[oi + 2] = w2; out[oi + 3] = w3;
+		out[oi + 4] = w4; out[oi + 5] = w5; out[oi + 6] = w6; out[oi + 7] = w7;
+		out[oi + 8] = w8; out[oi + 9] = w9; out[oi + 10] = w10; out[oi + 11] = w11;
+		out[oi + 12] = w12; out[oi + 13] = w13; out[oi + 14] = w14; out[oi + 15] = w15;
+		out[oi + 16] = w16; out[oi + 17] = w17; out[oi + 18] = w18; out[oi + 19] = w19;
+		out[oi + 20] = w20; out[oi + 21] = w21; out[oi + 22] = w22; out[oi + 23] = w23;
+		out[oi + 24] = w24; out[oi + 25] = w25; out[oi + 26] = w26; out[oi + 27] = w27;
+		out[oi + 28] = w28; out[oi + 29] = w29; out[oi + 30] = w30; out[oi + 31] = w31;
+	}
+}
@@ -0,0 +1,116 @@
+
+import java.nio.ByteBuffer;
+
+/**
+ * Writes a stream of bits, most significant bit first, into a ByteBuffer that grows as needed. Bits are gathered in a
+ * 64-bit accumulator and only spilled to the buffer a whole byte at a time. A writer is meant to be reset and reused
+ * rather than created anew for every posting list.
+ */
+public class BitWriter {
+
+	private ByteBuffer buffer;
+	// Pending bits, right-aligned
+	private long acc = 0;
+	private int count = 0;
+
+	public BitWriter(int capacity) {
+		buffer = ByteBuffer.allocate(capacity);
+	}
+
+	/**
+	 * Drop everything written so far
+	 */
+	public void reset() {
+		buffer.clear();
+		acc = 0;
+		count = 0;
+	}
+
+	/**
+	 * Write the lowest n bits of value
+	 *
+	 * @param value
+	 * @param n
+	 *            number of bits, at most 32
+	 */
+	public void writeBits(int value, int n) {
+		acc = (acc << n) | (value & ((1L << n) - 1));
+		count += n;
+		if (count >= 32) {
+			ensure(8);
+			while (count >= 8) {
+				count -= 8;
+				buffer.put((byte) (acc >>> count));
+			}
+		}
+	}
+
+	/**
+	 * Elias gamma code of a positive number: floor(log2 n) zeros, then n itself in binary
+	 *
+	 * @param n
+	 *            a number >= 1
+	 */
+	public void writeGamma(int n) {
+		int bits = 32 - Integer.numberOfLeadingZeros(n);
+		writeBits(0, bits - 1);
+		writeBits(n, bits);
+	}
+
+	/**
+	 * Elias delta code of a positive number: the gamma code of its length in bits, then n without its leading 1
+	 *
+	 * @param n
+	 *            a number >= 1
+	 */
+	public void writeDelta(int n) {
+		int bits = 32 - Integer.numberOfLeadingZeros(n);
+		writeGamma(bits);
+		writeBits(n, bits - 1);
+	}
+
+	/**
+	 * @return length of the gamma code of n in bits
+	 */
+	public static int gammaLength(int n) {
+		return 2 * (31 - Integer.numberOfLeadingZeros(n)) + 1;
+	}
+
+	/**
+	 * @return length of the delta code of n in bits
+	 */
+	public static int deltaLength(int n) {
+		int bits = 32 - Integer.numberOfLeadingZeros(n);
+		return gammaLength(bits) + bits - 1;
+	}
+
+	/**
+	 * Pad with zeros up to the next byte boundary and spill every pending bit to the buffer
+	 */
+	public void align() {
+		if (count % 8 != 0)
+			writeBits(0, 8 - count % 8);
+		ensure(count / 8);
+		while (count > 0) {
+			count -= 8;
+			buffer.put((byte) (acc >>> count));
+		}
+	}
+
+	/**
+	 * @return the buffer holding every whole byte written, flipped for reading. Call align() first.
+	 */
+	public ByteBuffer flip() {
+		buffer.flip();
+		return buffer;
+	}
+
+	private void ensure(int bytes) {
+		if (buffer.remaining() < bytes) {
+			ByteBuffer larger = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + bytes));
+			buffer.flip();
+			larger.put(buffer);
+			buffer = larger;
+		}
+	}
+}
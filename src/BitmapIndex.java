@@ -0,0 +1,181 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
+
+/**
+ * Wraps the codec of an index so that dense posting lists are stored as a RoaringBitmap instead. A list of at least
+ * MIN_SIZE docIds holding at least one docId in DENSITY of its range is dense: a bitmap container spends a bit per
+ * docId of its chunk, so about DENSITY bits per docId of the list, and a run container even less for runs of consecutive docIds.
+ * How that compares to the codec depends on the codec and on how much of its last chunk the list covers, so a dense
+ * list is written by the codec first, then replaced by the bitmap if that is smaller. The bitmap is read back by bulk
+ * copies with nothing to decode, and intersected with other bitmaps a word at a time (see IntersectionEngine).
+ * <br>Posting lists left to the codec are laid out as the codec lays them out. A bitmap is led by a list of the codec
+ * too: one with termId MARKER, which no term gets, holding the termId of the bitmap as its only docId. The bitmap
+ * itself follows (see RoaringBitmap.write()).
+ */
+public class BitmapIndex implements BaseIndex {
+
+	/* Lists shorter than this stay with the codec, however dense */
+	public static final int MIN_SIZE = 256;
+	/* A list is dense once its docIds are this many apart or less on average */
+	public static final int DENSITY = 8;
+
+	/* termId of the codec list leading a bitmap */
+	static final int MARKER = Integer.MAX_VALUE;
+
+	private final BaseIndex codec;
+	// Reused for every posting list read from a FileChannel, and for every bitmap written
+	private final ReadAheadBuffer readAhead = new ReadAheadBuffer(1 << 16);
+	private ByteBuffer writeBuffer = ByteBuffer.allocate(1 << 16);
+
+	public BitmapIndex(BaseIndex codec) {
+		this.codec = codec;
+	}
+
+	/**
+	 * @return an index of the given method ("Basic", "VB", "Gamma", "Delta" or "PFor"), storing dense lists as bitmaps
+	 */
+	public static BitmapIndex forMethod(String method) throws ReflectiveOperationException {
+		return new BitmapIndex((BaseIndex) Class.forName(method + "Index").getDeclaredConstructor().newInstance());
+	}
+
+	/**
+	 * @return whether p may be stored as a bitmap
+	 */
+	static boolean isDense(PostingList p) {
+		if (p.getBitmap() != null)
+			return true;
+		int size = p.size();
+		return size >= MIN_SIZE && (long) size * DENSITY >= p.last() - p.get(0) + 1;
+	}
+
+	public PostingList readPosting(FileChannel fc) {
+		try {
+			return readAhead.readPosting(this, fc);
+		} catch (IOException e) {
+			return null;
+		}
+	}
+
+	public PostingList readPosting(ByteBuffer buf) {
+		PostingList p = codec.readPosting(buf);
+		if (p.getTermId() != MARKER)
+			return p;
+		return new PostingList(p.get(0), RoaringBitmap.read(buf));
+	}
+
+	/**
+	 * Write p at the current position of fc, which must be the end of the file: a list written by the codec then
+	 * replaced by a smaller bitmap is cut off the file.
+	 */
+	public void writePosting(SeekableByteChannel fc, PostingList p) {
+		try {
+			long start = fc.position();
+			codec.writePosting(fc, p);
+			if (!isDense(p))
+				return;
+			RoaringBitmap bitmap = p.getBitmap();
+			if (bitmap == null)
+				bitmap = RoaringBitmap.of(p.toArray());
+			bitmap.runOptimize();
+			// The list leading the bitmap is written past the list of the codec first, only to know its length
+			PostingList marker = new PostingList(MARKER, new int[] { p.getTermId() });
+			long end = fc.position();
+			codec.writePosting(fc, marker);
+			int size = bitmap.serializedSize();
+			if (fc.position() - end + size >= end - start) {
+				fc.truncate(end); // the codec did better
+				return;
+			}
+			fc.position(start);
+			codec.writePosting(fc, marker);
+			if (writeBuffer.capacity() < size)
+				writeBuffer = ByteBuffer.allocate(Math.max(size, writeBuffer.capacity() * 2));
+			writeBuffer.clear();
+			bitmap.write(writeBuffer);
+			writeBuffer.flip();
+			while (writeBuffer.hasRemaining())
+				fc.write(writeBuffer);
+			fc.truncate(fc.position());
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	public PostingCursor openCursor(ByteBuffer buf, int position) {
+		PostingCursor cursor = codec.openCursor(buf, position);
+		if (cursor.getTermId() != MARKER)
+			return cursor;
+		// Read past the list leading the bitmap, it is a single docId long
+		ByteBuffer b = buf.duplicate();
+		b.position(position);
+		int termId = codec.readPosting(b).get(0);
+		return new BitmapCursor(termId, RoaringBitmap.read(b));
+	}
+
+	/**
+	 * Walks a bitmap one chunk at a time, through the words of the chunk as a bitmap. advance() jumps straight to the
+	 * chunk of its target, then to the word of its target.
+	 */
+	private static class BitmapCursor implements PostingCursor {
+
+		private final int termId, size;
+		private final RoaringBitmap bitmap;
+		private int docId = 0;
+		// Chunk the cursor is in, its upper 16 bits and its words, null until the cursor moves into it
+		private int chunk = 0, key = 0;
+		private long[] words = null;
+
+		BitmapCursor(int termId, RoaringBitmap bitmap) {
+			this.termId = termId;
+			this.size = (int) bitmap.cardinality();
+			this.bitmap = bitmap;
+		}
+
+		public int getTermId() {
+			return termId;
+		}
+
+		public int size() {
+			return size;
+		}
+
+		public int docId() {
+			return docId;
+		}
+
+		public int nextDoc() {
+			if (docId == NO_MORE_DOCS)
+				return docId;
+			return advance(docId + 1);
+		}
+
+		public int advance(int target) {
+			if (docId >= target)
+				return docId;
+			while (true) {
+				if (words == null || target >>> 16 != key) {
+					while (chunk < bitmap.chunks() && bitmap.key(chunk) < target >>> 16)
+						chunk++;
+					if (chunk == bitmap.chunks())
+						return docId = NO_MORE_DOCS;
+					key = bitmap.key(chunk);
+					words = bitmap.bits(chunk);
+					target = Math.max(target, key << 16);
+				}
+				int low = target & 0xffff, w = low >>> 6;
+				long word = words[w] & -1L << low;
+				while (word == 0 && ++w < words.length)
+					word = words[w];
+				if (word != 0)
+					return docId = key << 16 | w << 6 | Long.numberOfTrailingZeros(word);
+				// Nothing left in this chunk, go on from the start of the next one
+				if (++chunk == bitmap.chunks())
+					return docId = NO_MORE_DOCS;
+				target = bitmap.key(chunk) << 16;
+				words = null;
+			}
+		}
+	}
+}
@@ -0,0 +1,351 @@
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Ranks documents against the terms of a query under BM25 and keeps the best k, scoring as few documents as it can
+ * with block-max WAND (Ding and Suel, "Faster top-k document retrieval using block-max indexes", SIGIR 2011).
+ * <br>The k best documents so far wait in a bounded heap, whose worst score is the threshold a document has to beat to
+ * get in. Every term knows the most any document may score from it, so a document holding only terms whose bounds sum
+ * up to the threshold or less is never looked at: the term cursors, kept ordered by docId, jump straight to the first
+ * docId (the pivot) where the bounds of the terms before it get past the threshold. The frequencies of a term come in
+ * blocks (see Frequencies), each with a bound of its own, much tighter than that of the whole term. If the bounds of
+ * the blocks holding the pivot do not get past the threshold either, the cursors skip to the end of those blocks
+ * without scoring anything, and without decoding the docIds or the frequencies of the blocks they step over.
+ * <br>Ties are broken by docId, the smaller first, so the result is exactly that of scoring every document.
+ */
+public class BlockMaxWand {
+
+	/* BM25 parameters: how fast term frequency saturates, and how much document length normalizes it */
+	public static final double K1 = 1.2, B = 0.75;
+
+	private static final int NO_MORE_DOCS = PostingCursor.NO_MORE_DOCS;
+
+	/* Best first: higher score, then smaller docId */
+	private static final Comparator<Pair<Integer, Double>> BEST_FIRST = new Comparator<Pair<Integer, Double>>() {
+		@Override
+		public int compare(Pair<Integer, Double> h1, Pair<Integer, Double> h2) {
+			int cmp = Double.compare(h2.getSecond(), h1.getSecond());
+			return cmp != 0 ? cmp : Integer.compare(h1.getFirst(), h2.getFirst());
+		}
+	};
+
+	private final BinaryDictionary dict;
+	private final int docCount;
+	private final double averageLength;
+
+	/**
+	 * @param dict
+	 *            dictionaries of an index with the lengths of its documents
+	 */
+	public BlockMaxWand(BinaryDictionary dict) {
+		this.dict = dict;
+		this.docCount = dict.maxDocId();
+		this.averageLength = dict.averageDocLength();
+	}
+
+	/*
+	 * BM25 score of a term occurring freq times in a document of the given length, less the idf of the term. It grows
+	 * with freq and shrinks with length.
+	 */
+	private double bm25(int freq, int length) {
+		return freq * (K1 + 1) / (freq + K1 * (1 - B + B * length / averageLength));
+	}
+
+	/**
+	 * A query term to rank documents by: a cursor over its docIds, and the frequencies and bounds of its blocks
+	 */
+	public class Term {
+
+		private final PostingCursor cursor;
+		private final double idf, maxScore;
+		// Block b holds postings [starts[b], starts[b + 1]), the last of which is lastDocIds[b]. No document of the
+		// block scores more than bounds[b], its frequencies are at positions[b] in buffers[b], past the block header.
+		private final int[] starts, lastDocIds, positions;
+		private final double[] bounds;
+		private final ByteBuffer[] buffers;
+		// Which posting the cursor is on and the block holding it, the block the last bound was asked for, and the
+		// block freqs holds
+		private int i = 0, at = 0, block = 0, decoded = -1;
+		// Where the term is in the query, scores are summed up in this order whatever the order of the cursors
+		private int order = 0;
+		private final int[] freqs = new int[Frequencies.BLOCK_SIZE];
+
+		/**
+		 * @param cursor
+		 *            cursor over the docIds of the term in every segment, not moved yet
+		 * @param blocks
+		 *            frequencies of the term in each segment holding it (see Segment.freqs()), in the order of the
+		 *            segments
+		 * @param docFreqs
+		 *            document frequency of the term in each of those segments
+		 */
+		Term(PostingCursor cursor, List<ByteBuffer> blocks, List<Integer> docFreqs) {
+			this.cursor = cursor;
+			int n = 0;
+			for (int docFreq : docFreqs)
+				n += (docFreq + Frequencies.BLOCK_SIZE - 1) / Frequencies.BLOCK_SIZE;
+			starts = new int[n + 1];
+			lastDocIds = new int[n];
+			positions = new int[n];
+			bounds = new double[n];
+			buffers = new ByteBuffer[n];
+			idf = Math.log(1 + (docCount - cursor.size() + 0.5) / (cursor.size() + 0.5));
+			double max = 0;
+			int b = 0, start = 0;
+			for (int s = 0; s < blocks.size(); s++) {
+				ByteBuffer buf = blocks.get(s);
+				for (int end = start + docFreqs.get(s); start < end; b++) {
+					// The block header: points of (frequency, shortest length), the last docId, then the byte length of
+					// the frequencies
+					double bound = 0;
+					for (int points = VBIndex.readNumber(buf); points > 0; points--) {
+						int freq = VBIndex.readNumber(buf);
+						bound = Math.max(bound, bm25(freq, VBIndex.readNumber(buf)));
+					}
+					lastDocIds[b] = VBIndex.readNumber(buf);
+					int bytes = VBIndex.readNumber(buf);
+					starts[b] = start;
+					start = Math.min(end, start + Frequencies.BLOCK_SIZE);
+					bounds[b] = idf * bound;
+					buffers[b] = buf;
+					positions[b] = buf.position();
+					buf.position(buf.position() + bytes);
+					max = Math.max(max, bounds[b]);
+				}
+			}
+			starts[n] = start;
+			maxScore = max;
+			cursor.nextDoc();
+		}
+
+		/**
+		 * @return the docId the cursor is on, NO_MORE_DOCS once it is past the last one
+		 */
+		int docId() {
+			return cursor.docId();
+		}
+
+		void next() {
+			cursor.nextDoc();
+			if (++i == starts[at + 1])
+				at++;
+		}
+
+		/**
+		 * Move the cursor to the first docId at or past target. The cursor jumps to the start of the block that may
+		 * hold target, so that the docIds of the blocks in between are never decoded, then steps to target.
+		 */
+		void advance(int target) {
+			if (cursor.docId() >= target)
+				return;
+			int b = at;
+			while (b < lastDocIds.length && lastDocIds[b] < target)
+				b++;
+			if (b == lastDocIds.length) {
+				cursor.advance(target);
+				i = starts[at = b];
+				return;
+			}
+			if (b > at) {
+				// The first docId past the block before it is the first of the block
+				cursor.advance(lastDocIds[b - 1] + 1);
+				i = starts[at = b];
+			}
+			while (cursor.docId() < target) {
+				cursor.nextDoc();
+				i++;
+			}
+		}
+
+		/**
+		 * Move to the block that may hold target, which must not be behind the last target asked for, without moving
+		 * the cursor
+		 *
+		 * @return the most a document of that block may score, 0 past the last block
+		 */
+		double blockBound(int target) {
+			while (block < bounds.length && lastDocIds[block] < target)
+				block++;
+			return block < bounds.length ? bounds[block] : 0;
+		}
+
+		/**
+		 * @return last docId of the block blockBound() moved to
+		 */
+		int blockEnd() {
+			return block < bounds.length ? lastDocIds[block] : NO_MORE_DOCS - 1;
+		}
+
+		/**
+		 * @return the most any document may score from this term
+		 */
+		double maxScore() {
+			return maxScore;
+		}
+
+		/**
+		 * @return score of the document the cursor is on, decoding the frequencies of its block first if need be
+		 */
+		double score() {
+			if (decoded != at) {
+				decoded = at;
+				ByteBuffer buf = buffers[decoded];
+				buf.position(positions[decoded]);
+				Frequencies.decodeBlock(buf, freqs, 0, starts[decoded + 1] - starts[decoded]);
+			}
+			return idf * bm25(freqs[i - starts[decoded]], dict.docLength(cursor.docId()));
+		}
+	}
+
+	/**
+	 * Open a term over its posting list in every segment holding it
+	 *
+	 * @see Term#Term(PostingCursor, List, List)
+	 */
+	public Term term(PostingCursor cursor, List<ByteBuffer> blocks, List<Integer> docFreqs) {
+		return new Term(cursor, blocks, docFreqs);
+	}
+
+	/**
+	 * @return the k documents holding any of terms that score highest, best first, as (docId, score), leaving out
+	 *         deleted documents. The terms are used up.
+	 */
+	public List<Pair<Integer, Double>> topK(Term[] terms, int k, RoaringBitmap deleted) {
+		PriorityQueue<Pair<Integer, Double>> heap = heap(k);
+		int n = terms.length;
+		for (int t = 0; t < n; t++)
+			terms[t].order = t;
+		terms = terms.clone();
+		// Score of the pivot from each term, by order in the query, so that it is the same however cursors move
+		double[] scores = new double[n];
+		double threshold = 0;
+		while (k > 0) {
+			sortByDocId(terms);
+			// The pivot: first term whose bound, along with those of the terms before it, gets past the threshold
+			int p = -1;
+			double bound = 0;
+			for (int t = 0; t < n && terms[t].docId() != NO_MORE_DOCS; t++) {
+				if ((bound += terms[t].maxScore()) > threshold) {
+					p = t;
+					break;
+				}
+			}
+			if (p == -1)
+				break;
+			int pivot = terms[p].docId();
+			while (p + 1 < n && terms[p + 1].docId() == pivot)
+				p++;
+			// Same again with the bounds of the blocks holding the pivot
+			double blockBound = 0;
+			for (int t = 0; t <= p; t++)
+				blockBound += terms[t].blockBound(pivot);
+			if (blockBound > threshold) {
+				if (terms[0].docId() == pivot) {
+					if (!deleted.contains(pivot)) {
+						double score;
+						if (p == 0)
+							score = terms[0].score();
+						else {
+							Arrays.fill(scores, 0);
+							for (int t = 0; t <= p; t++)
+								scores[terms[t].order] = terms[t].score();
+							score = 0;
+							for (double s : scores)
+								score += s;
+						}
+						threshold = offer(heap, k, pivot, score);
+					}
+					for (int t = 0; t <= p; t++)
+						terms[t].next();
+				} else {
+					// No document before the pivot can make it, whatever its blocks
+					for (int t = 0; terms[t].docId() < pivot; t++)
+						terms[t].advance(pivot);
+				}
+			} else {
+				// Nor can any document up to the end of the first of those blocks to end, or up to the next term
+				int next = p + 1 < n ? terms[p + 1].docId() : NO_MORE_DOCS;
+				for (int t = 0; t <= p; t++)
+					next = Math.min(next, terms[t].blockEnd() + 1);
+				for (int t = 0; t <= p; t++)
+					terms[t].advance(next);
+			}
+		}
+		return sorted(heap);
+	}
+
+	/**
+	 * Same as topK(), scoring every document holding any of terms. This is what dynamic pruning saves, kept as the
+	 * baseline to compare topK() with.
+	 */
+	public List<Pair<Integer, Double>> topKExhaustive(Term[] terms, int k, RoaringBitmap deleted) {
+		PriorityQueue<Pair<Integer, Double>> heap = heap(k);
+		while (k > 0) {
+			int docId = NO_MORE_DOCS;
+			for (Term term : terms)
+				docId = Math.min(docId, term.docId());
+			if (docId == NO_MORE_DOCS)
+				break;
+			double score = 0;
+			for (Term term : terms) {
+				if (term.docId() == docId) {
+					score += term.score();
+					term.next();
+				}
+			}
+			if (!deleted.contains(docId))
+				offer(heap, k, docId, score);
+		}
+		return sorted(heap);
+	}
+
+	/*
+	 * An empty heap of at most k documents, the worst at its head
+	 */
+	private static PriorityQueue<Pair<Integer, Double>> heap(int k) {
+		return new PriorityQueue<Pair<Integer, Double>>(Math.max(1, k), Collections.reverseOrder(BEST_FIRST));
+	}
+
+	/*
+	 * Put a document in the heap if it beats the worst one there, or if the heap is not full yet
+	 *
+	 * @return the score a document must now beat to get in
+	 */
+	private static double offer(PriorityQueue<Pair<Integer, Double>> heap, int k, int docId, double score) {
+		if (heap.size() < k)
+			heap.add(new Pair<Integer, Double>(docId, score));
+		else {
+			// docIds come in order, so a document merely tying with the worst one does not get in
+			Pair<Integer, Double> worst = heap.peek();
+			if (score <= worst.getSecond() && (score < worst.getSecond() || docId > worst.getFirst()))
+				return worst.getSecond();
+			heap.poll();
+			heap.add(new Pair<Integer, Double>(docId, score));
+		}
+		return heap.size() < k ? 0 : heap.peek().getSecond();
+	}
+
+	private static List<Pair<Integer, Double>> sorted(PriorityQueue<Pair<Integer, Double>> heap) {
+		List<Pair<Integer, Double>> hits = new ArrayList<Pair<Integer, Double>>(heap);
+		Collections.sort(hits, BEST_FIRST);
+		return hits;
+	}
+
+	/*
+	 * Insertion sort by docId, the order barely changes from one step to the next
+	 */
+	private static void sortByDocId(Term[] terms) {
+		for (int t = 1; t < terms.length; t++) {
+			Term term = terms[t];
+			int docId = term.docId(), u = t - 1;
+			for (; u >= 0 && terms[u].docId() > docId; u--)
+				terms[u + 1] = terms[u];
+			terms[u + 1] = term;
+		}
+	}
+}
@@ -0,0 +1,447 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * A query made of terms combined by AND, OR and NOT, grouped with parentheses. NOT binds tightest, then AND, then OR,
+ * and terms next to each other are ANDed, so a query without operators means what it always meant. Operators are only
+ * recognized in upper case, "and" or "or" in lower case are terms like any other. Parentheses are only split off the
+ * start and the end of a word, a term such as "f(x)" stays whole.
+ * <br>A query is evaluated a document at a time. Every clause is a cursor over the docIds it matches, built over the
+ * cursors of its own clauses down to the cursors of the terms, and the docIds of the whole query come out of its
+ * cursor in increasing order. Nothing but the final result is ever collected. AND leapfrogs its clauses from the one
+ * with the fewest docIds, OR keeps its clauses in a heap by docId, and a NOT within AND advances its clause to every
+ * candidate to rule it out. The docIds left by NOT are only enumerated when NOT has nothing to be ANDed with, against
+ * every docId of the index still holding terms.
+ */
+public class BooleanQuery {
+
+	/**
+	 * Opens the cursors of the terms of a query
+	 */
+	public interface Terms {
+		/**
+		 * @return cursor over the posting list of term, null if term is not in the index
+		 */
+		public PostingCursor open(String term) throws IOException;
+	}
+
+	private static final int TERM = 0, AND = 1, OR = 2, NOT = 3;
+
+	private final int type;
+	/* The term of a TERM clause, null otherwise */
+	private final String term;
+	/* Clauses of AND and OR, or the single clause of NOT */
+	private final List<BooleanQuery> clauses;
+
+	private BooleanQuery(int type, String term, List<BooleanQuery> clauses) {
+		this.type = type;
+		this.term = term;
+		this.clauses = clauses;
+	}
+
+	/**
+	 * @return whether query holds any operator or parenthesis, otherwise it is a plain list of terms to AND
+	 */
+	public static boolean isBoolean(String query) {
+		for (String token : tokenize(query)) {
+			if (isOperator(token))
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Parse a query
+	 *
+	 * @throws IllegalArgumentException
+	 *             if the query is empty, an operator misses a clause, or parentheses do not match
+	 */
+	public static BooleanQuery parse(String query) {
+		Parser parser = new Parser(tokenize(query));
+		BooleanQuery parsed = parser.or();
+		if (parser.peek() != null)
+			throw new IllegalArgumentException("unexpected \"" + parser.peek() + "\"");
+		return parsed;
+	}
+
+	/*
+	 * Words of query, with the parentheses opening or closing them as tokens of their own
+	 */
+	private static List<String> tokenize(String query) {
+		List<String> tokens = new ArrayList<String>();
+		for (String word : query.trim().split("\\s+")) {
+			int from = 0, to = word.length(), close = 0;
+			for (; from < to && word.charAt(from) == '('; from++)
+				tokens.add("(");
+			for (; to > from && word.charAt(to - 1) == ')'; to--)
+				close++;
+			if (from < to)
+				tokens.add(word.substring(from, to));
+			for (; close > 0; close--)
+				tokens.add(")");
+		}
+		return tokens;
+	}
+
+	private static boolean isOperator(String token) {
+		return token.equals("AND") || token.equals("OR") || token.equals("NOT") || token.equals("(")
+				|| token.equals(")");
+	}
+
+	/**
+	 * Recursive descent over the tokens of a query, one method per level of precedence
+	 */
+	private static class Parser {
+
+		private final List<String> tokens;
+		private int at = 0;
+
+		Parser(List<String> tokens) {
+			this.tokens = tokens;
+		}
+
+		String peek() {
+			return at < tokens.size() ? tokens.get(at) : null;
+		}
+
+		/* clause OR clause ... */
+		BooleanQuery or() {
+			List<BooleanQuery> clauses = new ArrayList<BooleanQuery>();
+			clauses.add(and());
+			while ("OR".equals(peek())) {
+				at++;
+				clauses.add(and());
+			}
+			return clauses.size() == 1 ? clauses.get(0) : new BooleanQuery(OR, null, clauses);
+		}
+
+		/* clause [AND] clause ... */
+		BooleanQuery and() {
+			List<BooleanQuery> clauses = new ArrayList<BooleanQuery>();
+			clauses.add(not());
+			for (String token; (token = peek()) != null && !token.equals("OR") && !token.equals(")");) {
+				if (token.equals("AND"))
+					at++;
+				clauses.add(not());
+			}
+			return clauses.size() == 1 ? clauses.get(0) : new BooleanQuery(AND, null, clauses);
+		}
+
+		/* NOT clause, or a term, or a query in parentheses */
+		BooleanQuery not() {
+			String token = peek();
+			if (token == null)
+				throw new IllegalArgumentException("missing term at end of query");
+			at++;
+			if (token.equals("NOT")) {
+				BooleanQuery clause = not();
+				// NOT NOT is no NOT at all
+				return clause.type == NOT ? clause.clauses.get(0)
+						: new BooleanQuery(NOT, null, Arrays.asList(clause));
+			}
+			if (token.equals("(")) {
+				BooleanQuery clause = or();
+				if (!")".equals(peek()))
+					throw new IllegalArgumentException("missing \")\"");
+				at++;
+				return clause;
+			}
+			if (isOperator(token))
+				throw new IllegalArgumentException("missing term before \"" + token + "\"");
+			return new BooleanQuery(TERM, token, null);
+		}
+	}
+
+	/**
+	 * Evaluate the query
+	 *
+	 * @param maxDocId
+	 *            largest docId of the index, NOT stands against every docId up to maxDocId when it has nothing to be
+	 *            ANDed with
+	 * @param purged
+	 *            docIds NOT leaves out as well, those of documents whose postings are gone (see Tombstones)
+	 * @param deleted
+	 *            docIds left out of the result
+	 * @return matching docIds, in increasing order, an empty array if there are none
+	 */
+	public int[] evaluate(Terms terms, int maxDocId, RoaringBitmap purged, RoaringBitmap deleted) throws IOException {
+		PostingCursor cursor = cursor(terms, new AllDocs(maxDocId, purged));
+		PostingList result = new PostingList(0);
+		for (int docId = cursor.nextDoc(); docId != PostingCursor.NO_MORE_DOCS; docId = cursor.nextDoc()) {
+			if (!deleted.contains(docId))
+				result.add(docId);
+		}
+		return result.toArray();
+	}
+
+	/*
+	 * Cursor over the docIds this clause matches. all is never moved itself, NOT stands against copies of it.
+	 */
+	private PostingCursor cursor(Terms terms, AllDocs all) throws IOException {
+		switch (type) {
+		case TERM:
+			PostingCursor cursor = terms.open(term);
+			return cursor == null ? new ArrayCursor(-1, new int[0]) : cursor;
+		case NOT:
+			return new Conjunction(Arrays.<PostingCursor> asList(all.copy()),
+					Arrays.asList(clauses.get(0).cursor(terms, all)));
+		case OR:
+			PostingCursor[] cursors = new PostingCursor[clauses.size()];
+			for (int i = 0; i < cursors.length; i++)
+				cursors[i] = clauses.get(i).cursor(terms, all);
+			return new Disjunction(cursors);
+		default:
+			// The clauses of NOT rule candidates out, only the other clauses are searched for candidates
+			List<PostingCursor> required = new ArrayList<PostingCursor>(), excluded = new ArrayList<PostingCursor>();
+			for (BooleanQuery clause : clauses) {
+				if (clause.type == NOT)
+					excluded.add(clause.clauses.get(0).cursor(terms, all));
+				else
+					required.add(clause.cursor(terms, all));
+			}
+			if (required.isEmpty())
+				required.add(all.copy());
+			return new Conjunction(required, excluded);
+		}
+	}
+
+	/**
+	 * @return cursor over docIds, which must be sorted in increasing order
+	 */
+	public static PostingCursor cursor(int termId, int[] docIds) {
+		return new ArrayCursor(termId, docIds);
+	}
+
+	/**
+	 * Walks a sorted array of docIds, for posting lists read into memory
+	 */
+	private static class ArrayCursor implements PostingCursor {
+
+		private final int termId;
+		private final int[] docIds;
+		// Index of the current docId, -1 before the first one
+		private int i = -1;
+		private int docId = 0;
+
+		ArrayCursor(int termId, int[] docIds) {
+			this.termId = termId;
+			this.docIds = docIds;
+		}
+
+		public int getTermId() {
+			return termId;
+		}
+
+		public int size() {
+			return docIds.length;
+		}
+
+		public int docId() {
+			return docId;
+		}
+
+		public int nextDoc() {
+			return docId = ++i < docIds.length ? docIds[i] : NO_MORE_DOCS;
+		}
+
+		public int advance(int target) {
+			if (docId >= target)
+				return docId;
+			// Double the step until we pass a docId >= target, then binary search [lo, hi) as BasicCursor does
+			int lo = i + 1, hi = lo, step = 1;
+			while (hi < docIds.length && docIds[hi] < target) {
+				lo = hi + 1;
+				hi = lo + step;
+				step <<= 1;
+			}
+			int at = Arrays.binarySearch(docIds, lo, Math.min(hi, docIds.length), target);
+			i = at >= 0 ? at : -at - 1;
+			return docId = i < docIds.length ? docIds[i] : NO_MORE_DOCS;
+		}
+	}
+
+	/**
+	 * Every docId from 1 to maxDocId but the purged ones, what NOT rules docIds out of when it has nothing else to AND
+	 */
+	private static class AllDocs implements PostingCursor {
+
+		private final int maxDocId;
+		private final RoaringBitmap purged;
+		private int docId = 0;
+
+		AllDocs(int maxDocId, RoaringBitmap purged) {
+			this.maxDocId = maxDocId;
+			this.purged = purged;
+		}
+
+		/* A fresh cursor over the same docIds */
+		AllDocs copy() {
+			return new AllDocs(maxDocId, purged);
+		}
+
+		public int getTermId() {
+			return -1;
+		}
+
+		public int size() {
+			return Math.max(maxDocId, 0);
+		}
+
+		public int docId() {
+			return docId;
+		}
+
+		public int nextDoc() {
+			return docId == NO_MORE_DOCS ? docId : advance(docId + 1);
+		}
+
+		public int advance(int target) {
+			if (docId >= target)
+				return docId;
+			while (target <= maxDocId && purged.contains(target))
+				target++;
+			return docId = target > maxDocId ? NO_MORE_DOCS : target;
+		}
+	}
+
+	/**
+	 * docIds of every required cursor that no excluded cursor holds. The required cursor with the fewest docIds leads:
+	 * every other required cursor advances to its docId, and whenever one overshoots, the lead advances to that docId
+	 * instead, as Query.retrieveMapped() does. A candidate found in all of them is then looked up in every excluded
+	 * cursor, which only ever moves forward, so an excluded list is stepped over rather than walked.
+	 */
+	private static class Conjunction implements PostingCursor {
+
+		private final PostingCursor lead;
+		private final PostingCursor[] others, excluded;
+		private int docId = 0;
+
+		Conjunction(List<PostingCursor> required, List<PostingCursor> excluded) {
+			PostingCursor[] cursors = required.toArray(new PostingCursor[required.size()]);
+			Arrays.sort(cursors, new Comparator<PostingCursor>() {
+				@Override
+				public int compare(PostingCursor c1, PostingCursor c2) {
+					return Integer.compare(c1.size(), c2.size());
+				}
+			});
+			this.lead = cursors[0];
+			this.others = Arrays.copyOfRange(cursors, 1, cursors.length);
+			this.excluded = excluded.toArray(new PostingCursor[excluded.size()]);
+		}
+
+		public int getTermId() {
+			return -1;
+		}
+
+		public int size() {
+			return lead.size();
+		}
+
+		public int docId() {
+			return docId;
+		}
+
+		public int nextDoc() {
+			return docId == NO_MORE_DOCS ? docId : search(lead.nextDoc());
+		}
+
+		public int advance(int target) {
+			if (docId >= target)
+				return docId;
+			return search(lead.advance(target));
+		}
+
+		/*
+		 * First match at or after candidate, a docId of lead
+		 */
+		private int search(int candidate) {
+			search: while (candidate != NO_MORE_DOCS) {
+				for (PostingCursor other : others) {
+					int at = other.advance(candidate);
+					if (at != candidate) {
+						candidate = lead.advance(at);
+						continue search;
+					}
+				}
+				for (PostingCursor cursor : excluded) {
+					if (cursor.advance(candidate) == candidate) {
+						candidate = lead.nextDoc();
+						continue search;
+					}
+				}
+				break;
+			}
+			return docId = candidate;
+		}
+	}
+
+	/**
+	 * docIds of any of several cursors. The cursors are kept in a binary heap by their current docId, so the next docId
+	 * is always at the top. Moving on pulls every cursor on the current docId forward and sifts it down; a cursor that
+	 * runs out leaves the heap.
+	 */
+	private static class Disjunction implements PostingCursor {
+
+		private final PostingCursor[] heap;
+		private int n, size = 0, docId = 0;
+
+		Disjunction(PostingCursor[] cursors) {
+			// Every cursor starts before its first docId, on 0, which already makes a heap
+			this.heap = cursors;
+			this.n = cursors.length;
+			for (PostingCursor cursor : cursors)
+				size = (int) Math.min(Integer.MAX_VALUE, (long) size + cursor.size());
+		}
+
+		public int getTermId() {
+			return -1;
+		}
+
+		/* At most, docIds held by several cursors count once */
+		public int size() {
+			return size;
+		}
+
+		public int docId() {
+			return docId;
+		}
+
+		public int nextDoc() {
+			if (docId == NO_MORE_DOCS)
+				return docId;
+			// Cursors never stand behind docId, those on it are the ones to pull
+			while (n > 0 && heap[0].docId() <= docId)
+				pull(heap[0].nextDoc());
+			return docId = n == 0 ? NO_MORE_DOCS : heap[0].docId();
+		}
+
+		public int advance(int target) {
+			if (docId >= target)
+				return docId;
+			while (n > 0 && heap[0].docId() < target)
+				pull(heap[0].advance(target));
+			return docId = n == 0 ? NO_MORE_DOCS : heap[0].docId();
+		}
+
+		/*
+		 * Restore the heap once the cursor at the top moved to docId
+		 */
+		private void pull(int docId) {
+			if (docId == NO_MORE_DOCS)
+				heap[0] = heap[--n];
+			PostingCursor cursor = heap[0];
+			int i = 0;
+			for (int child; (child = 2 * i + 1) < n; i = child) {
+				if (child + 1 < n && heap[child + 1].docId() < heap[child].docId())
+					child++;
+				if (heap[child].docId() >= cursor.docId())
+					break;
+				heap[i] = heap[child];
+			}
+			heap[i] = cursor;
+		}
+	}
+}
@@ -0,0 +1,128 @@
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Encode and decode throughput of every codec over synthetic posting lists, counted in docIds per second. Gaps are
+ * drawn from three distributions: dense (gaps of 1 to 4, frequent terms), geometric (mean gap of 32) and sparse
+ * (log-uniform gaps up to 2^20, rare terms). Encoding goes through writePosting() into a scratch file like the indexer
+ * does, decoding through readPosting(ByteBuffer) from memory.
+ */
+public class CodecBenchmark {
+
+	static final String[] CODECS = { "Basic", "VB", "Gamma", "Delta", "PFor" };
+	static final String[] GAPS = { "dense", "geometric", "sparse" };
+
+	/* Shape of the synthetic posting lists */
+	static final int LISTS = 64, LIST_SIZE = 4096;
+
+	/**
+	 * @return a gap >= 1 drawn from the named distribution
+	 */
+	static int gap(String distribution, Random random) {
+		switch (distribution) {
+		case "dense":
+			return 1 + random.nextInt(4);
+		case "geometric":
+			return 1 + (int) (Math.log(1 - random.nextDouble()) / Math.log(1 - 1 / 32.0));
+		case "sparse":
+			return 1 + (int) Math.pow(2, random.nextDouble() * 20);
+		default:
+			throw new IllegalArgumentException("Unknown gap distribution: " + distribution);
+		}
+	}
+
+	/**
+	 * @return LISTS posting lists of LIST_SIZE docIds, always the same for a distribution
+	 */
+	static PostingList[] postings(String distribution) {
+		Random random = new Random(distribution.hashCode());
+		PostingList[] postings = new PostingList[LISTS];
+		for (int t = 0; t < LISTS; t++) {
+			int[] docIds = new int[LIST_SIZE];
+			for (int i = 0, last = 0; i < LIST_SIZE; i++)
+				docIds[i] = last += gap(distribution, random);
+			postings[t] = new PostingList(t + 1, docIds);
+		}
+		return postings;
+	}
+
+	private static BaseIndex codec(String name) throws Exception {
+		return (BaseIndex) Class.forName(name + "Index").getDeclaredConstructor().newInstance();
+	}
+
+	static List<Microbenchmark.Workload> workloads() {
+		List<Microbenchmark.Workload> workloads = new ArrayList<Microbenchmark.Workload>();
+		for (final String codec : CODECS) {
+			for (final String distribution : GAPS) {
+				workloads.add(new Microbenchmark.Workload("codec.encode." + codec + "." + distribution, "docIds") {
+					private BaseIndex index;
+					private PostingList[] postings;
+					private File file;
+					private RandomAccessFile raf;
+					private FileChannel fc;
+
+					@Override
+					protected void setUp() throws Exception {
+						index = codec(codec);
+						postings = postings(distribution);
+						file = File.createTempFile("encode", ".index");
+						raf = new RandomAccessFile(file, "rw");
+						fc = raf.getChannel();
+					}
+
+					@Override
+					protected long run() throws Exception {
+						fc.position(0);
+						for (PostingList p : postings)
+							index.writePosting(fc, p);
+						sink = fc.position();
+						return LISTS * LIST_SIZE;
+					}
+
+					@Override
+					protected void tearDown() throws Exception {
+						raf.close();
+						file.delete();
+					}
+				});
+				workloads.add(new Microbenchmark.Workload("codec.decode." + codec + "." + distribution, "docIds") {
+					private BaseIndex index;
+					private ByteBuffer encoded;
+
+					@Override
+					protected void setUp() throws Exception {
+						index = codec(codec);
+						File file = File.createTempFile("decode", ".index");
+						RandomAccessFile raf = new RandomAccessFile(file, "rw");
+						FileChannel fc = raf.getChannel();
+						for (PostingList p : postings(distribution))
+							index.writePosting(fc, p);
+						encoded = ByteBuffer.allocate((int) fc.size());
+						fc.read(encoded, 0);
+						encoded.flip();
+						raf.close();
+						file.delete();
+					}
+
+					@Override
+					protected long run() {
+						encoded.position(0);
+						long docIds = 0;
+						while (encoded.hasRemaining()) {
+							PostingList p = index.readPosting(encoded);
+							docIds += p.size();
+							sink = p;
+						}
+						return docIds;
+					}
+				});
+			}
+		}
+		return workloads;
+	}
+}
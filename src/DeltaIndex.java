@@ -0,0 +1,22 @@
+
+/**
+ * Elias delta coded posting lists, laid out exactly like GammaIndex. Delta codes are longer than gamma codes for small
+ * numbers but grow only logarithmically in the length of a number, which pays off on the large gaps of rare terms.
+ */
+public class DeltaIndex extends GammaIndex {
+
+	@Override
+	protected void writeCode(BitWriter w, int n) {
+		w.writeDelta(n);
+	}
+
+	@Override
+	protected int readCode(BitReader r) {
+		return r.readDelta();
+	}
+
+	@Override
+	protected int codeLength(int n) {
+		return BitWriter.deltaLength(n);
+	}
+}
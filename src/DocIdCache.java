@@ -0,0 +1,123 @@
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Sorted docId lists kept in memory by key, up to a budget in bytes. Each list weighs what its int[] takes on the heap,
+ * so one frequent term may take the room of thousands of rare ones. When the budget is exceeded, the least recently
+ * used lists are evicted first. A list larger than the whole budget is never cached.
+ * <br>Lists are only valid for the index they were read from: a cache is bound to an index generation, and moving it
+ * to another generation empties it.
+ * <br>All methods are synchronized, so a cache can be shared by every thread of a QueryServer. Cached arrays are
+ * shared too, and must not be modified.
+ */
+public class DocIdCache<K> {
+
+	// Heap size of an int[] header, added to 4 bytes per docId
+	private static final int ARRAY_OVERHEAD = 16;
+
+	private final long budget;
+	private long weight = 0;
+	// In access order, least recently used first
+	private final LinkedHashMap<K, int[]> lists = new LinkedHashMap<K, int[]>(16, 0.75f, true);
+	private long hits = 0, misses = 0, evictions = 0;
+	private long generation = 0;
+
+	/**
+	 * @param budget
+	 *            most bytes the cached lists may weigh in total
+	 */
+	public DocIdCache(long budget) {
+		this.budget = budget;
+	}
+
+	private static long weigh(int[] docIds) {
+		return ARRAY_OVERHEAD + 4L * docIds.length;
+	}
+
+	/**
+	 * Bind the cache to an index generation, dropping every list if it was bound to another one
+	 */
+	public synchronized void setGeneration(long generation) {
+		if (generation != this.generation) {
+			lists.clear();
+			weight = 0;
+			this.generation = generation;
+		}
+	}
+
+	/**
+	 * @return docIds of key, or null if they are not cached
+	 */
+	public synchronized int[] get(K key) {
+		int[] docIds = lists.get(key);
+		if (docIds == null)
+			misses++;
+		else
+			hits++;
+		return docIds;
+	}
+
+	/*
+	 * Same as get(), without counting a hit or miss, for lookups that are only probes
+	 */
+	protected synchronized int[] peek(K key) {
+		return lists.get(key);
+	}
+
+	/*
+	 * Count a hit or miss for a lookup made of probes
+	 */
+	protected synchronized void count(boolean hit) {
+		if (hit)
+			hits++;
+		else
+			misses++;
+	}
+
+	/**
+	 * Cache docIds of key, evicting the least recently used lists as needed to stay within the budget
+	 */
+	public synchronized void put(K key, int[] docIds) {
+		long w = weigh(docIds);
+		if (w > budget)
+			return;
+		int[] previous = lists.put(key, docIds);
+		if (previous != null)
+			weight -= weigh(previous);
+		weight += w;
+		Iterator<Map.Entry<K, int[]>> eldest = lists.entrySet().iterator();
+		while (weight > budget) {
+			weight -= weigh(eldest.next().getValue());
+			eldest.remove();
+			evictions++;
+		}
+	}
+
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	public synchronized long getEvictions() {
+		return evictions;
+	}
+
+	/**
+	 * @return bytes the cached lists weigh
+	 */
+	public synchronized long getWeight() {
+		return weight;
+	}
+
+	public synchronized String toString() {
+		long lookups = hits + misses;
+		return String.format(Locale.ROOT, "%d lists, %.1f of %.1f MBs, %d hits, %d misses (%.1f%% hit rate), %d evictions",
+				lists.size(), weight / 1048576.0, budget / 1048576.0, hits, misses, lookups == 0 ? 0 : 100.0 * hits
+						/ lookups, evictions);
+	}
+}
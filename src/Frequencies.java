@@ -0,0 +1,145 @@
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+import java.util.Arrays;
+
+/**
+ * Term frequencies of a posting list, in the order of its docIds, Variable Byte coded in blocks of BLOCK_SIZE. A block
+ * starts with a header: the number of points that follow, the points, the last docId of the block, then the byte
+ * length of the frequencies of the block. A point is a frequency f along with the length of the shortest document of
+ * the block where the term occurs at least f times. Only points no other point beats on both counts are kept, highest
+ * frequency first, usually a handful.
+ * <br>A score that grows with frequency and shrinks with document length is never higher in the block than at one of
+ * its points, whatever the parameters of the score, so the header alone tells the most any document of the block may
+ * score. Ranking steps over blocks that cannot win anything without decoding them, nor the docIds they cover, which it
+ * knows the last of (see BlockMaxWand).
+ * <br>Like positions, the frequencies of a posting list are kept in a file of their own next to the index file, and
+ * written out as the byte length of all the blocks, then the blocks. Runs, which are only ever merged, have no points.
+ */
+public class Frequencies {
+
+	/* Number of postings covered by a block, the last block of a posting list may hold fewer */
+	public static final int BLOCK_SIZE = 128;
+
+	private static final int[] NO_POINTS = new int[0];
+	/* Blocks whose frequencies all stay within this are worked out without sorting */
+	private static final int MAX_BUCKETS = 1024;
+
+	/**
+	 * Write the frequencies of posting at the current position of fc
+	 *
+	 * @param lengths
+	 *            length of every document, indexed by docId, for the points of the blocks, null to leave them out
+	 */
+	public static void write(SeekableByteChannel fc, PostingList posting, int[] lengths) throws IOException {
+		int[] docIds = posting.getArray(), freqs = posting.getFreqs();
+		int n = posting.size(), blocks = (n + BLOCK_SIZE - 1) / BLOCK_SIZE, size = 0;
+		int[][] points = new int[blocks][];
+		int[] bytes = new int[blocks];
+		for (int b = 0; b < blocks; b++) {
+			int from = b * BLOCK_SIZE, to = Math.min(n, from + BLOCK_SIZE);
+			points[b] = lengths == null ? NO_POINTS : points(docIds, freqs, from, to, lengths);
+			size += VBIndex.numberLength(points[b].length / 2);
+			for (int point : points[b])
+				size += VBIndex.numberLength(point);
+			size += VBIndex.numberLength(docIds[to - 1]);
+			for (int i = from; i < to; i++)
+				bytes[b] += VBIndex.numberLength(freqs[i]);
+			size += VBIndex.numberLength(bytes[b]) + bytes[b];
+		}
+		ByteBuffer out = ByteBuffer.allocate(VBIndex.numberLength(size) + size);
+		VBIndex.writeNumber(out, size);
+		for (int b = 0; b < blocks; b++) {
+			VBIndex.writeNumber(out, points[b].length / 2);
+			for (int point : points[b])
+				VBIndex.writeNumber(out, point);
+			VBIndex.writeNumber(out, docIds[Math.min(n, (b + 1) * BLOCK_SIZE) - 1]);
+			VBIndex.writeNumber(out, bytes[b]);
+			for (int i = b * BLOCK_SIZE; i < Math.min(n, (b + 1) * BLOCK_SIZE); i++)
+				VBIndex.writeNumber(out, freqs[i]);
+		}
+		out.flip();
+		while (out.hasRemaining())
+			fc.write(out);
+	}
+
+	/*
+	 * Points of the block of docIds[from, to), as frequency, length, frequency, length..., highest frequency first
+	 */
+	private static int[] points(int[] docIds, int[] freqs, int from, int to, int[] lengths) {
+		int maxFreq = 0;
+		for (int i = from; i < to; i++)
+			maxFreq = Math.max(maxFreq, freqs[i]);
+		int[] points = new int[2 * (to - from)];
+		int n = 0;
+		if (maxFreq <= MAX_BUCKETS) {
+			// Shortest document for every frequency, then the points from the highest frequency down
+			int[] shortest = new int[maxFreq + 1];
+			Arrays.fill(shortest, Integer.MAX_VALUE);
+			for (int i = from; i < to; i++)
+				shortest[freqs[i]] = Math.min(shortest[freqs[i]], lengths[docIds[i]]);
+			for (int freq = maxFreq; freq > 0; freq--) {
+				if (shortest[freq] < (n == 0 ? Integer.MAX_VALUE : points[n - 1])) {
+					points[n++] = freq;
+					points[n++] = shortest[freq];
+				}
+			}
+			return Arrays.copyOf(points, n);
+		}
+		// Postings by frequency then length, both packed into a long, the same walk over them from the end
+		long[] postings = new long[to - from];
+		for (int i = from; i < to; i++)
+			postings[i - from] = (long) freqs[i] << 32 | lengths[docIds[i]];
+		Arrays.sort(postings);
+		for (int i = postings.length - 1; i >= 0; i--) {
+			int freq = (int) (postings[i] >>> 32), length = (int) postings[i];
+			// Lengths of a frequency come in descending order, the shortest last
+			if ((i == 0 || (int) (postings[i - 1] >>> 32) != freq) && (n == 0 || length < points[n - 1])) {
+				points[n++] = freq;
+				points[n++] = length;
+			}
+		}
+		return Arrays.copyOf(points, n);
+	}
+
+	/**
+	 * Read the frequencies of a posting list of n docIds written by write() at the current position of buf, leaving buf
+	 * positioned after them
+	 */
+	public static int[] read(ByteBuffer buf, int n) {
+		int end = VBIndex.readNumber(buf);
+		end += buf.position();
+		if (end > buf.limit())
+			throw new BufferUnderflowException();
+		int[] freqs = new int[n];
+		for (int from = 0; from < n; from += BLOCK_SIZE) {
+			for (int points = 2 * VBIndex.readNumber(buf); points > 0; points--)
+				VBIndex.readNumber(buf);
+			VBIndex.readNumber(buf); // last docId
+			VBIndex.readNumber(buf); // byte length
+			decodeBlock(buf, freqs, from, Math.min(n, from + BLOCK_SIZE));
+		}
+		buf.position(end);
+		return freqs;
+	}
+
+	/**
+	 * @return the blocks of frequencies written by write() at position of buf, without copying them
+	 */
+	public static ByteBuffer blocks(ByteBuffer buf, int position) {
+		ByteBuffer blocks = buf.duplicate();
+		blocks.position(position);
+		int length = VBIndex.readNumber(blocks);
+		blocks.limit(blocks.position() + length);
+		return blocks.slice();
+	}
+
+	/**
+	 * Decode the frequencies of a block, past its header, into out[from, to), leaving in positioned after them
+	 */
+	public static void decodeBlock(ByteBuffer in, int[] out, int from, int to) {
+		for (int i = from; i < to; i++)
+			out[i] = VBIndex.readNumber(in);
+	}
+}
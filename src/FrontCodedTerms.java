@@ -0,0 +1,183 @@
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A front-coded term -> termId dictionary, read in place from a (mapped) ByteBuffer.
+ *
+ * Terms are sorted by their UTF-8 bytes and cut into blocks of BLOCK_SIZE terms. The first term of a block is stored in
+ * full, every other term only as the length of the prefix it shares with the term before it, followed by the rest of
+ * its bytes. Neighbouring terms in sorted order share long prefixes, so this takes a fraction of the space of storing
+ * every term, let alone of a TreeMap entry per term. A lookup binary searches the first terms of the blocks, then
+ * decodes a single block. Terms sharing a prefix are next to each other, so enumerating them is a scan from the block
+ * the prefix would be in.
+ *
+ * Layout: number of terms, number of blocks, the offset of every block from the end of the offsets (ints), then the
+ * blocks. A term is the shared prefix length, the suffix length, the suffix bytes and the termId, all numbers being
+ * Variable Byte encoded like VBIndex does.
+ */
+public class FrontCodedTerms {
+
+	/* Number of terms per block */
+	public static final int BLOCK_SIZE = 16;
+
+	private final ByteBuffer buf;
+	private final int termCount, blockCount;
+	// Absolute offset of the first block
+	private final int data;
+
+	public FrontCodedTerms(ByteBuffer buf) {
+		this.buf = buf;
+		this.termCount = buf.getInt(0);
+		this.blockCount = buf.getInt(4);
+		this.data = 8 + 4 * blockCount;
+	}
+
+	public int size() {
+		return termCount;
+	}
+
+	/**
+	 * @return termId of a term, or -1 if the term is not in the dictionary
+	 */
+	public int termId(String term) {
+		byte[] key = term.getBytes(StandardCharsets.UTF_8);
+		int block = findBlock(key);
+		if (block < 0)
+			return -1;
+		Scan scan = new Scan(block);
+		while (scan.next()) {
+			int cmp = BinaryDictionary.compareBytes(scan.term, scan.length, key);
+			if (cmp == 0)
+				return scan.termId;
+			if (cmp > 0)
+				break;
+		}
+		return -1;
+	}
+
+	/**
+	 * Enumerate every term starting with prefix, in sorted order
+	 *
+	 * @return (term, termId) pairs
+	 */
+	public List<Pair<String, Integer>> withPrefix(String prefix) {
+		byte[] key = prefix.getBytes(StandardCharsets.UTF_8);
+		List<Pair<String, Integer>> result = new ArrayList<Pair<String, Integer>>();
+		Scan scan = new Scan(Math.max(0, findBlock(key)));
+		while (scan.next()) {
+			if (scan.length >= key.length
+					&& BinaryDictionary.compareBytes(scan.term, key.length, key) == 0)
+				result.add(Pair.make(new String(scan.term, 0, scan.length, StandardCharsets.UTF_8), scan.termId));
+			else if (BinaryDictionary.compareBytes(scan.term, scan.length, key) > 0)
+				break; // past every term starting with prefix
+		}
+		return result;
+	}
+
+	/*
+	 * Binary search the last block whose first term is <= key, -1 if key comes before every term
+	 */
+	private int findBlock(byte[] key) {
+		int lo = 0, hi = blockCount - 1, found = -1;
+		int[] at = new int[1];
+		while (lo <= hi) {
+			int mid = (lo + hi) >>> 1;
+			at[0] = data + buf.getInt(8 + 4 * mid);
+			readNumber(buf, at); // shared prefix length, always 0 for the first term of a block
+			int length = readNumber(buf, at);
+			int cmp = BinaryDictionary.compare(buf, at[0], at[0] + length, key);
+			if (cmp <= 0) {
+				found = mid;
+				lo = mid + 1;
+			} else
+				hi = mid - 1;
+		}
+		return found;
+	}
+
+	/*
+	 * Decode a Variable Byte encoded number at at[0], moving at[0] past it
+	 */
+	private static int readNumber(ByteBuffer buf, int[] at) {
+		int n = 0, b;
+		while ((b = buf.get(at[0]++) & 0xff) < 128)
+			n = 128 * n + b;
+		return 128 * n + (b - 128);
+	}
+
+	/**
+	 * Walks terms in sorted order from the start of a block, rebuilding each term in a scratch array. A Scan belongs to
+	 * a single lookup, so any number of threads may look terms up at once.
+	 */
+	private class Scan {
+
+		private final int[] at = new int[1];
+		// Number of terms left before the end of the dictionary
+		private int left;
+		byte[] term = new byte[64];
+		int length = 0, termId;
+
+		Scan(int block) {
+			at[0] = data + buf.getInt(8 + 4 * block);
+			left = termCount - block * BLOCK_SIZE;
+		}
+
+		boolean next() {
+			if (left-- == 0)
+				return false;
+			int shared = readNumber(buf, at);
+			int suffix = readNumber(buf, at);
+			length = shared + suffix;
+			if (term.length < length)
+				term = Arrays.copyOf(term, Math.max(length, term.length * 2));
+			for (int i = shared; i < length; i++)
+				term[i] = buf.get(at[0]++);
+			termId = readNumber(buf, at);
+			return true;
+		}
+	}
+
+	/**
+	 * Write terms, already sorted by their UTF-8 bytes, with their termIds
+	 */
+	public static void write(DataOutputStream out, byte[][] terms, int[] termIds) throws IOException {
+		int n = terms.length, blocks = (n + BLOCK_SIZE - 1) / BLOCK_SIZE;
+		ByteBuffer encoded = ByteBuffer.allocate(1 << 16);
+		int[] offsets = new int[blocks];
+		byte[] previous = new byte[0];
+		for (int i = 0; i < n; i++) {
+			byte[] term = terms[i];
+			int shared = 0;
+			if (i % BLOCK_SIZE == 0)
+				offsets[i / BLOCK_SIZE] = encoded.position();
+			else {
+				int max = Math.min(previous.length, term.length);
+				while (shared < max && previous[shared] == term[shared])
+					shared++;
+			}
+			if (encoded.remaining() < 15 + term.length) {
+				ByteBuffer larger = ByteBuffer.allocate(Math.max(encoded.capacity() * 2, encoded.position() + 15
+						+ term.length));
+				encoded.flip();
+				larger.put(encoded);
+				encoded = larger;
+			}
+			VBIndex.writeNumber(encoded, shared);
+			VBIndex.writeNumber(encoded, term.length - shared);
+			encoded.put(term, shared, term.length - shared);
+			VBIndex.writeNumber(encoded, termIds[i]);
+			previous = term;
+		}
+		out.writeInt(n);
+		out.writeInt(blocks);
+		for (int offset : offsets)
+			out.writeInt(offset);
+		out.write(encoded.array(), 0, encoded.position());
+	}
+}
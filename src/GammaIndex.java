@@ -1,15 +1,204 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
 
+/**
+ * Elias gamma coded posting lists.
+ * <br>A posting list is a single bit stream: termId, docFreq, then the docId gaps, padded with zeros to the next byte
+ * boundary. When docFreq exceeds SKIP_INTERVAL, every block of SKIP_INTERVAL gaps is preceded by a skip entry: the
+ * last docId of the block and the length of the block in bits, just like VBIndex does with bytes. Every number is
+ * coded with the same code, which subclasses may change (see DeltaIndex).
+ */
 public class GammaIndex implements BaseIndex {
 
+	/* A posting list longer than this is split into blocks of SKIP_INTERVAL gaps, each led by a skip entry */
+	static final int SKIP_INTERVAL = VBIndex.SKIP_INTERVAL;
+
+	// Reused for every posting list read from a FileChannel, and for every posting list written
+	private final ReadAheadBuffer readAhead = new ReadAheadBuffer(1 << 16);
+	private final BitWriter writer = new BitWriter(1 << 16);
+
+	/**
+	 * Write a number >= 1 with the code of this index
+	 */
+	protected void writeCode(BitWriter w, int n) {
+		w.writeGamma(n);
+	}
+
+	/**
+	 * Read a number written by writeCode()
+	 */
+	protected int readCode(BitReader r) {
+		return r.readGamma();
+	}
+
+	/**
+	 * @return length in bits of n written by writeCode()
+	 */
+	protected int codeLength(int n) {
+		return BitWriter.gammaLength(n);
+	}
+
+	/**
+	 * Read the posting list at the current position of fc. Bytes are read ahead in large chunks and decoded by
+	 * readPosting(ByteBuffer), fc is left positioned right after the posting list.
+	 */
 	public PostingList readPosting(FileChannel fc) {
-		// TODO Auto-generated method stub
-		return null;
+		try {
+			return readAhead.readPosting(this, fc);
+		} catch (IOException e) {
+			return null;
+		}
 	}
 
-	public void writePosting(FileChannel fc, PostingList p) {
-		// TODO Auto-generated method stub
-		
+	public PostingList readPosting(ByteBuffer buf) {
+		BitReader r = new BitReader(buf, buf.position());
+		int termId = readCode(r);
+		int docFreq = readCode(r);
+		int[] docIds = new int[docFreq];
+		boolean skips = docFreq > SKIP_INTERVAL;
+		int last = 0;
+		for (int i = 0; i < docFreq; i++) {
+			if (skips && i % SKIP_INTERVAL == 0) {
+				// Skip entries are only useful to cursors, we are decoding every block anyway
+				readCode(r);
+				readCode(r);
+			}
+			docIds[i] = last += readCode(r);
+		}
+		r.align();
+		buf.position(r.position());
+		return new PostingList(termId, docIds);
 	}
 
+	public void writePosting(SeekableByteChannel fc, PostingList p) {
+		int size = p.size();
+		int[] docIds = p.getArray();
+		writer.reset();
+		writeCode(writer, p.getTermId());
+		writeCode(writer, size);
+		if (size <= SKIP_INTERVAL) {
+			for (int i = 0, last = 0; i < size; last = docIds[i++])
+				writeCode(writer, docIds[i] - last);
+		} else {
+			for (int from = 0; from < size; from += SKIP_INTERVAL) {
+				int to = Math.min(from + SKIP_INTERVAL, size);
+				int base = from == 0 ? 0 : docIds[from - 1];
+				// The skip entry needs the length of the block before it is written
+				int bits = 0;
+				for (int i = from, last = base; i < to; last = docIds[i++])
+					bits += codeLength(docIds[i] - last);
+				writeCode(writer, docIds[to - 1]);
+				writeCode(writer, bits);
+				for (int i = from, last = base; i < to; last = docIds[i++])
+					writeCode(writer, docIds[i] - last);
+			}
+		}
+		writer.align();
+		ByteBuffer buffer = writer.flip();
+		try {
+			while (buffer.hasRemaining())
+				fc.write(buffer);
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	public PostingCursor openCursor(ByteBuffer buf, int position) {
+		return new GammaCursor(buf, position);
+	}
+
+	/**
+	 * Decodes at most SKIP_INTERVAL docIds ahead of the caller into a small reusable array. advance() jumps over whole
+	 * blocks through their skip entries without decoding them.
+	 */
+	private class GammaCursor implements PostingCursor {
+
+		private final BitReader r;
+		private final int termId;
+		private final int size;
+		// Whether blocks are led by skip entries
+		private final boolean skips;
+		// Number of docIds not yet decoded into block
+		private int remaining;
+		private final int[] block = new int[SKIP_INTERVAL];
+		private int blockSize = 0, i = 0;
+		// Last docId of the block before the next one, the base its first gap is taken from
+		private int base = 0;
+		// Skip entry of the next block, once it has been read
+		private boolean entryRead = false;
+		private int entryLast, entryBits;
+		private int docId = 0;
+
+		GammaCursor(ByteBuffer buf, int position) {
+			r = new BitReader(buf, position);
+			termId = readCode(r);
+			remaining = size = readCode(r);
+			skips = size > SKIP_INTERVAL;
+		}
+
+		private void readEntry() {
+			if (!entryRead) {
+				entryLast = readCode(r);
+				entryBits = readCode(r);
+				entryRead = true;
+			}
+		}
+
+		public int getTermId() {
+			return termId;
+		}
+
+		public int size() {
+			return size;
+		}
+
+		public int docId() {
+			return docId;
+		}
+
+		public int nextDoc() {
+			if (i == blockSize) {
+				if (remaining == 0)
+					return docId = NO_MORE_DOCS;
+				if (skips) {
+					readEntry();
+					entryRead = false;
+				}
+				// Decode the next block, turning gaps back into docIds as we go
+				blockSize = Math.min(remaining, SKIP_INTERVAL);
+				remaining -= blockSize;
+				int last = base;
+				for (int k = 0; k < blockSize; k++)
+					block[k] = last += readCode(r);
+				base = last;
+				i = 0;
+			}
+			return docId = block[i++];
+		}
+
+		public int advance(int target) {
+			if (docId >= target)
+				return docId;
+			if (skips) {
+				// Nothing left in the decoded block can reach target
+				if (blockSize > 0 && block[blockSize - 1] < target)
+					i = blockSize;
+				// Jump over every encoded block whose last docId is still below target
+				while (i == blockSize && remaining > 0) {
+					readEntry();
+					if (entryLast >= target)
+						break; // this block holds target, let nextDoc() decode it
+					r.skip(entryBits);
+					entryRead = false;
+					remaining -= Math.min(remaining, SKIP_INTERVAL);
+					base = entryLast;
+				}
+			}
+			while (docId < target)
+				nextDoc();
+			return docId;
+		}
+	}
 }
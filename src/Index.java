@@ -9,30 +9,50 @@
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileReader;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
 import java.io.RandomAccessFile;
-import java.nio.channels.FileChannel;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
-import java.util.TreeMap;
-import java.util.Vector;
+import java.util.PriorityQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 public class Index {
 
-	// Term id -> (position in index file, doc frequency) dictionary
-	private static Map<Integer, Pair<Long, Integer>> postingDict = new TreeMap<Integer, Pair<Long, Integer>>();
-	// Doc name -> doc id dictionary
-	private static Map<String, Integer> docDict = new TreeMap<String, Integer>();
-	// Term -> term id dictionary
-	private static Map<String, Integer> termDict = new TreeMap<String, Integer>();
+	/*
+	 * Posting dictionary, dense by termId: position of the posting list of a term in the index file, and its doc
+	 * frequency, 0 for a termId without a posting list in the index file
+	 */
+	private static long[] postingPositions = new long[0];
+	private static int[] postingSizes = new int[0];
+	// Term id -> position of its positions in the positions file, when indexing positions
+	private static long[] positionsDict = new long[0];
+	// Term id -> position of its term frequencies in the frequencies file, when indexing them
+	private static long[] freqsDict = new long[0];
+	// Doc name -> doc id dictionary, only sorted when dumped
+	private static StringIntMap docDict = new StringIntMap();
+	// Term -> term id dictionary, only sorted when dumped
+	private static StringIntMap termDict = new StringIntMap();
+	// Term bytes -> termId, for the tokens already seen while inverting files
+	private static TermTable termTable = new TermTable();
 	// Block queue
 	private static LinkedList<File> blockQueue = new LinkedList<File>();
 
@@ -44,34 +64,371 @@ public class Index {
 	private static int wordIdCounter = 0;
 	// Index
 	private static BaseIndex index = null;
+	// Method of the index, every thread writing blocks gets an instance of its own
+	private static String indexMethod = null;
+	// docIds whose postings are dropped while merging, when compacting an index with deleted documents
+	private static RoaringBitmap deleted = new RoaringBitmap();
+	// Whether the positions of every term in every document are indexed too (see Positions)
+	private static boolean positional = false;
+	// Whether the frequency of every term in every document is indexed too (see Frequencies), for ranking
+	private static boolean frequencies = false;
+	// Number of tokens in each document, indexed by docId, when indexing term frequencies
+	private static int[] docLengths = new int[0];
+
+	/* Rough heap cost of a new posting list in a block: the PostingList, its initial array and its HashMap entry */
+	private static final int POSTING_LIST_BYTES = 112;
+	/* Most runs merged at once, see mergeRuns() */
+	private static final int MAX_FAN_IN = 64;
+	/* Smallest read buffer of a run being merged, whatever the memory budget */
+	private static final int MIN_MERGE_BUFFER = 64 << 10;
+	/* Once an index has more segments than this, adding documents compacts them into the base index */
+	public static final int MAX_SEGMENTS = 8;
+
+	/*
+	 * Start over from empty dictionaries with the given index method, as the indexer may run more than once in the
+	 * same JVM
+	 */
+	private static void reset(String method) {
+		postingPositions = positionsDict = freqsDict = new long[0];
+		postingSizes = new int[0];
+		docDict.clear();
+		termDict.clear();
+		termTable = new TermTable();
+		blockQueue.clear();
+		deleted = new RoaringBitmap();
+		positional = frequencies = false;
+		docLengths = new int[0];
+		totalFileCount = docIdCounter = wordIdCounter = 0;
+
+		/* Get index */
+		try {
+			index = BitmapIndex.forMethod(method);
+			indexMethod = method;
+		} catch (Exception e) {
+			System.err.println("Index method must be \"Basic\", \"VB\", \"Gamma\", \"Delta\", or \"PFor\"");
+			throw new RuntimeException(e);
+		}
+	}
+
+	/*
+	 * Delete a file, or a directory with everything in it
+	 */
+	private static void delete(File file) {
+		File[] files = file.listFiles();
+		if (files != null) {
+			for (File f : files)
+				delete(f);
+		}
+		file.delete();
+	}
 
 	/*
 	 * Write a posting list to the given file You should record the file position of this posting list so that you can
 	 * read it back during retrieval
 	 * 
 	 */
-	private static void writePosting(FileChannel fc, PostingList posting) throws IOException {
+	private static void writePosting(SeekableByteChannel fc, SeekableByteChannel pfc, SeekableByteChannel ffc,
+			PostingList posting) throws IOException {
 		/*
 		 * Posting dictionary update occurs whenever a posting is being written to disk. We can track where is the
 		 * current writing position and transform it to any term position here. The positions updated before merging
 		 * process may not be corrected, but definitely are going to once merging process is done.
 		 */
-		postingDict.put(posting.getTermId(), new Pair<Long, Integer>(fc.position(), posting.getList().size()));
+		int termId = posting.getTermId();
+		if (termId >= postingSizes.length) {
+			int length = Math.max(termId + 1, 2 * postingSizes.length);
+			postingPositions = Arrays.copyOf(postingPositions, length);
+			postingSizes = Arrays.copyOf(postingSizes, length);
+			positionsDict = Arrays.copyOf(positionsDict, length);
+			freqsDict = Arrays.copyOf(freqsDict, length);
+		}
+		postingPositions[termId] = fc.position();
+		postingSizes[termId] = posting.size();
 		index.writePosting(fc, posting);
+		if (pfc != null) {
+			positionsDict[termId] = pfc.position();
+			posting.getPositions().write(pfc);
+		}
+		if (ffc != null) {
+			freqsDict[termId] = ffc.position();
+			Frequencies.write(ffc, posting, docLengths);
+		}
 	}
 
-	/**
-	 * Pop next element if there is one, otherwise return null
+	/*
+	 * The positions file going with an index file: positions.index next to a corpus.index, the name of the file
+	 * followed by ".pos" otherwise, as for a run
+	 */
+	private static File positionsFile(File indexFile) {
+		if (indexFile.getName().equals("corpus.index"))
+			return new File(indexFile.getParentFile(), "positions.index");
+		return new File(indexFile.getPath() + ".pos");
+	}
+
+	/*
+	 * The frequencies file going with an index file: freqs.index next to a corpus.index, the name of the file followed
+	 * by ".tf" otherwise
+	 */
+	private static File freqsFile(File indexFile) {
+		if (indexFile.getName().equals("corpus.index"))
+			return new File(indexFile.getParentFile(), "freqs.index");
+		return new File(indexFile.getPath() + ".tf");
+	}
+
+	/*
+	 * Combine posting lists of the same termId coming from different runs. Each run holds docIds of files inverted one
+	 * after another, so once the lists are ordered by their first docId they normally follow one another and are
+	 * simply concatenated. Should any two overlap, the lists are instead merged one after another, keeping each docId
+	 * once, with the frequency it has in the first list holding it.
+	 */
+	private static PostingList mergePostings(int termId, List<PostingList> postings) {
+		Collections.sort(postings, new Comparator<PostingList>() {
+			@Override
+			public int compare(PostingList p1, PostingList p2) {
+				return Integer.compare(p1.get(0), p2.get(0));
+			}
+		});
+		int total = 0, last = 0;
+		boolean ordered = true;
+		for (PostingList p : postings) {
+			total += p.size();
+			ordered &= p.get(0) > last;
+			last = p.get(p.size() - 1);
+		}
+		int[] docs = new int[total], freqs = postings.get(0).getFreqs() == null ? null : new int[total];
+		int n = 0;
+		for (PostingList p : postings) {
+			if (ordered) {
+				System.arraycopy(p.getArray(), 0, docs, n, p.size());
+				if (freqs != null)
+					System.arraycopy(p.getFreqs(), 0, freqs, n, p.size());
+				n += p.size();
+				continue;
+			}
+			int[] docs1 = Arrays.copyOf(docs, n), docs2 = p.getArray();
+			int[] freqs1 = freqs == null ? null : Arrays.copyOf(freqs, n), freqs2 = p.getFreqs();
+			int i1 = 0, i2 = 0, n2 = p.size();
+			n = 0;
+			while (i1 < docs1.length || i2 < n2) {
+				if (i2 == n2 || i1 < docs1.length && docs1[i1] <= docs2[i2]) {
+					if (i2 < n2 && docs2[i2] == docs1[i1])
+						i2++;
+					if (freqs != null)
+						freqs[n] = freqs1[i1];
+					docs[n++] = docs1[i1++];
+				} else {
+					if (freqs != null)
+						freqs[n] = freqs2[i2];
+					docs[n++] = docs2[i2++];
+				}
+			}
+		}
+		PostingList merged = new PostingList(termId, docs, n);
+		merged.setFreqs(freqs);
+		if (postings.get(0).getPositions() == null)
+			return merged;
+		if (ordered) {
+			Positions positions = new Positions();
+			for (PostingList p : postings)
+				positions.addAll(p.getPositions());
+			merged.setPositions(positions);
+		} else
+			merged.setPositions(mergePositions(merged, postings));
+		return merged;
+	}
+
+	/*
+	 * Positions of the docIds of merged, all of which come from postings, ordered by their first docId. The positions
+	 * of a docId are those of the first list holding it, the entries of the docIds merged leaves out are dropped.
+	 */
+	private static Positions mergePositions(PostingList merged, List<PostingList> postings) {
+		Positions positions = new Positions();
+		int n = postings.size();
+		ByteBuffer[] entries = new ByteBuffer[n];
+		int[] next = new int[n];
+		for (int l = 0; l < n; l++)
+			entries[l] = postings.get(l).getPositions().entries();
+		for (int i = 0; i < merged.size(); i++) {
+			int docId = merged.get(i);
+			boolean taken = false;
+			for (int l = 0; l < n; l++) {
+				PostingList p = postings.get(l);
+				for (; next[l] < p.size() && p.get(next[l]) <= docId; next[l]++) {
+					if (p.get(next[l]) == docId && !taken) {
+						positions.addEntry(entries[l]);
+						taken = true;
+					} else
+						Positions.skip(entries[l]);
+				}
+			}
+		}
+		return positions;
+	}
+
+	/*
+	 * Frequencies of the docIds of kept, all of which come from merged
+	 */
+	private static int[] keptFreqs(PostingList kept, PostingList merged) {
+		int[] freqs = new int[kept.size()];
+		for (int i = 0, j = 0; j < freqs.length; i++) {
+			if (merged.get(i) == kept.get(j))
+				freqs[j++] = merged.getFreqs()[i];
+		}
+		return freqs;
+	}
+
+	/*
+	 * Distinct tokens of a file, as the entries of a TermTable in the order they first occur, along with how many times
+	 * each of them occurs, the positions of each of them in the file when indexing positions, and the number of tokens
+	 * in the file
+	 */
+	private static class Tokens {
+		final TermTable tokens;
+		final int[] counts;
+		final int[][] positions;
+		final int length;
+
+		Tokens(TermTable tokens, int[] counts, int[][] positions, int length) {
+			this.tokens = tokens;
+			this.counts = counts;
+			this.positions = positions;
+			this.length = length;
+		}
+	}
+
+	/* Buffer every worker reads whole files into, grown to the largest file it has read */
+	private static final ThreadLocal<byte[]> fileBuffer = new ThreadLocal<byte[]>() {
+		@Override
+		protected byte[] initialValue() {
+			return new byte[1 << 16];
+		}
+	};
+
+	/*
+	 * Read a file and split it into tokens. Every distinct token is returned once, in the order it first occurs, along
+	 * with how many times it occurs, and where if positions is set. This runs on worker threads, so it must not touch
+	 * any of the dictionaries.
 	 * 
-	 * @param iter
-	 *            an iterator that contains integers
-	 * @return next element or null
+	 * Tokens come out exactly as splitting every line of the file, once trimmed, around runs of whitespace would give
+	 * them: lines end at \n, \r or \r\n, trimming strips any byte up to a space, and a line left empty is an empty
+	 * token. Whitespace and line ends are single bytes in the default charset, as FileReader decodes files, so the file
+	 * is split as it is read, without decoding it. A token is only ever kept as a slice of the file, and tokens seen
+	 * before in the file are counted without copying anything.
 	 */
-	private static Integer popNextOrNull(Iterator<Integer> iter) {
-		if (iter.hasNext()) {
-			return iter.next();
-		} else {
-			return null;
+	private static Tokens tokenize(File file, boolean positions) throws IOException {
+		byte[] buf = fileBuffer.get();
+		int size = 0;
+		FileInputStream in = new FileInputStream(file);
+		try {
+			for (int read; (read = in.read(buf, size, buf.length - size)) > 0;) {
+				if ((size += read) == buf.length)
+					fileBuffer.set(buf = Arrays.copyOf(buf, 2 * buf.length));
+			}
+		} finally {
+			in.close();
+		}
+		TermTable tokens = new TermTable();
+		// Every token of the file in turn, as the index of the token among distinct tokens, if positions is set
+		int[] counts = new int[64], stream = positions ? new int[256] : null;
+		int n = 0;
+		for (int i = 0; i < size;) {
+			int from = i;
+			while (i < size && buf[i] != '\n' && buf[i] != '\r')
+				i++;
+			int to = i;
+			if (i < size)
+				i += buf[i] == '\r' && i + 1 < size && buf[i + 1] == '\n' ? 2 : 1;
+			// Trim the line, as String.trim() does, unsigned bytes above a space being part of a token
+			while (from < to && (buf[from] & 0xff) <= ' ')
+				from++;
+			while (to > from && (buf[to - 1] & 0xff) <= ' ')
+				to--;
+			do {
+				int end = from;
+				while (end < to && !isWhitespace(buf[end]))
+					end++;
+				int t = tokens.add(buf, from, end - from);
+				if (t == counts.length)
+					counts = Arrays.copyOf(counts, 2 * t);
+				counts[t]++;
+				if (positions) {
+					if (n == stream.length)
+						stream = Arrays.copyOf(stream, 2 * n);
+					stream[n] = t;
+				}
+				n++;
+				for (from = end; from < to && isWhitespace(buf[from]);)
+					from++;
+			} while (from < to);
+		}
+		counts = Arrays.copyOf(counts, tokens.size());
+		if (!positions)
+			return new Tokens(tokens, counts, null, n);
+		int[][] where = new int[tokens.size()][];
+		for (int t = 0; t < where.length; t++)
+			where[t] = new int[counts[t]];
+		int[] next = new int[tokens.size()];
+		for (int i = 0; i < n; i++)
+			where[stream[i]][next[stream[i]]++] = i;
+		return new Tokens(tokens, counts, where, n);
+	}
+
+	/*
+	 * Whether a byte is whitespace to the \s of a regular expression
+	 */
+	private static boolean isWhitespace(byte b) {
+		return b == ' ' || b == '\t' || b == '\n' || b == 0x0b || b == '\f' || b == '\r';
+	}
+
+	/*
+	 * Write all posting lists of a block to blockFile, ordered by termId. This runs on worker threads, each with an
+	 * index of its own.
+	 */
+	private static void writeBlock(File blockFile, Map<Integer, PostingList> localTermDoc) throws Exception {
+		BaseIndex blockIndex = BitmapIndex.forMethod(indexMethod);
+		RandomAccessFile bfc = new RandomAccessFile(blockFile, "rw");
+		// Posting lists are encoded into a buffer while the previous one is written out
+		WriteBehindChannel bfcc = new WriteBehindChannel(bfc.getChannel());
+		// Their positions, if any, go to a file of their own in the same order
+		RandomAccessFile pf = positional ? new RandomAccessFile(positionsFile(blockFile), "rw") : null;
+		WriteBehindChannel pfc = positional ? new WriteBehindChannel(pf.getChannel()) : null;
+		// And so do their frequencies
+		RandomAccessFile ff = frequencies ? new RandomAccessFile(freqsFile(blockFile), "rw") : null;
+		WriteBehindChannel ffc = frequencies ? new WriteBehindChannel(ff.getChannel()) : null;
+
+		/*
+		 * Write all posting lists for all terms to file (bfc)
+		 * 
+		 * Here, we take advantage of using localTermDoc mapping to iterate it by (sorted) termIds. There is a
+		 * corresponding posting list for each termId, already sorted by docId, so it is written out as is. Finally, we
+		 * write all posting lists to a single block.
+		 */
+		System.out.println("DEBUG: Write posting start");
+		int[] termIds = new int[localTermDoc.size()];
+		int t = 0;
+		for (int termId : localTermDoc.keySet())
+			termIds[t++] = termId;
+		Arrays.sort(termIds);
+		for (int termId : termIds) {
+			PostingList posting = localTermDoc.remove(termId);
+			blockIndex.writePosting(bfcc, posting);
+			if (pfc != null)
+				posting.getPositions().write(pfc);
+			// The points of their blocks are only worked out once runs are merged
+			if (ffc != null)
+				Frequencies.write(ffc, posting, null);
+		}
+		System.out.println("DEBUG: Write posting done");
+
+		bfcc.close();
+		bfc.close();
+		if (pf != null) {
+			pfc.close();
+			pf.close();
+		}
+		if (ff != null) {
+			ffc.close();
+			ff.close();
 		}
 	}
 
@@ -88,15 +445,67 @@ public class Index {
 	 *            If it does, you must clear out the content before indexing.
 	 */
 	public static int runIndexer(String method, String dataDirname, String outputDirname) throws IOException {
-		/* Get index */
-		String className = method + "Index";
-		try {
-			Class<?> indexClass = Class.forName(className);
-			index = (BaseIndex) indexClass.newInstance();
-		} catch (Exception e) {
-			System.err.println("Index method must be \"Basic\", \"VB\", or \"Gamma\"");
-			throw new RuntimeException(e);
-		}
+		return runIndexer(method, dataDirname, outputDirname, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Same as runIndexer(method, dataDirname, outputDirname), with block inversion spread over the given number of
+	 * threads. The output does not depend on the number of threads.
+	 * 
+	 * @param threads
+	 *            :number of worker threads tokenizing files and writing blocks
+	 */
+	public static int runIndexer(String method, String dataDirname, String outputDirname, int threads)
+			throws IOException {
+		return runIndexer(method, dataDirname, outputDirname, threads, defaultMemoryBudget());
+	}
+
+	/**
+	 * A quarter of the largest heap the JVM may grow to
+	 */
+	public static long defaultMemoryBudget() {
+		return Runtime.getRuntime().maxMemory() / 4;
+	}
+
+	/**
+	 * Same as runIndexer(method, dataDirname, outputDirname, threads), keeping the posting lists of the blocks being
+	 * inverted and written within the given memory budget. The output does not depend on the budget either.
+	 * 
+	 * @param memoryBudget
+	 *            :most bytes of heap posting lists may take before they are written out as a run
+	 */
+	public static int runIndexer(String method, String dataDirname, String outputDirname, int threads,
+			long memoryBudget) throws IOException {
+		return runIndexer(method, dataDirname, outputDirname, threads, memoryBudget, false);
+	}
+
+	/**
+	 * Same as runIndexer(method, dataDirname, outputDirname, threads, memoryBudget), recording where each term occurs
+	 * in each document as well if positions is set. Positions go to positions.index, apart from corpus.index, which
+	 * stays as it would be without them (see Positions). Query needs them for phrase queries.
+	 * 
+	 * @param positions
+	 *            :index the positions of terms in documents
+	 */
+	public static int runIndexer(String method, String dataDirname, String outputDirname, int threads,
+			long memoryBudget, boolean positions) throws IOException {
+		return runIndexer(method, dataDirname, outputDirname, threads, memoryBudget, positions, false);
+	}
+
+	/**
+	 * Same as runIndexer(method, dataDirname, outputDirname, threads, memoryBudget, positions), recording the frequency
+	 * of every term in every document and the length of every document as well if frequencies is set, in freqs.index
+	 * and length.bin (see Frequencies). Query needs them to rank documents.
+	 * 
+	 * @param frequencies
+	 *            :index the frequencies of terms in documents
+	 */
+	public static int runIndexer(String method, String dataDirname, String outputDirname, int threads,
+			long memoryBudget, boolean positions, boolean frequencies) throws IOException {
+		/* Start over from empty dictionaries */
+		reset(method);
+		positional = positions;
+		Index.frequencies = frequencies;
 
 		/* Get root directory */
 		File rootdir = new File(dataDirname);
@@ -112,8 +521,10 @@ public class Index {
 			return -1;
 		}
 
-		for (File file : outdir.listFiles()) {
-			file.delete();
+		if (outdir.exists()) {
+			for (File file : outdir.listFiles()) {
+				delete(file); // segment directories included
+			}
 		}
 
 		if (!outdir.exists()) {
@@ -125,231 +536,559 @@ public class Index {
 
 		/* BSBI indexing algorithm */
 		File[] dirlist = rootdir.listFiles();
+		List<File> files = new ArrayList<File>();
+		for (File blockDir : dirlist)
+			files.addAll(Arrays.asList(new File(dataDirname, blockDir.getName()).listFiles()));
+		if (invert(files, outputDirname, threads, memoryBudget) == -1)
+			return -1;
+
+		/* Required: output total number of files. */
+		System.out.println("Total Files Indexed: " + totalFileCount);
+
+		mergeRuns(new File(outputDirname, "corpus.index"), memoryBudget, false);
+
+		/* Dump constructed index back into file system */
+		writeDictionaries(outputDirname);
+		writePostingDictionary(outputDirname);
+
+		return totalFileCount;
+	}
+
+	/**
+	 * Index the documents of dataDirname that are not in the index of outputDirname yet into a new segment, leaving
+	 * the rest of the index as it is. docIds and termIds carry on from the existing dictionaries, so the cost only
+	 * depends on the new documents, apart from rewriting the term and doc dictionaries.
+	 * <br>A segment is a subdirectory with a corpus.index and posting dictionaries of its own, listed in the
+	 * "segments" file of the index. Query reads every segment along with the base index. Once there are more than
+	 * MAX_SEGMENTS segments, they are compacted into the base index.
+	 * <br>Positions and frequencies are indexed if the index has them.
+	 * 
+	 * @return number of documents added, -1 on failure
+	 */
+	public static int addDocuments(String method, String dataDirname, String outputDirname, int threads,
+			long memoryBudget) throws IOException {
+		reset(method);
+		positional = new File(outputDirname, "positions.index").exists();
+		frequencies = new File(outputDirname, "freqs.index").exists();
+
+		/* Get root directory */
+		File rootdir = new File(dataDirname);
+		if (!rootdir.exists() || !rootdir.isDirectory()) {
+			System.err.println("Invalid data directory: " + dataDirname);
+			return -1;
+		}
+		if (!new File(outputDirname, "corpus.index").exists()) {
+			System.err.println("No index to add documents to in " + outputDirname);
+			return -1;
+		}
+
+		/* Existing dictionaries, new termIds and docIds come after theirs */
+		wordIdCounter = readDictionary(new File(outputDirname, "term.dict"), termDict);
+		docIdCounter = readDictionary(new File(outputDirname, "doc.dict"), docDict);
+		if (frequencies)
+			docLengths = BinaryDictionary.readDocLengths(outputDirname);
+
+		/* Documents not indexed yet */
+		List<File> files = new ArrayList<File>();
+		for (File blockDir : rootdir.listFiles()) {
+			for (File file : new File(dataDirname, blockDir.getName()).listFiles()) {
+				if (!docDict.containsKey(blockDir.getName() + "/" + file.getName()))
+					files.add(file);
+			}
+		}
+		System.out.println("New Files: " + files.size());
+		if (files.isEmpty())
+			return 0;
+
+		List<String> segments = Segment.list(outputDirname);
+		String segmentName = "segment" + (segments.isEmpty() ? 1 : Integer.parseInt(segments.get(
+				segments.size() - 1).substring("segment".length())) + 1);
+		File segmentDir = new File(outputDirname, segmentName);
+		delete(segmentDir); // left over by an add that failed
+		if (!segmentDir.mkdirs()) {
+			System.err.println("Create segment directory failure");
+			return -1;
+		}
+		if (invert(files, segmentDir.getPath(), threads, memoryBudget) == -1)
+			return -1;
+		mergeRuns(new File(segmentDir, "corpus.index"), memoryBudget, false);
+		writePostingDictionary(segmentDir.getPath());
+		writeDictionaries(outputDirname);
+
+		/* The segment only becomes part of the index once it is listed */
+		segments.add(segmentName);
+		Segment.write(outputDirname, segments);
+
+		if (segments.size() > MAX_SEGMENTS)
+			compact(method, outputDirname);
+		return totalFileCount;
+	}
+
+	/**
+	 * Merge every segment of the index in outputDirname into its base corpus.index, with the same k-way merge that
+	 * merges runs. Posting lists of a term in later segments only hold later docIds, so they are simply appended.
+	 * Postings of deleted documents are dropped on the way, after which their tombstones are purged.
+	 * <br>The compacted index is written in full to a directory of its own, alongside the files it is merged from.
+	 * They are only replaced once it is complete, and segments only deleted once the index no longer lists them, so
+	 * an index is never left without its postings, whenever compaction fails.
+	 */
+	public static void compact(String method, String outputDirname) throws IOException {
+		List<String> segments = Segment.list(outputDirname);
+		RoaringBitmap tombstones = Tombstones.read(outputDirname);
+		if (segments.isEmpty() && tombstones.isEmpty())
+			return;
+		reset(method);
+		deleted = tombstones;
+		positional = new File(outputDirname, "positions.index").exists();
+		frequencies = new File(outputDirname, "freqs.index").exists();
+		if (frequencies)
+			docLengths = BinaryDictionary.readDocLengths(outputDirname);
+		blockQueue.add(new File(outputDirname, "corpus.index"));
+		for (String segment : segments)
+			blockQueue.add(new File(new File(outputDirname, segment), "corpus.index"));
+		File compactDir = new File(outputDirname, "compact");
+		delete(compactDir); // left over by a compaction that failed
+		if (!compactDir.mkdirs())
+			throw new IOException("Cannot create " + compactDir);
+		mergeRuns(new File(compactDir, "corpus.index"), defaultMemoryBudget(), true);
+		writePostingDictionary(compactDir.getPath());
+
+		/* Only now is anything of the index replaced */
+		for (File file : compactDir.listFiles()) {
+			if (!file.renameTo(new File(outputDirname, file.getName())))
+				throw new IOException("Cannot replace " + file.getName() + " of " + outputDirname);
+		}
+		Segment.write(outputDirname, new ArrayList<String>());
+		Tombstones.purge(outputDirname);
+		for (String segment : segments)
+			delete(new File(outputDirname, segment));
+		delete(compactDir);
+	}
+
+	/**
+	 * Delete documents, named as in doc.dict, from the index of outputDirname. Their docIds are recorded as tombstones
+	 * (see Tombstones), and their postings are only dropped by the next compaction. A deleted document keeps its name
+	 * in doc.dict, so adding documents does not index it again.
+	 * 
+	 * @return number of documents deleted, leaving out those unknown or already deleted
+	 */
+	public static int deleteDocuments(String outputDirname, List<String> docNames) throws IOException {
+		StringIntMap docs = new StringIntMap();
+		readDictionary(new File(outputDirname, "doc.dict"), docs);
+		RoaringBitmap tombstones = Tombstones.read(outputDirname), purged = Tombstones.readPurged(outputDirname);
+		int count = 0;
+		for (String docName : docNames) {
+			int docId = docs.get(docName);
+			if (docId == -1)
+				System.err.println("No such document: " + docName);
+			else if (!purged.contains(docId) && tombstones.add(docId))
+				count++;
+		}
+		Tombstones.write(outputDirname, tombstones);
+		return count;
+	}
+
+	/*
+	 * Read a term.dict or doc.dict back into dict. Both are in UTF-8, whatever the platform charset, so that any term
+	 * or document name comes back the same and keeps its id.
+	 * 
+	 * @return the largest id read, 0 if there is none
+	 */
+	private static int readDictionary(File file, StringIntMap dict) throws IOException {
+		BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file),
+				StandardCharsets.UTF_8));
+		String line;
+		int maxId = 0;
+		while ((line = reader.readLine()) != null) {
+			int tab = line.lastIndexOf('\t'), id = Integer.parseInt(line.substring(tab + 1));
+			dict.put(line.substring(0, tab), id);
+			maxId = Math.max(maxId, id);
+		}
+		reader.close();
+		return maxId;
+	}
+
+	/*
+	 * Invert files, in order, into runs written to runDirname and queued in blockQueue. docIds and termIds carry on
+	 * from the counters.
+	 * 
+	 * @return -1 on failure
+	 */
+	private static int invert(List<File> files, String runDirname, int threads, long memoryBudget) throws IOException {
+		/*
+		 * Block inversion is spread over a pool of worker threads. Reading and tokenizing a file does not depend on any
+		 * other file, so workers tokenize files ahead of time, at most window files ahead of the one being inverted.
+		 * Assigning docIds and termIds, on the other hand, is left to this thread, which takes the tokenized files in
+		 * the exact order they would have been read sequentially. The term dictionary therefore never needs to be
+		 * shared between threads, and termIds come out the same as with a single thread, keeping the output byte for
+		 * byte identical. Once a block is inverted, sorting and writing it as a run goes back to the pool, while this
+		 * thread moves on to the next block.
+		 * 
+		 * Blocks are not tied to the directories of the dataset (SPIMI): files are inverted one after another into
+		 * the same block until its posting lists reach half of memoryBudget bytes, at which point it is written out as
+		 * a run and a new block is started. At most one run is being written while the next block fills, so posting
+		 * lists never hold more than memoryBudget bytes, however files are spread over directories.
+		 */
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		LinkedList<Future<Tokens>> tokenized = new LinkedList<Future<Tokens>>();
+		Future<Void> runWrite = null;
+		int submitted = 0, window = 4 * threads;
+		long blockBudget = memoryBudget / 2, blockBytes = 0;
 
 		/*
 		 * localTermDoc represents termId -> {docIds} mapping, also known as posting lists. This mapping will be saved
 		 * onto disk as a block. In other words, we are to construct posting lists of each block. It is possible that,
 		 * while we are adding docId to any termId, docIds are duplicated as the same term occurs multiple times in the
-		 * same document. We fix that by defining the list of docIds as a set, thus no more duplication. This is
-		 * determined to be faster than a combination of using a conventional list data structure plus checking if a
-		 * docId already exists in the list using contains(), which takes O(n) complexity. On the other hand, simply
-		 * adding an element to a set requires just O(1).
-		 * 
-		 * The aforementioned approach would do only if we use HashSet. Since docIds are required to be sorted, we must
-		 * later sort this set. We exhibit more memory at sorting because we have to create a list from the set then
-		 * sort it. According to our test, using HashSet + sorting is much faster than using conventional ArrayList +
-		 * contains() operation.
+		 * same document. Workers already hand over every distinct token of a file only once, and since files are
+		 * visited one at a time with an ever increasing docId, a duplicate could only ever be the docId appended last.
+		 * This also means every posting list is already sorted by the time the block is written, without ever boxing
+		 * a docId into a set or a sorted list.
 		 * 
-		 * Normally, this mapping is block-dependent. We anyway declare the mapping here as we can always clear it
-		 * before processing the next block.
+		 * The mapping is block-dependent. A fresh one is started for every block, as the previous one is handed over
+		 * to the thread writing it. blockBytes keeps track of roughly how much heap it takes.
 		 */
-		Map<Integer, Set<Integer>> localTermDoc = new HashMap<Integer, Set<Integer>>();
-
-		/* For each block */
-		for (File block : dirlist) {
-			File blockFile = new File(outputDirname, block.getName());
-			System.out.println("Processing block " + block.getName());
-			blockQueue.add(blockFile);
-
-			File blockDir = new File(dataDirname, block.getName());
-			File[] filelist = blockDir.listFiles();
+		Map<Integer, PostingList> localTermDoc = new HashMap<Integer, PostingList>();
 
+		try {
 			/* For each file */
-			for (File file : filelist) {
+			String blockName = null;
+			for (int f = 0; f < files.size(); f++) {
+				// Keep the workers busy tokenizing the files coming up next
+				while (submitted < files.size() && submitted - f < window) {
+					final File next = files.get(submitted++);
+					tokenized.add(pool.submit(new Callable<Tokens>() {
+						public Tokens call() throws IOException {
+							return tokenize(next, positional);
+						}
+					}));
+				}
+				File file = files.get(f);
+				if (!file.getParentFile().getName().equals(blockName))
+					System.out.println("Processing block " + (blockName = file.getParentFile().getName()));
 				++totalFileCount;
-				String fileName = block.getName() + "/" + file.getName();
+				String fileName = blockName + "/" + file.getName();
 				// System.out.println(fileName); // TODO: change as code
 
 				// use pre-increment to ensure docID > 0
 				int docId = ++docIdCounter;
 				docDict.put(fileName, docId);
 
-				BufferedReader reader = new BufferedReader(new FileReader(file));
-				String line;
-				while ((line = reader.readLine()) != null) {
-					String[] tokens = line.trim().split("\\s+");
-					for (String token : tokens) {
-						int termId = termDict.getOrDefault(token, -1);
-						if (termId == -1)
-							termDict.put(token, termId = ++wordIdCounter); // assign termId in increasing manner
-						Set<Integer> localDocIds = localTermDoc.get(termId);
-						if (localDocIds == null)
-							localTermDoc.put(termId, localDocIds = new HashSet<Integer>());
-						localDocIds.add(docId); // add docId without worrying the duplication
+				Tokens tokens = tokenized.removeFirst().get();
+				if (frequencies) {
+					if (docId >= docLengths.length)
+						docLengths = Arrays.copyOf(docLengths, Math.max(docId + 1, 2 * docLengths.length));
+					docLengths[docId] = tokens.length;
+				}
+				for (int k = 0; k < tokens.tokens.size(); k++) {
+					int termId = termId(tokens.tokens, k);
+					PostingList localDocIds = localTermDoc.get(termId);
+					if (localDocIds == null) {
+						localTermDoc.put(termId, localDocIds = new PostingList(termId));
+						blockBytes += POSTING_LIST_BYTES;
+						if (positional)
+							localDocIds.setPositions(new Positions());
+					}
+					int capacity = localDocIds.getArray().length;
+					if (frequencies) {
+						localDocIds.add(docId, tokens.counts[k]);
+						blockBytes += 8 * (localDocIds.getArray().length - capacity);
+					} else {
+						localDocIds.add(docId);
+						blockBytes += 4 * (localDocIds.getArray().length - capacity);
+					}
+					if (positional) {
+						Positions positions = localDocIds.getPositions();
+						capacity = positions.capacity();
+						positions.add(tokens.positions[k]);
+						blockBytes += positions.capacity() - capacity;
 					}
-					tokens = null;
 				}
-				reader.close();
-			}
-
-			/* Sort and output */
-			if (!blockFile.createNewFile()) {
-				System.err.println("Create new block failure.");
-				return -1;
-			}
 
-			RandomAccessFile bfc = new RandomAccessFile(blockFile, "rw");
-			FileChannel bfcc = bfc.getChannel();
-
-			/*
-			 * Write all posting lists for all terms to file (bfc)
-			 * 
-			 * Here, we take advantage of using localTermDoc mapping to iterate it by (sorted) termIds. There is a
-			 * corresponding docIds set for each termId, but what we need rather than a set is a list for constructing a
-			 * posting list object. We can simply convert a set to a list by overloading list (Vector)'s constructor as
-			 * seen below. Finally, we write all posting lists to a single block.
-			 */
-			System.out.println("DEBUG: Write posting start");
-			List<Integer> termIds = new Vector<Integer>(localTermDoc.keySet());
-			Collections.sort(termIds);
-			for (Integer termId : termIds) {
-				List<Integer> docIds = new Vector<Integer>(localTermDoc.remove(termId));
-				Collections.sort(docIds);
-				writePosting(bfcc, new PostingList(termId, docIds));
+				/* Sort and output, once the block is full or there are no more files */
+				if (blockBytes < blockBudget && f < files.size() - 1)
+					continue;
+				final File blockFile = new File(runDirname, "run" + blockQueue.size());
+				if (!blockFile.createNewFile()) {
+					System.err.println("Create new block failure.");
+					return -1;
+				}
+				blockQueue.add(blockFile);
+				// The previous run must be out of memory before this one is let go
+				if (runWrite != null)
+					runWrite.get();
+				final Map<Integer, PostingList> blockTermDoc = localTermDoc;
+				runWrite = pool.submit(new Callable<Void>() {
+					public Void call() throws Exception {
+						writeBlock(blockFile, blockTermDoc);
+						return null;
+					}
+				});
+				localTermDoc = new HashMap<Integer, PostingList>();
+				blockBytes = 0;
 			}
-
-			termIds.clear();
-			termIds = null;
-			localTermDoc.clear();
-			System.out.println("DEBUG: Write posting done");
-
-			bfc.close();
+			if (runWrite != null)
+				runWrite.get();
+		} catch (InterruptedException e) {
+			throw new IOException(e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException)
+				throw (IOException) e.getCause();
+			throw new RuntimeException(e.getCause());
+		} finally {
+			pool.shutdownNow();
 		}
+		return 0;
+	}
 
-		/* Required: output total number of files. */
-		System.out.println("Total Files Indexed: " + totalFileCount);
-
-		/* Temporary variables for merging blocks */
-		int t1, t2;
-		Integer d1 = null, d2 = null;
-		List<Integer> docs = new Vector<Integer>();
-		PostingList p1 = null, p2 = null;
-		Iterator<Integer> idocs1 = null, idocs2 = null;
+	/*
+	 * termId of the token at entry k of tokens. Tokens seen before are found in termTable by their bytes alone. Any
+	 * other token is decoded, as FileReader would have decoded it, and looked up in termDict, which also holds the
+	 * terms of an index documents are added to, and only a token termDict does not hold either is given a new termId.
+	 * Bytes the default charset cannot decode all become the same replacement character, so tokens with different
+	 * bytes may well be the same term.
+	 */
+	private static int termId(TermTable tokens, int k) {
+		byte[] bytes = tokens.bytes();
+		int offset = tokens.offset(k), length = tokens.length(k);
+		int entry = termTable.find(bytes, offset, length);
+		if (entry != -1)
+			return termTable.getValue(entry);
+		String token = new String(bytes, offset, length, Charset.defaultCharset());
+		int termId = termDict.get(token);
+		if (termId == -1)
+			termDict.put(token, termId = ++wordIdCounter); // assign termId in increasing manner
+		termTable.setValue(termTable.add(bytes, offset, length), termId);
+		return termId;
+	}
 
-		/* Merge blocks */
-		while (true) {
-			if (blockQueue.size() <= 1)
-				break;
+	/*
+	 * Merge the runs in blockQueue into indexFile, recording where each posting list ends up in postingPositions. The
+	 * runs are deleted once merged, unless keepRuns is set. The corpus.index of a segment has the same layout as a
+	 * run, so segments are merged the same way.
+	 * 
+	 * At most MAX_FAN_IN runs are merged at once. When there are more, consecutive runs are first merged in groups of
+	 * MAX_FAN_IN into larger runs, next to indexFile, as many times over as it takes, which are always deleted. Every
+	 * run being merged holds a read buffer per file, sized so that all of them together stay within memoryBudget, so
+	 * neither the heap nor the number of open files grows with the number of runs, however small the budget that made
+	 * them.
+	 */
+	private static void mergeRuns(File indexFile, long memoryBudget, boolean keepRuns) throws IOException {
+		for (int pass = 1; blockQueue.size() > MAX_FAN_IN; pass++, keepRuns = false) {
+			LinkedList<File> merged = new LinkedList<File>();
+			while (!blockQueue.isEmpty()) {
+				List<File> group = new ArrayList<File>();
+				while (!blockQueue.isEmpty() && group.size() < MAX_FAN_IN)
+					group.add(blockQueue.removeFirst());
+				File run = new File(indexFile.getParentFile(), "merge" + pass + "-" + merged.size());
+				mergeRuns(group, run, false, keepRuns, memoryBudget);
+				merged.add(run);
+			}
+			blockQueue = merged;
+		}
+		mergeRuns(blockQueue, indexFile, true, keepRuns, memoryBudget);
+		blockQueue.clear();
+	}
 
-			File b1 = blockQueue.removeFirst();
-			File b2 = blockQueue.removeFirst();
+	/*
+	 * Merge runs into indexFile, then delete them unless keep is set. The last merge writes the index itself, any other
+	 * merge writes a run to be merged again.
+	 */
+	private static void mergeRuns(List<File> runFiles, File indexFile, boolean last, boolean keep,
+			long memoryBudget) throws IOException {
+		/*
+		 * Every run is streamed through a RunReader, and readers wait in a priority queue keyed on the termId of the
+		 * posting list they hold, so the queue always yields the smallest termId left across all runs. Posting lists
+		 * of the same termId are combined and written straight to indexFile, the last merge recording their final
+		 * position in postingPositions. Unless there are more than MAX_FAN_IN runs, each posting is read and written
+		 * exactly once. Runs are read ahead and indexFile written behind on other threads, so this thread only
+		 * decodes, merges and encodes.
+		 */
+		System.out.println("DEBUG: merging " + runFiles.size() + " blocks start");
+		PriorityQueue<RunReader> runs = new PriorityQueue<RunReader>(Math.max(1, runFiles.size()),
+				new Comparator<RunReader>() {
+					@Override
+					public int compare(RunReader r1, RunReader r2) {
+						return Integer.compare(r1.current().getTermId(), r2.current().getTermId());
+					}
+				});
+		// Two buffers for each file of each run, within the budget, but no smaller than MIN_MERGE_BUFFER
+		int files = 1 + (positional ? 1 : 0) + (frequencies ? 1 : 0);
+		int bufferSize = (int) Math.max(MIN_MERGE_BUFFER, Math.min(RunReader.BUFFER_SIZE, memoryBudget / (2L * files
+				* Math.max(1, runFiles.size()))));
+		List<RunReader> readers = new ArrayList<RunReader>();
+		for (File blockFile : runFiles) {
+			RunReader reader = new RunReader(blockFile, positional ? positionsFile(blockFile) : null,
+					frequencies ? freqsFile(blockFile) : null, index, bufferSize);
+			readers.add(reader);
+			if (reader.next() != null)
+				runs.add(reader);
+		}
 
-			File combfile = new File(outputDirname, b1.getName() + "+" + b2.getName());
-			if (!combfile.createNewFile()) {
-				System.err.println("Create new block failure.");
-				return -1;
+		RandomAccessFile mf = new RandomAccessFile(indexFile, "rw");
+		// Written behind, as the runs are read ahead, so that merging never waits on the disk in either direction
+		WriteBehindChannel mfc = new WriteBehindChannel(mf.getChannel());
+		// Positions of the posting lists, if any, to positionsFile(indexFile)
+		RandomAccessFile pf = positional ? new RandomAccessFile(positionsFile(indexFile), "rw") : null;
+		WriteBehindChannel pfc = positional ? new WriteBehindChannel(pf.getChannel()) : null;
+		// Their frequencies, if any, to freqsFile(indexFile)
+		RandomAccessFile ff = frequencies ? new RandomAccessFile(freqsFile(indexFile), "rw") : null;
+		WriteBehindChannel ffc = frequencies ? new WriteBehindChannel(ff.getChannel()) : null;
+		// Posting lists of the termId being merged, one per run holding it
+		List<PostingList> same = new ArrayList<PostingList>();
+		List<RunReader> sameRuns = new ArrayList<RunReader>();
+		while (!runs.isEmpty()) {
+			int termId = runs.peek().current().getTermId();
+			while (!runs.isEmpty() && runs.peek().current().getTermId() == termId) {
+				RunReader reader = runs.poll();
+				same.add(reader.current());
+				sameRuns.add(reader);
 			}
-			System.out
-					.println("DEBUG: merging ".concat(b1.getName()).concat("+").concat(b2.getName()).concat(" start"));
-
-			RandomAccessFile bf1 = new RandomAccessFile(b1, "r");
-			RandomAccessFile bf2 = new RandomAccessFile(b2, "r");
-			RandomAccessFile mf = new RandomAccessFile(combfile, "rw");
-			FileChannel bf1c = bf1.getChannel();
-			FileChannel bf2c = bf2.getChannel();
-			FileChannel mfc = mf.getChannel();
-
-			// start off by reading the first posting list from each block
-			p1 = index.readPosting(bf1c);
-			p2 = index.readPosting(bf2c);
-			while (p1 != null && p2 != null) {
-				idocs1 = p1.getList().iterator();
-				idocs2 = p2.getList().iterator();
-				if ((t1 = p1.getTermId()) == (t2 = p2.getTermId())) {
-					// If two posting lists are of the same termId, we merge their docIds
-					d1 = popNextOrNull(idocs1);
-					d2 = popNextOrNull(idocs2);
-					while (d1 != null && d2 != null) {
-						if (d1 < d2) {
-							// Smaller docId is added first, then read the next one from the posting list #1
-							docs.add(d1);
-							d1 = popNextOrNull(idocs1);
-						} else {
-							// Similar case as above but now d2 < d1
-							// Notice here we combine the case d2 < d1 and the case d2 == d1
-							docs.add(d2);
-							if (d2.equals(d1))
-								d1 = popNextOrNull(idocs1);
-							d2 = popNextOrNull(idocs2);
-						}
-					}
-					// Since the loop above operates until docId from either posting list is no more, we add the rest
-					// docIds from either list to the combined one here
-					while (d1 != null) {
-						docs.add(d1);
-						d1 = popNextOrNull(idocs1);
-					}
-					while (d2 != null) {
-						docs.add(d2);
-						d2 = popNextOrNull(idocs2);
-					}
-					writePosting(mfc, new PostingList(t1, docs));
-					docs.clear(); // we have to clear this helper list, because it is shared among blocks
-					p1 = index.readPosting(bf1c);
-					p2 = index.readPosting(bf2c);
-				} else {
-					if (t1 < t2) {
-						writePosting(mfc, p1);
-						p1 = index.readPosting(bf1c);
-					} else {
-						writePosting(mfc, p2);
-						p2 = index.readPosting(bf2c);
-					}
-				}
-				idocs1 = null;
-				idocs2 = null;
+			PostingList merged = same.size() == 1 ? same.get(0) : mergePostings(termId, same);
+			// A term only found in deleted documents is dropped altogether
+			if (!deleted.isEmpty()) {
+				PostingList kept = new PostingList(termId, deleted.removeFrom(merged.toArray()));
+				if (merged.getPositions() != null)
+					kept.setPositions(mergePositions(kept, Collections.singletonList(merged)));
+				if (merged.getFreqs() != null)
+					kept.setFreqs(keptFreqs(kept, merged));
+				merged = kept;
 			}
-			// It is also possible that posting lists counts of the two blocks are not equivalent, we handle the rest
-			// here
-			while (p1 != null) {
-				writePosting(mfc, p1);
-				p1 = index.readPosting(bf1c);
+			if (merged.size() > 0 && last)
+				writePosting(mfc, pfc, ffc, merged);
+			else if (merged.size() > 0) {
+				// Laid out as writeBlock() lays runs out
+				index.writePosting(mfc, merged);
+				if (pfc != null)
+					merged.getPositions().write(pfc);
+				if (ffc != null)
+					Frequencies.write(ffc, merged, null);
 			}
-			while (p2 != null) {
-				writePosting(mfc, p2);
-				p2 = index.readPosting(bf2c);
+			for (RunReader reader : sameRuns) {
+				if (reader.next() != null)
+					runs.add(reader);
 			}
-			bf1.close();
-			bf2.close();
-			mf.close();
-			System.out.println("DEBUG: merging ".concat(b1.getName()).concat("+").concat(b2.getName()).concat(" done"));
-			b1.delete();
-			b2.delete();
-			blockQueue.add(combfile);
+			same.clear();
+			sameRuns.clear();
 		}
-		docs = null;
-		localTermDoc = null;
-
-		/* Dump constructed index back into file system */
-		File indexFile = blockQueue.removeFirst();
-		indexFile.renameTo(new File(outputDirname, "corpus.index"));
+		long bytesRead = 0;
+		for (RunReader reader : readers) {
+			bytesRead += reader.getBytesRead();
+			reader.close();
+			if (keep)
+				continue;
+			reader.getFile().delete();
+			if (reader.getPositionsFile() != null)
+				reader.getPositionsFile().delete();
+			if (reader.getFreqsFile() != null)
+				reader.getFreqsFile().delete();
+		}
+		long bytesWritten = mfc.size();
+		mfc.close();
+		mf.close();
+		if (pf != null) {
+			bytesWritten += pfc.size();
+			pfc.close();
+			pf.close();
+		}
+		if (ff != null) {
+			bytesWritten += ffc.size();
+			ffc.close();
+			ff.close();
+		}
+		System.out.println("DEBUG: merging done, read " + bytesRead + " bytes, wrote " + bytesWritten + " bytes");
+	}
 
-		BufferedWriter termWriter = new BufferedWriter(new FileWriter(new File(outputDirname, "term.dict")));
-		for (String term : termDict.keySet()) {
-			termWriter.write(term + "\t" + termDict.get(term) + "\n");
+	/*
+	 * Dump the term and doc dictionaries into outputDirname, as text in UTF-8 and in binary for the query side to map
+	 * into memory
+	 */
+	private static void writeDictionaries(String outputDirname) throws IOException {
+		String[] terms = termDict.sortedKeys();
+		int[] termIds = new int[terms.length];
+		BufferedWriter termWriter = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(new File(
+				outputDirname, "term.dict")), StandardCharsets.UTF_8));
+		for (int t = 0; t < terms.length; t++) {
+			termWriter.write(terms[t] + "\t" + (termIds[t] = termDict.get(terms[t])) + "\n");
 		}
 		termWriter.close();
 
-		BufferedWriter docWriter = new BufferedWriter(new FileWriter(new File(outputDirname, "doc.dict")));
-		for (String doc : docDict.keySet()) {
-			docWriter.write(doc + "\t" + docDict.get(doc) + "\n");
+		String[] docs = docDict.sortedKeys();
+		int[] docIds = new int[docs.length];
+		BufferedWriter docWriter = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(new File(
+				outputDirname, "doc.dict")), StandardCharsets.UTF_8));
+		for (int d = 0; d < docs.length; d++) {
+			docWriter.write(docs[d] + "\t" + (docIds[d] = docDict.get(docs[d])) + "\n");
 		}
 		docWriter.close();
 
-		BufferedWriter postWriter = new BufferedWriter(new FileWriter(new File(outputDirname, "posting.dict")));
-		for (Integer termId : postingDict.keySet()) {
-			postWriter.write(termId + "\t" + postingDict.get(termId).getFirst() + "\t"
-					+ postingDict.get(termId).getSecond() + "\n");
+		BinaryDictionary.writeTerms(outputDirname, terms, termIds);
+		BinaryDictionary.writeDocs(outputDirname, docs, docIds);
+		if (frequencies)
+			BinaryDictionary.writeDocLengths(outputDirname, Arrays.copyOf(docLengths, docIdCounter + 1), docIdCounter);
+	}
+
+	/*
+	 * Dump the posting dictionary of the corpus.index just merged into dirname, as text and in binary
+	 */
+	private static void writePostingDictionary(String dirname) throws IOException {
+		int maxTermId = postingSizes.length - 1;
+		while (maxTermId > 0 && postingSizes[maxTermId] == 0)
+			maxTermId--;
+		if (maxTermId < 0) {
+			// No posting list was written, posting.bin still holds termId 0
+			postingPositions = positionsDict = freqsDict = new long[1];
+			postingSizes = new int[1];
+			maxTermId = 0;
+		}
+		BufferedWriter postWriter = new BufferedWriter(new FileWriter(new File(dirname, "posting.dict")));
+		for (int termId = 0; termId <= maxTermId; termId++) {
+			if (postingSizes[termId] > 0)
+				postWriter.write(termId + "\t" + postingPositions[termId] + "\t" + postingSizes[termId] + "\n");
 		}
 		postWriter.close();
 
-		return totalFileCount;
+		BinaryDictionary.writePostings(dirname, postingPositions, postingSizes, maxTermId);
+		if (positional)
+			BinaryDictionary.writePositions(dirname, positionsDict, maxTermId);
+		if (frequencies)
+			BinaryDictionary.writeFreqs(dirname, freqsDict, maxTermId);
 	}
 
 	public static void main(String[] args) throws IOException {
+		/* Compact the segments of an index */
+		if (args.length == 3 && args[0].equals("-compact")) {
+			compact(args[1], args[2]);
+			return;
+		}
+
+		/* Delete documents from an index */
+		if (args.length >= 3 && args[0].equals("-delete")) {
+			System.out.println("Deleted Files: "
+					+ deleteDocuments(args[1], Arrays.asList(args).subList(2, args.length)));
+			return;
+		}
+
+		/* Add new documents of the dataset as a segment of an existing index */
+		boolean add = args.length > 0 && args[0].equals("-add");
+		if (add)
+			args = Arrays.copyOfRange(args, 1, args.length);
+
+		/*
+		 * Index term positions too, for phrase queries, and term frequencies, for ranking. Documents added to an index
+		 * get them if it has them.
+		 */
+		boolean positions = false, termFrequencies = false;
+		while (!add && args.length > 0 && (args[0].equals("-positions") || args[0].equals("-frequencies"))) {
+			positions |= args[0].equals("-positions");
+			termFrequencies |= args[0].equals("-frequencies");
+			args = Arrays.copyOfRange(args, 1, args.length);
+		}
+
 		/* Parse command line */
-		if (args.length != 3) {
-			System.err.println("Usage: java Index [Basic|VB|Gamma] data_dir output_dir");
+		if (args.length < 3 || args.length > 5) {
+			System.err.println("Usage: java Index [-add|[-positions] [-frequencies]] [Basic|VB|Gamma|Delta|PFor] data_dir output_dir [threads] [budget_MBs]");
+			System.err.println("       java Index -compact [Basic|VB|Gamma|Delta|PFor] output_dir");
+			System.err.println("       java Index -delete output_dir doc_name...");
 			return;
 		}
 
@@ -358,7 +1097,7 @@ public class Index {
 		try {
 			className = args[0];
 		} catch (Exception e) {
-			System.err.println("Index method must be \"Basic\", \"VB\", or \"Gamma\"");
+			System.err.println("Index method must be \"Basic\", \"VB\", \"Gamma\", \"Delta\", or \"PFor\"");
 			throw new RuntimeException(e);
 		}
 
@@ -367,7 +1106,13 @@ public class Index {
 
 		/* Get output directory */
 		String output = args[2];
-		runIndexer(className, root, output);
+		if (add)
+			addDocuments(className, root, output, args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime()
+					.availableProcessors(), args.length > 4 ? Long.parseLong(args[4]) << 20 : defaultMemoryBudget());
+		else
+			runIndexer(className, root, output, args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime()
+					.availableProcessors(), args.length > 4 ? Long.parseLong(args[4]) << 20 : defaultMemoryBudget(),
+					positions, termFrequencies);
 	}
 
 }
\ No newline at end of file
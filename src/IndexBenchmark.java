@@ -0,0 +1,96 @@
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Index.runIndexer() end to end, block inversion and the merge of the block runs, on a synthetic corpus, counted in
+ * files indexed per second. Words follow a Zipf distribution over a fixed vocabulary, which gives frequent terms
+ * posting lists in every run and rare terms a single posting, as in real text. The corpus is generated from a fixed
+ * seed, so it is the same in every fork.
+ */
+public class IndexBenchmark {
+
+	/* Shape of the synthetic corpus */
+	static final int BLOCKS = 4, FILES_PER_BLOCK = 250, WORDS_PER_FILE = 300, VOCABULARY = 30000;
+
+	/**
+	 * Write the synthetic corpus under dataDir, one subdirectory per block
+	 */
+	static void generate(File dataDir) throws IOException {
+		Random random = new Random(276);
+		double[] cumulative = new double[VOCABULARY];
+		double sum = 0;
+		for (int rank = 0; rank < VOCABULARY; rank++)
+			cumulative[rank] = sum += 1.0 / (rank + 1);
+		for (int b = 0; b < BLOCKS; b++) {
+			File blockDir = new File(dataDir, Integer.toString(b));
+			blockDir.mkdirs();
+			for (int f = 0; f < FILES_PER_BLOCK; f++) {
+				BufferedWriter writer = new BufferedWriter(new FileWriter(new File(blockDir, "doc" + f)));
+				for (int w = 0; w < WORDS_PER_FILE; w++) {
+					int rank = Arrays.binarySearch(cumulative, random.nextDouble() * sum);
+					writer.write("w" + (rank < 0 ? -rank - 1 : rank) + (w % 20 == 19 ? "\n" : " "));
+				}
+				writer.close();
+			}
+		}
+	}
+
+	private static void delete(File file) {
+		File[] files = file.listFiles();
+		if (files != null) {
+			for (File f : files)
+				delete(f);
+		}
+		file.delete();
+	}
+
+	static List<Microbenchmark.Workload> workloads() {
+		List<Microbenchmark.Workload> workloads = new ArrayList<Microbenchmark.Workload>();
+		for (final String codec : CodecBenchmark.CODECS) {
+			workloads.add(new Microbenchmark.Workload("index." + codec, "files") {
+				private File dir;
+				private final PrintStream quiet = new PrintStream(new OutputStream() {
+					@Override
+					public void write(int b) {
+					}
+				});
+
+				@Override
+				protected void setUp() throws IOException {
+					dir = Files.createTempDirectory("index").toFile();
+					generate(new File(dir, "data"));
+				}
+
+				@Override
+				protected long run() throws IOException {
+					// The indexer reports progress on System.out, which is where fork results go
+					PrintStream out = System.out;
+					System.setOut(quiet);
+					try {
+						int files = Index.runIndexer(codec, new File(dir, "data").getPath(),
+								new File(dir, "output").getPath());
+						sink = files;
+						return files;
+					} finally {
+						System.setOut(out);
+					}
+				}
+
+				@Override
+				protected void tearDown() {
+					delete(dir);
+				}
+			});
+		}
+		return workloads;
+	}
+}
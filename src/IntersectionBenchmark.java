@@ -0,0 +1,195 @@
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compares IntersectionEngine against folding posting lists pairwise with Query.intersection(), which is what
+ * Query.retrieve() used to do. Posting lists are read once up front so that only intersection is timed.
+ * <br>workloads() measures the same two approaches on synthetic pairs of posting lists across size ratios, as part of
+ * the Microbenchmark suite, along with pairs of dense lists intersected as arrays and as bitmaps (see BitmapIndex).
+ */
+public class IntersectionBenchmark {
+
+	/**
+	 * The pairwise approach: sort by size, then intersect the running result with the next list until it runs dry
+	 */
+	static int[] pairwise(int[][] lists) {
+		int[][] sorted = lists.clone();
+		Arrays.sort(sorted, new Comparator<int[]>() {
+			@Override
+			public int compare(int[] l1, int[] l2) {
+				return l1.length - l2.length;
+			}
+		});
+		int[] list = sorted[0];
+		for (int i = 1; i < sorted.length; i++) {
+			if ((list = Query.intersection(list, sorted[i])).length == 0)
+				break;
+		}
+		return list;
+	}
+
+	/* Length of the longer list of a synthetic pair, and the ratios of its length to that of the shorter one */
+	static final int LONG_SIZE = 1 << 16;
+	static final int[] RATIOS = { 1, 4, 16, 64, 256, 1024 };
+
+	/* docIds of a synthetic dense list are taken from this range, and the ratios of the range to their number */
+	static final int DENSE_RANGE = 1 << 20;
+	static final int[] DENSITIES = { 2, 4, 8 };
+
+	/**
+	 * @return sorted docIds, about one in density of the DENSE_RANGE first, always the same for the same arguments
+	 */
+	static int[] denseDocIds(int density, long seed) {
+		Random random = new Random(seed);
+		PostingList docIds = new PostingList(0);
+		for (int docId = 1; docId <= DENSE_RANGE; docId++) {
+			if (random.nextInt(density) == 0)
+				docIds.add(docId);
+		}
+		return docIds.toArray();
+	}
+
+	/**
+	 * @return sorted distinct docIds of size, about half of them taken from other (if any), always the same for the
+	 *         same arguments
+	 */
+	static int[] docIds(int size, int[] other, long seed) {
+		Random random = new Random(seed);
+		int[] docIds = new int[size];
+		for (int i = 0; i < size; i++)
+			docIds[i] = other != null && random.nextBoolean() ? other[random.nextInt(other.length)] : random
+					.nextInt(LONG_SIZE * 64);
+		Arrays.sort(docIds);
+		int n = 0;
+		for (int i = 0; i < size; i++) {
+			if (n == 0 || docIds[i] != docIds[n - 1])
+				docIds[n++] = docIds[i];
+		}
+		return Arrays.copyOf(docIds, n);
+	}
+
+	static List<Microbenchmark.Workload> workloads() {
+		List<Microbenchmark.Workload> workloads = new ArrayList<Microbenchmark.Workload>();
+		for (final int ratio : RATIOS) {
+			for (final String method : new String[] { "pairwise", "engine" }) {
+				workloads.add(new Microbenchmark.Workload("intersect." + method + ".1:" + ratio, "docIds") {
+					private int[] longList, shortList;
+
+					@Override
+					protected void setUp() {
+						longList = docIds(LONG_SIZE, null, 1);
+						shortList = docIds(LONG_SIZE / ratio, longList, ratio);
+					}
+
+					@Override
+					protected long run() {
+						if (method.equals("pairwise"))
+							sink = Query.intersection(shortList, longList);
+						else
+							sink = IntersectionEngine.intersect(shortList, longList);
+						return shortList.length + longList.length;
+					}
+				});
+			}
+		}
+		for (final int density : DENSITIES) {
+			for (final String method : new String[] { "engine", "bitmap" }) {
+				workloads.add(new Microbenchmark.Workload("intersect.dense." + method + ".1:" + density, "docIds") {
+					private PostingList list1, list2;
+
+					@Override
+					protected void setUp() {
+						int[] docIds1 = denseDocIds(density, 1), docIds2 = denseDocIds(density, 2);
+						if (method.equals("engine")) {
+							list1 = new PostingList(1, docIds1);
+							list2 = new PostingList(2, docIds2);
+						} else {
+							list1 = new PostingList(1, RoaringBitmap.of(docIds1));
+							list2 = new PostingList(2, RoaringBitmap.of(docIds2));
+						}
+					}
+
+					@Override
+					protected long run() {
+						sink = IntersectionEngine.intersect(list1, list2);
+						return list1.size() + list2.size();
+					}
+				});
+			}
+		}
+		return workloads;
+	}
+
+	public static void benchmark(String indexMode, String indexDirname, String[] queries, int iterations)
+			throws IOException {
+		Query queryService = new Query();
+		queryService.runQueryService(indexMode, indexDirname);
+
+		StringBuilder str = new StringBuilder();
+		str.append("Intersection Benchmark: " + indexDirname + " (" + iterations + " iterations):\n");
+		long totalPairwise = 0, totalEngine = 0;
+		for (String query : queries) {
+			int[][] lists = queryService.readPostings(query.split("\\s+"));
+			if (lists == null) {
+				str.append("\t" + query + ": no results found\n");
+				continue;
+			}
+			if (!Arrays.equals(pairwise(lists), IntersectionEngine.intersect(lists.clone())))
+				throw new IllegalStateException("Results differ for query: " + query);
+
+			// Warm up both paths before timing them
+			for (int i = 0; i < iterations; i++) {
+				pairwise(lists);
+				IntersectionEngine.intersect(lists.clone());
+			}
+			long startTime = System.nanoTime();
+			for (int i = 0; i < iterations; i++)
+				pairwise(lists);
+			long pairwiseTime = System.nanoTime() - startTime;
+			startTime = System.nanoTime();
+			for (int i = 0; i < iterations; i++)
+				IntersectionEngine.intersect(lists.clone());
+			long engineTime = System.nanoTime() - startTime;
+
+			totalPairwise += pairwiseTime;
+			totalEngine += engineTime;
+			str.append("\t" + query + ": pairwise " + (pairwiseTime / 1000.0 / iterations) + " us, engine "
+					+ (engineTime / 1000.0 / iterations) + " us\n");
+		}
+		str.append("\tTotal: pairwise " + (totalPairwise / 1000000.0) + " ms, engine " + (totalEngine / 1000000.0)
+				+ " ms\n");
+		System.out.println(str.toString());
+	}
+
+	public static void main(String[] args) throws IOException {
+		if (args.length < 2) {
+			System.err.println("Usage: java IntersectionBenchmark [Basic|VB|Gamma] [small|large|citeseer] [iterations]");
+			return;
+		}
+		String type = args[0];
+		String dataset = args[1];
+		int iterations = args.length > 2 ? Integer.parseInt(args[2]) : 1000;
+		String[] queries = null;
+		switch (dataset) {
+		case "small":
+			queries = P1Tester.queriesSmall;
+			break;
+		case "large":
+			queries = P1Tester.queriesLarge;
+			break;
+		case "citeseer":
+			queries = P1Tester.queriesCiteseer;
+			break;
+		default:
+			System.err.println("Unknown dataset: " + dataset);
+			return;
+		}
+		String suffix = type.equals("Basic") ? "" : "-".concat(type);
+		benchmark(type, "./index/".concat(dataset).concat(suffix), queries, iterations);
+	}
+}
@@ -0,0 +1,84 @@
+import java.util.Arrays;
+
+/**
+ * Results of conjunctive queries, keyed by the set of termIds intersected. Terms are a set: "a b" and "b a" share an
+ * entry, and so do "a a b" and "a b". Besides exact matches, a query can start from the largest subset of its terms
+ * whose intersection is cached, and only intersect that with the lists of the terms left.
+ */
+public class IntersectionCache extends DocIdCache<IntersectionCache.TermSet> {
+
+	/* Queries with more distinct terms than this only probe their whole term set, there would be too many subsets */
+	static final int MAX_SUBSET_TERMS = 8;
+
+	/**
+	 * A set of termIds, sorted without duplicates
+	 */
+	public static final class TermSet {
+
+		private final int[] termIds;
+		private final int hash;
+
+		public TermSet(int[] termIds) {
+			this.termIds = termIds;
+			this.hash = Arrays.hashCode(termIds);
+		}
+
+		public int[] getTermIds() {
+			return termIds;
+		}
+
+		public int size() {
+			return termIds.length;
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			return o instanceof TermSet && Arrays.equals(termIds, ((TermSet) o).termIds);
+		}
+	}
+
+	public IntersectionCache(long budget) {
+		super(budget);
+	}
+
+	/**
+	 * Find the largest subset of termIds, of at least two terms, whose intersection is cached. Counts as a single
+	 * lookup: a hit if one is found.
+	 *
+	 * @param termIds
+	 *            sorted termIds without duplicates
+	 * @return the subset and the docIds of its intersection, or null if none is cached
+	 */
+	public Pair<TermSet, int[]> largestSubset(int[] termIds) {
+		int k = termIds.length;
+		TermSet all = new TermSet(termIds);
+		int[] docIds = peek(all);
+		if (docIds != null || k > MAX_SUBSET_TERMS) {
+			count(docIds != null);
+			return docIds == null ? null : new Pair<TermSet, int[]>(all, docIds);
+		}
+		for (int size = k - 1; size >= 2; size--) {
+			for (int mask = 1; mask < 1 << k; mask++) {
+				if (Integer.bitCount(mask) != size)
+					continue;
+				int[] subset = new int[size];
+				for (int i = 0, n = 0; i < k; i++) {
+					if ((mask & 1 << i) != 0)
+						subset[n++] = termIds[i];
+				}
+				TermSet set = new TermSet(subset);
+				if ((docIds = peek(set)) != null) {
+					count(true);
+					return new Pair<TermSet, int[]>(set, docIds);
+				}
+			}
+		}
+		count(false);
+		return null;
+	}
+}
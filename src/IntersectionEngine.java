@@ -0,0 +1,149 @@
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Conjunctive (AND) evaluation of any number of sorted docId arrays in a single pass.
+ *
+ * The shortest list drives the search: each of its docIds is looked up in every other list in turn, and each list keeps
+ * its own cursor so no docId is ever looked at twice. How a list is searched depends on how much longer it is than the
+ * driver. A list of similar size is scanned linearly, since the next match is almost always a few slots away, while a
+ * much longer list is searched by galloping (exponential search followed by binary search) so most of it is never
+ * touched. Two lists of nearly equal size get a dedicated branch-free merge, as every docId of both ends up being
+ * visited anyway and the outcome of each comparison is close to a coin flip.
+ *
+ * Posting lists stored as bitmaps (see BitmapIndex) are ANDed with each other a word at a time instead, and the docIds
+ * left by the other lists are probed into the result.
+ */
+public class IntersectionEngine {
+
+	/* A list this many times longer than the shortest one is galloped instead of scanned */
+	public static final int GALLOP_RATIO = 8;
+	/* Two lists are merged branch-free when the longer one is less than this many times longer than the other */
+	public static final int MERGE_RATIO = 2;
+
+	/**
+	 * Intersect docId lists, every list must be sorted in increasing order
+	 *
+	 * @param lists
+	 *            the lists to intersect, they are reordered by increasing length
+	 * @return docIds present in every list, an empty array if there are none
+	 */
+	public static int[] intersect(int[]... lists) {
+		if (lists.length == 0)
+			return new int[0];
+		if (lists.length == 1)
+			return lists[0];
+		Arrays.sort(lists, new Comparator<int[]>() {
+			@Override
+			public int compare(int[] l1, int[] l2) {
+				return l1.length - l2.length;
+			}
+		});
+		int[] driver = lists[0];
+		if (driver.length == 0)
+			return driver;
+		if (lists.length == 2 && lists[1].length < MERGE_RATIO * driver.length)
+			return merge(driver, lists[1]);
+
+		int k = lists.length;
+		int[] result = new int[driver.length];
+		int n = 0;
+		// Current position within every list but the driver
+		int[] at = new int[k];
+		boolean[] gallop = new boolean[k];
+		for (int i = 1; i < k; i++)
+			gallop[i] = lists[i].length >= GALLOP_RATIO * driver.length;
+
+		search: for (int d = 0; d < driver.length; d++) {
+			int docId = driver[d];
+			for (int i = 1; i < k; i++) {
+				int[] list = lists[i];
+				int j = gallop[i] ? gallop(list, at[i], docId) : scan(list, at[i], docId);
+				if (j == list.length)
+					break search; // one list is exhausted, nothing further can match
+				at[i] = j;
+				if (list[j] != docId)
+					continue search;
+			}
+			result[n++] = docId;
+		}
+		return n == result.length ? result : Arrays.copyOf(result, n);
+	}
+
+	/**
+	 * Intersect posting lists, any of which may be backed by a bitmap. The bitmaps are ANDed together, the other lists
+	 * are intersected as by intersect(int[]...), and what is left of them is then probed into the bitmap. A list backed
+	 * by a bitmap is never laid out as an array, unless every list is.
+	 *
+	 * @return docIds present in every list, an empty array if there are none
+	 */
+	public static int[] intersect(PostingList... postings) {
+		RoaringBitmap bitmap = null;
+		List<int[]> lists = new ArrayList<int[]>();
+		for (PostingList p : postings) {
+			RoaringBitmap b = p.getBitmap();
+			if (b == null)
+				lists.add(p.toArray());
+			else
+				bitmap = bitmap == null ? b : bitmap.and(b);
+		}
+		if (bitmap == null)
+			return intersect(lists.toArray(new int[lists.size()][]));
+		if (lists.isEmpty())
+			return bitmap.toArray();
+		return bitmap.retainFrom(intersect(lists.toArray(new int[lists.size()][])));
+	}
+
+	/**
+	 * Branch-free merge of two lists of similar length. Every step moves forward in one or both lists depending only on
+	 * comparisons, which the JIT can turn into conditional moves instead of hard-to-predict jumps.
+	 */
+	static int[] merge(int[] a, int[] b) {
+		int[] result = new int[Math.min(a.length, b.length)];
+		int n = 0, i = 0, j = 0;
+		while (i < a.length && j < b.length) {
+			int x = a[i], y = b[j];
+			result[n] = x;
+			n += x == y ? 1 : 0;
+			i += x <= y ? 1 : 0;
+			j += y <= x ? 1 : 0;
+		}
+		return n == result.length ? result : Arrays.copyOf(result, n);
+	}
+
+	/**
+	 * @return index of the first docId >= target at or after from, list.length if there is none
+	 */
+	static int scan(int[] list, int from, int target) {
+		while (from < list.length && list[from] < target)
+			from++;
+		return from;
+	}
+
+	/**
+	 * Exponential search followed by binary search
+	 *
+	 * @return index of the first docId >= target at or after from, list.length if there is none
+	 */
+	static int gallop(int[] list, int from, int target) {
+		// Double the step until we pass a docId >= target, every docId before lo is known to be smaller than target
+		int lo = from, hi = from, step = 1;
+		while (hi < list.length && list[hi] < target) {
+			lo = hi + 1;
+			hi = lo + step;
+			step <<= 1;
+		}
+		hi = Math.min(hi, list.length);
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (list[mid] < target)
+				lo = mid + 1;
+			else
+				hi = mid;
+		}
+		return lo;
+	}
+}
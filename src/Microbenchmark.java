@@ -0,0 +1,227 @@
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Runs the benchmark suite the way JMH does: every benchmark runs in forks, fresh JVMs started with the same JVM
+ * options as this one, so that one benchmark's JIT profile and heap do not leak into the next. Each fork runs warmup
+ * iterations, which are thrown away, then measurement iterations of fixed duration. The score of an iteration is the
+ * number of items processed per second, reported as the mean over all forks with a 99.9% confidence interval, along
+ * with the bytes allocated per item by the benchmark thread (worker threads a benchmark starts are not counted). Workloads are built from fixed seeds, so every run
+ * measures exactly the same data.
+ *
+ * Usage: java Microbenchmark [-f forks] [-wi warmups] [-i iterations] [-t millis] [-l] [regex]
+ */
+public class Microbenchmark {
+
+	/**
+	 * A benchmark. setUp() runs once per fork before any iteration and is not measured.
+	 */
+	public static abstract class Workload {
+
+		private final String name, unit;
+		// Results of run() end up here, so the JIT cannot throw away the work that produced them
+		protected Object sink;
+
+		/**
+		 * @param unit what run() counts, in the plural
+		 */
+		protected Workload(String name, String unit) {
+			this.name = name;
+			this.unit = unit;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public String getUnit() {
+			return unit;
+		}
+
+		protected void setUp() throws Exception {
+		}
+
+		protected void tearDown() throws Exception {
+		}
+
+		/**
+		 * Run the benchmark once
+		 *
+		 * @return number of items processed (docIds, postings, files), which scores are counted in
+		 */
+		protected abstract long run() throws Exception;
+	}
+
+	/* Every benchmark of the suite, in the order they run */
+	static List<Workload> suite() {
+		List<Workload> suite = new ArrayList<Workload>();
+		suite.addAll(CodecBenchmark.workloads());
+		suite.addAll(IntersectionBenchmark.workloads());
+		suite.addAll(IndexBenchmark.workloads());
+		return suite;
+	}
+
+	private static final String RESULT = "# iteration ";
+
+	private int forks = 2, warmups = 5, iterations = 5;
+	private long millis = 1000;
+
+	/*
+	 * Run warmup and measurement iterations of a workload in this JVM
+	 *
+	 * @return items per second and bytes allocated per item of every measurement iteration
+	 */
+	private List<double[]> runIterations(Workload workload) throws Exception {
+		ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		boolean allocation = threads instanceof com.sun.management.ThreadMXBean
+				&& ((com.sun.management.ThreadMXBean) threads).isThreadAllocatedMemorySupported();
+		long threadId = Thread.currentThread().getId();
+		List<double[]> results = new ArrayList<double[]>();
+		workload.setUp();
+		try {
+			for (int i = 0; i < warmups + iterations; i++) {
+				long allocated = allocation ? ((com.sun.management.ThreadMXBean) threads)
+						.getThreadAllocatedBytes(threadId) : 0;
+				long items = 0, start = System.nanoTime(), elapsed;
+				do {
+					items += workload.run();
+				} while ((elapsed = System.nanoTime() - start) < millis * 1000000L);
+				if (allocation)
+					allocated = ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(threadId)
+							- allocated;
+				if (i >= warmups)
+					results.add(new double[] { items * 1e9 / elapsed,
+							allocation ? (double) allocated / items : Double.NaN });
+			}
+		} finally {
+			workload.tearDown();
+		}
+		return results;
+	}
+
+	/*
+	 * Run a workload in a fork, see runIterations()
+	 */
+	private List<double[]> fork(Workload workload) throws IOException, InterruptedException {
+		List<String> command = new ArrayList<String>();
+		command.add(new File(new File(System.getProperty("java.home"), "bin"), "java").getPath());
+		command.addAll(ManagementFactory.getRuntimeMXBean().getInputArguments());
+		command.add("-cp");
+		command.add(System.getProperty("java.class.path"));
+		command.add(Microbenchmark.class.getName());
+		command.add("-wi");
+		command.add(Integer.toString(warmups));
+		command.add("-i");
+		command.add(Integer.toString(iterations));
+		command.add("-t");
+		command.add(Long.toString(millis));
+		command.add("-run");
+		command.add(workload.getName());
+		Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+		List<String> lines = new ArrayList<String>();
+		List<double[]> results = new ArrayList<double[]>();
+		BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()));
+		String line;
+		while ((line = reader.readLine()) != null) {
+			lines.add(line);
+			if (line.startsWith(RESULT)) {
+				String[] fields = line.substring(RESULT.length()).split(" ");
+				results.add(new double[] { Double.parseDouble(fields[0]), Double.parseDouble(fields[1]) });
+			}
+		}
+		if (process.waitFor() != 0)
+			throw new IOException("Fork of " + workload.getName() + " failed:\n" + String.join("\n", lines));
+		return results;
+	}
+
+	/*
+	 * Two-sided Student t quantile for a 99.9% interval, from the Cornish-Fisher expansion around the normal one
+	 */
+	private static double t999(int df) {
+		double z = 3.2905, z3 = z * z * z, z5 = z3 * z * z;
+		return z + (z3 + z) / (4 * df) + (5 * z5 + 16 * z3 + 3 * z) / (96.0 * df * df);
+	}
+
+	private void runSuite(Pattern filter) throws Exception {
+		System.out.println(String.format(Locale.ROOT, "# %d forks, %d warmup and %d measurement iterations of %d ms",
+				forks, warmups, iterations, millis));
+		System.out.println(String.format(Locale.ROOT, "%-32s %5s %12s %12s  %-12s %12s", "Benchmark", "Cnt", "Score",
+				"Error", "Units", "Alloc B/item"));
+		for (Workload workload : suite()) {
+			if (!filter.matcher(workload.getName()).find())
+				continue;
+			List<double[]> results = new ArrayList<double[]>();
+			if (forks == 0) // in this JVM, for debugging only
+				results.addAll(runIterations(workload));
+			for (int f = 0; f < forks; f++)
+				results.addAll(fork(workload));
+			int n = results.size();
+			double mean = 0, alloc = 0, var = 0;
+			for (double[] r : results) {
+				mean += r[0] / n;
+				alloc += r[1] / n;
+			}
+			for (double[] r : results)
+				var += (r[0] - mean) * (r[0] - mean) / Math.max(1, n - 1);
+			double error = n > 1 ? t999(n - 1) * Math.sqrt(var / n) : Double.NaN;
+			double scale = mean >= 1e6 ? 1e6 : 1;
+			System.out.println(String.format(Locale.ROOT, "%-32s %5d %12.3f %12.3f  %-12s %12.2f", workload.getName(),
+					n, mean / scale, error / scale, (scale > 1 ? "M" : "") + workload.getUnit() + "/s", alloc));
+		}
+	}
+
+	public static void main(String[] args) throws Exception {
+		Microbenchmark bench = new Microbenchmark();
+		String run = null, filter = "";
+		boolean list = false;
+		for (int i = 0; i < args.length; i++) {
+			switch (args[i]) {
+			case "-f":
+				bench.forks = Integer.parseInt(args[++i]);
+				break;
+			case "-wi":
+				bench.warmups = Integer.parseInt(args[++i]);
+				break;
+			case "-i":
+				bench.iterations = Integer.parseInt(args[++i]);
+				break;
+			case "-t":
+				bench.millis = Long.parseLong(args[++i]);
+				break;
+			case "-l":
+				list = true;
+				break;
+			case "-run": // inside a fork
+				run = args[++i];
+				break;
+			default:
+				filter = args[i];
+			}
+		}
+		if (list) {
+			for (Workload workload : suite())
+				System.out.println(workload.getName());
+			return;
+		}
+		if (run == null) {
+			bench.runSuite(Pattern.compile(filter));
+			return;
+		}
+		for (Workload workload : suite()) {
+			if (workload.getName().equals(run)) {
+				for (double[] result : bench.runIterations(workload))
+					System.out.println(RESULT + result[0] + " " + result[1]);
+				return;
+			}
+		}
+		throw new IllegalArgumentException("Unknown benchmark: " + run);
+	}
+}
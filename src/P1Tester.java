@@ -3,8 +3,20 @@ import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
 
 public class P1Tester {
 
@@ -38,6 +50,7 @@ public class P1Tester {
 		str.append("\tMemory Used: " + ((memoryAfter - memoryBefore) / 1000000.0) + " MBs\n");
 		str.append("\tTime Used: " + ((endTime - startTime) / 1000.0) + " secs\n");
 		str.append("\tIndex Size: " + (indexSize / 1048576.0) + " MBs\n");
+		str.append("\tDecode Throughput: " + testDecode(indexMode, indexDirname) + " MPostings/sec\n");
 		str.append("\tAlright. Good Bye.\n");
 
 		System.out.println(str.toString());
@@ -63,6 +76,196 @@ public class P1Tester {
 
 	}
 
+	/**
+	 * Index a dataset again with the given memory budget, which may be small enough for hundreds of runs to be written
+	 * and merged over several passes, and check that the index is the same byte for byte as the one testIndex() wrote
+	 * with the default budget
+	 */
+	public static boolean testBudget(String indexMode, String dataDirname, String indexDirname, long budget) {
+		Report report = new Report("Budget Test Result: " + indexDirname + " (" + budget + " bytes)");
+		try {
+			File budgetDir = new File(indexDirname + "-budget");
+			Index.runIndexer(indexMode, dataDirname, budgetDir.getPath(), 1, budget);
+			for (File file : new File(indexDirname).listFiles()) {
+				File other = new File(budgetDir, file.getName());
+				if (!file.getName().equals("stats.txt"))
+					report.check(other.exists() && Arrays.equals(Files.readAllBytes(file.toPath()),
+							Files.readAllBytes(other.toPath())), file.getName() + " is the same");
+			}
+		} catch (Exception e) {
+			report.fail(e);
+		}
+		return report.print();
+	}
+
+	/**
+	 * Check BinaryDictionary.termsWithPrefix() against every term of term.dict, for prefixes of the terms on both sides
+	 * of every block boundary of term.bin, and for prefixes no term starts with: before the first term, after the
+	 * last one and in between
+	 */
+	public static boolean testPrefix(String indexDirname) {
+		Report report = new Report("Prefix Test Result: " + indexDirname);
+		try {
+			List<String> lines = Files.readAllLines(new File(indexDirname, "term.dict").toPath(),
+					StandardCharsets.UTF_8);
+			final byte[][] terms = new byte[lines.size()][];
+			Integer[] order = new Integer[terms.length];
+			Map<String, Integer> termIds = new HashMap<String, Integer>();
+			for (int t = 0; t < terms.length; t++) {
+				String line = lines.get(t);
+				String term = line.substring(0, line.lastIndexOf('\t'));
+				terms[t] = term.getBytes(StandardCharsets.UTF_8);
+				order[t] = t;
+				termIds.put(term, Integer.parseInt(line.substring(line.lastIndexOf('\t') + 1)));
+			}
+			Arrays.sort(order, new Comparator<Integer>() {
+				@Override
+				public int compare(Integer i1, Integer i2) {
+					return BinaryDictionary.compareBytes(terms[i1], terms[i2]);
+				}
+			});
+
+			Set<String> prefixes = new TreeSet<String>();
+			prefixes.add("");
+			prefixes.add("\u0001");
+			prefixes.add("\uffff");
+			for (int i = 0; i < order.length; i += FrontCodedTerms.BLOCK_SIZE) {
+				for (int j = Math.max(0, i - 1); j <= i; j++) {
+					String term = new String(terms[order[j]], StandardCharsets.UTF_8);
+					for (int length = 1; length <= term.length(); length++)
+						prefixes.add(term.substring(0, length));
+					prefixes.add(term + "\uffff");
+				}
+			}
+
+			BinaryDictionary dict = new BinaryDictionary(indexDirname);
+			for (String prefix : prefixes) {
+				byte[] key = prefix.getBytes(StandardCharsets.UTF_8);
+				List<Pair<String, Integer>> expected = new ArrayList<Pair<String, Integer>>();
+				for (int t : order) {
+					if (terms[t].length >= key.length && BinaryDictionary.compareBytes(terms[t], key.length, key) == 0) {
+						String term = new String(terms[t], StandardCharsets.UTF_8);
+						expected.add(Pair.make(term, termIds.get(term)));
+					}
+				}
+				report.check(expected.equals(dict.termsWithPrefix(prefix)), "terms starting with \"" + prefix
+						+ "\" are found");
+			}
+		} catch (Exception e) {
+			report.fail(e);
+		}
+		return report.print();
+	}
+
+	/**
+	 * Decode every posting list of an index straight from memory, so that only the codec is measured
+	 * 
+	 * @return millions of docIds decoded per second
+	 */
+	public static double testDecode(String indexMode, String indexDirname) {
+		try {
+			BaseIndex index = BitmapIndex.forMethod(indexMode);
+			RandomAccessFile indexFile = new RandomAccessFile(new File(indexDirname, "corpus.index"), "r");
+			FileChannel fc = indexFile.getChannel();
+			ByteBuffer buffer = fc.map(FileChannel.MapMode.READ_ONLY, 0, fc.size());
+			indexFile.close();
+			long postings = 0;
+			long startTime = System.nanoTime();
+			while (buffer.hasRemaining())
+				postings += index.readPosting(buffer).size();
+			long endTime = System.nanoTime();
+			return postings * 1000.0 / Math.max(1, endTime - startTime);
+		} catch (Exception e) {
+			e.printStackTrace();
+			return 0;
+		}
+	}
+
+	/**
+	 * Index a small dataset of two blocks holding non-ASCII terms in one go, then again as its first block, to which
+	 * the second is added as a segment before both are compacted, and check that queries get the same documents from
+	 * the split index, before and after compaction, as from the other one
+	 */
+	public static boolean testSegments(String indexMode) {
+		Report report = new Report("Segment Test Result: " + indexMode);
+		try {
+			File dir = new File("./index/segments"), data = new File(dir, "data"), first = new File(dir, "first");
+			for (int block = 0; block < 2; block++) {
+				new File(data, "" + block).mkdirs();
+				new File(first, "0").mkdirs();
+				for (int doc = 0; doc < 5; doc++) {
+					byte[] text = ((block + doc) % 2 == 0 ? "caf\u00e9 na\u00efve " : "cafe plain ").concat("word" + doc)
+							.getBytes(StandardCharsets.UTF_8);
+					Files.write(new File(data, block + "/doc" + doc).toPath(), text);
+					if (block == 0)
+						Files.write(new File(first, "0/doc" + doc).toPath(), text);
+				}
+			}
+			String whole = new File(dir, "whole").getPath(), split = new File(dir, "split").getPath();
+			Index.runIndexer(indexMode, data.getPath(), whole);
+			Index.runIndexer(indexMode, first.getPath(), split);
+			Index.addDocuments(indexMode, data.getPath(), split, 1, Index.defaultMemoryBudget());
+
+			Query expected = new Query();
+			expected.runQueryService(indexMode, whole);
+			for (int pass = 0; pass < 2; pass++) {
+				Query query = new Query();
+				query.runQueryService(indexMode, split);
+				for (String text : new String[] { "caf\u00e9", "na\u00efve word2", "cafe", "word0" }) {
+					// Query terms are decoded from the platform charset, as documents are
+					String q = new String(text.getBytes(StandardCharsets.UTF_8), Charset.defaultCharset());
+					report.check(query.formatQueryResult(query.retrieve(q)).equals(expected.formatQueryResult(
+							expected.retrieve(q))), "\"" + text + "\" gets the same documents "
+							+ (pass == 0 ? "with a segment" : "once compacted"));
+				}
+				Index.compact(indexMode, split);
+			}
+		} catch (Exception e) {
+			report.fail(e);
+		}
+		return report.print();
+	}
+
+	/**
+	 * Index a dataset with every other method, and check that each index decodes to the same posting lists as the one
+	 * testIndex() wrote with the Basic method
+	 */
+	public static boolean testCodecs(String dataset) {
+		Report report = new Report("Codec Test Result: " + dataset);
+		try {
+			List<PostingList> expected = readPostings("Basic", "./index/".concat(dataset));
+			for (String type : new String[] { "VB", "Gamma", "Delta", "PFor" }) {
+				String indexDirname = "./index/".concat(dataset).concat("-").concat(type);
+				testIndex(type, "./datasets/".concat(dataset), indexDirname);
+				List<PostingList> postings = readPostings(type, indexDirname);
+				boolean same = postings.size() == expected.size();
+				for (int i = 0; same && i < postings.size(); i++) {
+					same = postings.get(i).getTermId() == expected.get(i).getTermId()
+							&& Arrays.equals(postings.get(i).toArray(), expected.get(i).toArray());
+				}
+				report.check(same, type + " decodes to the posting lists of Basic");
+			}
+		} catch (Exception e) {
+			report.fail(e);
+		}
+		return report.print();
+	}
+
+	/*
+	 * Every posting list of the corpus.index of an index directory, in the order they are laid out
+	 */
+	private static List<PostingList> readPostings(String indexMode, String indexDirname) throws Exception {
+		BaseIndex index = BitmapIndex.forMethod(indexMode);
+		RandomAccessFile indexFile = new RandomAccessFile(new File(indexDirname, "corpus.index"), "r");
+		FileChannel fc = indexFile.getChannel();
+		ByteBuffer buffer = fc.map(FileChannel.MapMode.READ_ONLY, 0, fc.size());
+		indexFile.close();
+		List<PostingList> postings = new ArrayList<PostingList>();
+		while (buffer.hasRemaining())
+			postings.add(index.readPosting(buffer));
+		return postings;
+	}
+
 	public static void testQuery(String indexMode, String indexDirname, String[] queries, String outputDir) {
 		StringBuilder str = new StringBuilder();
 		str.append("Query Test Result: " + Arrays.toString(queries) + ":\n");
@@ -83,7 +286,7 @@ public class P1Tester {
 
 		for (int i = 0; i < queries.length; i++) {
 			System.out.println("Query[" + (i + 1) + "]:" + queries[i]);
-			List<Integer> hitDocs = null;
+			int[] hitDocs = null;
 			try {
 				hitDocs = queryService.retrieve(queries[i]);
 			} catch (IOException e) {
@@ -137,6 +340,36 @@ public class P1Tester {
 
 	}
 
+	/**
+	 * Run a query set twice through a posting list cache and an intersection cache of the given budget, and check that
+	 * every result is the one computed without caches, and that repeated terms and term sets were served from them
+	 */
+	public static boolean testCache(String indexMode, String indexDirname, String[] queries, long budget) {
+		Report report = new Report("Cache Test Result: " + indexDirname);
+		try {
+			Query uncached = new Query(), cached = new Query();
+			uncached.runQueryService(indexMode, indexDirname);
+			cached.runQueryService(indexMode, indexDirname);
+			cached.setCache(new PostingCache(budget));
+			cached.setIntersectionCache(new IntersectionCache(budget));
+			for (int round = 0; round < 2; round++) {
+				for (String query : queries) {
+					report.check(Arrays.equals(cached.retrieve(query), uncached.retrieve(query)), "\"" + query
+							+ "\" gets the same documents in round " + (round + 1));
+				}
+			}
+			report.line("Posting cache: " + cached.getCache());
+			report.line("Intersection cache: " + cached.getIntersectionCache());
+			// Lists stored as bitmaps are not cached, so a query set of frequent terms only may put nothing there
+			report.check(cached.getCache().getWeight() == 0 || cached.getCache().getHits() > 0,
+					"lists in the posting cache are hit");
+			report.check(cached.getIntersectionCache().getHits() > 0, "the intersection cache is hit");
+		} catch (Exception e) {
+			report.fail(e);
+		}
+		return report.print();
+	}
+
 	public static void main(String[] args) {
 		String type = "Basic";
 		String dataset = "large";
@@ -155,6 +388,51 @@ public class P1Tester {
 		String suffix = type.equals("Basic") ? "" : "-".concat(type);
 		testIndex(type, "./datasets/".concat(dataset), "./index/".concat(dataset).concat(suffix));
 		//testQuery(type, "./index/".concat(dataset).concat(suffix), queries, "./output/".concat(dataset).concat(suffix));
-		
+		boolean passed = testCodecs(dataset);
+		passed &= testBudget(type, "./datasets/".concat(dataset), "./index/".concat(dataset).concat(suffix), 64 << 10);
+		passed &= testPrefix("./index/".concat(dataset).concat(suffix));
+		passed &= testCache(type, "./index/".concat(dataset).concat(suffix), queries, Query.DEFAULT_CACHE_BYTES);
+		passed &= testSegments(type);
+		if (!passed)
+			System.exit(1);
+	}
+
+	/*
+	 * Outcome of a test: what it measured, and every assertion it made that failed, printed under its title
+	 */
+	private static class Report {
+
+		private final StringBuilder str = new StringBuilder();
+		private int failures = 0;
+
+		Report(String title) {
+			str.append(title + ":\n");
+		}
+
+		void line(String text) {
+			str.append("\t" + text + "\n");
+		}
+
+		void check(boolean passed, String assertion) {
+			if (!passed) {
+				line("Failed: " + assertion);
+				failures++;
+			}
+		}
+
+		void fail(Exception e) {
+			e.printStackTrace();
+			line("Failed: " + e);
+			failures++;
+		}
+
+		/**
+		 * @return whether every assertion passed
+		 */
+		boolean print() {
+			line(failures == 0 ? "Passed." : failures + " assertions failed.");
+			System.out.println(str.toString());
+			return failures == 0;
+		}
 	}
 }
@@ -0,0 +1,259 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.util.Arrays;
+
+/**
+ * Patched frame-of-reference (PForDelta) coded posting lists.
+ * <br>The layout is termId and docFreq (Variable Byte), then the docId gaps, less one so that consecutive docIds cost
+ * nothing, in blocks of BLOCK_SIZE. Every block is led by a skip entry, the last docId of the block and the byte length
+ * of the block, just like VBIndex. A block is a bit width b (byte), a number of exceptions e (byte), the low b bits of
+ * every gap bit-packed into 4 * b ints, then e exceptions: the index of a gap in the block (byte) and the bits of the
+ * gap above b (Variable Byte). The gaps left after the last full block are Variable Byte coded, as are the gaps of
+ * lists shorter than BLOCK_SIZE, which therefore take about as much room as with VBIndex.
+ * <br>b is chosen per block as the width that makes the block smallest, so a few large gaps become exceptions instead
+ * of widening every gap. A block is unpacked by the routine of its bit width (see BitUnpacker), with no loop or branch
+ * per gap, then the few exceptions are patched in.
+ */
+public class PForIndex implements BaseIndex {
+
+	/* Number of gaps in a block */
+	static final int BLOCK_SIZE = 128;
+
+	// Reused for every posting list read from a FileChannel, and for every posting list written
+	private final ReadAheadBuffer readAhead = new ReadAheadBuffer(1 << 16);
+	private ByteBuffer writeBuffer = ByteBuffer.allocate(1 << 16);
+	private final int[] gaps = new int[BLOCK_SIZE];
+	private final int[] words = new int[BLOCK_SIZE + 1];
+
+	/**
+	 * Read the posting list at the current position of fc. Bytes are read ahead in large chunks and decoded by
+	 * readPosting(ByteBuffer), fc is left positioned right after the posting list.
+	 */
+	public PostingList readPosting(FileChannel fc) {
+		try {
+			return readAhead.readPosting(this, fc);
+		} catch (IOException e) {
+			return null;
+		}
+	}
+
+	public PostingList readPosting(ByteBuffer buf) {
+		int termId = VBIndex.readNumber(buf);
+		int docFreq = VBIndex.readNumber(buf);
+		int[] docIds = new int[docFreq];
+		int i = 0, last = 0;
+		if (docFreq >= BLOCK_SIZE) {
+			// Scratch space of this call only, so that any number of threads can decode from the same index
+			int[] gaps = new int[BLOCK_SIZE], words = new int[BLOCK_SIZE + 1];
+			for (; docFreq - i >= BLOCK_SIZE; i += BLOCK_SIZE) {
+				// Skip entries are only useful to cursors, we are decoding every block anyway
+				VBIndex.readNumber(buf);
+				VBIndex.readNumber(buf);
+				readBlock(buf, words, gaps);
+				for (int k = 0; k < BLOCK_SIZE; k++)
+					docIds[i + k] = last += gaps[k] + 1;
+			}
+		}
+		for (; i < docFreq; i++)
+			docIds[i] = last += VBIndex.readNumber(buf) + 1;
+		return new PostingList(termId, docIds);
+	}
+
+	/**
+	 * Decode the block at the current position of buf into gaps (less one), leaving buf positioned right after it
+	 *
+	 * @param words
+	 *            scratch space for the packed ints
+	 */
+	static void readBlock(ByteBuffer buf, int[] words, int[] gaps) {
+		int b = buf.get();
+		int exceptions = buf.get() & 0xff;
+		for (int w = 0; w < 4 * b; w++)
+			words[w] = buf.getInt();
+		BitUnpacker.unpack(words, b, gaps);
+		for (int j = 0; j < exceptions; j++) {
+			int k = buf.get() & 0xff;
+			gaps[k] |= VBIndex.readNumber(buf) << b;
+		}
+	}
+
+	/**
+	 * Pack BLOCK_SIZE numbers into 4 * b words, keeping only their low b bits. Number i is bits i * b to (i + 1) * b of
+	 * words, lowest bits first, and lies within words k and k + 1 for k = i * b / 32, so words needs a spare word.
+	 */
+	static void pack(int[] numbers, int b, int[] words) {
+		Arrays.fill(words, 0);
+		long mask = (1L << b) - 1;
+		for (int i = 0, bit = 0; i < BLOCK_SIZE; i++, bit += b) {
+			int k = bit >>> 5;
+			long shifted = (numbers[i] & mask) << (bit & 31);
+			words[k] |= (int) shifted;
+			words[k + 1] |= (int) (shifted >>> 32);
+		}
+	}
+
+	/**
+	 * @return the bit width that makes a block of gaps smallest: b bits for every gap, plus an exception for each gap
+	 *         that does not fit
+	 */
+	static int bitWidth(int[] gaps) {
+		// How many gaps need each number of bits
+		int[] counts = new int[33];
+		for (int gap : gaps)
+			counts[32 - Integer.numberOfLeadingZeros(gap)]++;
+		int best = 32, bestBytes = Integer.MAX_VALUE;
+		for (int b = 32; b >= 0; b--) {
+			int bytes = 16 * b;
+			for (int bits = b + 1; bits <= 32; bits++)
+				bytes += counts[bits] * (1 + (bits - b + 6) / 7);
+			if (bytes < bestBytes) {
+				best = b;
+				bestBytes = bytes;
+			}
+		}
+		return best;
+	}
+
+	public void writePosting(SeekableByteChannel fc, PostingList p) {
+		int size = p.size();
+		int[] docIds = p.getArray();
+		// VB numbers take at most 5 bytes. A block takes a skip entry, 2 bytes, and at most 4 bytes per gap packed plus
+		// 6 bytes per exception.
+		int bound = 10 + size * 5 + (size / BLOCK_SIZE) * (12 + BLOCK_SIZE * 10);
+		if (writeBuffer.capacity() < bound)
+			writeBuffer = ByteBuffer.allocate(Math.max(bound, writeBuffer.capacity() * 2));
+		writeBuffer.clear();
+		VBIndex.writeNumber(writeBuffer, p.getTermId());
+		VBIndex.writeNumber(writeBuffer, size);
+		int i = 0, last = 0;
+		for (; size - i >= BLOCK_SIZE; i += BLOCK_SIZE) {
+			for (int k = 0; k < BLOCK_SIZE; k++)
+				gaps[k] = docIds[i + k] - (i + k == 0 ? 0 : docIds[i + k - 1]) - 1;
+			int b = bitWidth(gaps);
+			// The skip entry needs the byte length of the block before it is written
+			int exceptions = 0, length = 2 + 16 * b;
+			for (int k = 0; k < BLOCK_SIZE; k++) {
+				if (b < 32 && gaps[k] >>> b != 0) {
+					exceptions++;
+					length += 1 + VBIndex.numberLength(gaps[k] >>> b);
+				}
+			}
+			last = docIds[i + BLOCK_SIZE - 1];
+			VBIndex.writeNumber(writeBuffer, last); // Skip entry: last docId of the block
+			VBIndex.writeNumber(writeBuffer, length); // and how many bytes to jump over it
+			writeBuffer.put((byte) b);
+			writeBuffer.put((byte) exceptions);
+			pack(gaps, b, words);
+			for (int w = 0; w < 4 * b; w++)
+				writeBuffer.putInt(words[w]);
+			for (int k = 0; k < BLOCK_SIZE; k++) {
+				if (b < 32 && gaps[k] >>> b != 0) {
+					writeBuffer.put((byte) k);
+					VBIndex.writeNumber(writeBuffer, gaps[k] >>> b);
+				}
+			}
+		}
+		for (; i < size; last = docIds[i++])
+			VBIndex.writeNumber(writeBuffer, docIds[i] - last - 1);
+		writeBuffer.flip();
+		try {
+			while (writeBuffer.hasRemaining())
+				fc.write(writeBuffer);
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	public PostingCursor openCursor(ByteBuffer buf, int position) {
+		return new PForCursor(buf, position);
+	}
+
+	/**
+	 * Decodes one block of BLOCK_SIZE docIds ahead of the caller at a time. advance() jumps over whole blocks through
+	 * their skip entries without unpacking them.
+	 */
+	private static class PForCursor implements PostingCursor {
+
+		// A view of its own over the shared buffer, positioned at the next encoded byte
+		private final ByteBuffer in;
+		private final int termId;
+		private final int size;
+		// Number of docIds not yet decoded into block
+		private int remaining;
+		private final int[] block = new int[BLOCK_SIZE], words = new int[BLOCK_SIZE + 1];
+		private int blockSize = 0, i = 0;
+		// Last docId of the block before the next one, the base its first gap is taken from
+		private int base = 0;
+		private int docId = 0;
+
+		PForCursor(ByteBuffer buf, int position) {
+			this.in = buf.duplicate();
+			in.position(position);
+			this.termId = VBIndex.readNumber(in);
+			this.remaining = this.size = VBIndex.readNumber(in);
+		}
+
+		public int getTermId() {
+			return termId;
+		}
+
+		public int size() {
+			return size;
+		}
+
+		public int docId() {
+			return docId;
+		}
+
+		public int nextDoc() {
+			if (i == blockSize) {
+				if (remaining == 0)
+					return docId = NO_MORE_DOCS;
+				int last = base;
+				if (remaining >= BLOCK_SIZE) {
+					// The skip entry is of no use when decoding the block anyway
+					VBIndex.readNumber(in);
+					VBIndex.readNumber(in);
+					readBlock(in, words, block);
+					blockSize = BLOCK_SIZE;
+					for (int k = 0; k < BLOCK_SIZE; k++)
+						block[k] = last += block[k] + 1;
+				} else {
+					blockSize = remaining;
+					for (int k = 0; k < blockSize; k++)
+						block[k] = last += VBIndex.readNumber(in) + 1;
+				}
+				remaining -= blockSize;
+				base = last;
+				i = 0;
+			}
+			return docId = block[i++];
+		}
+
+		public int advance(int target) {
+			if (docId >= target)
+				return docId;
+			// Nothing left in the decoded block can reach target
+			if (blockSize > 0 && block[blockSize - 1] < target)
+				i = blockSize;
+			// Jump over every full block whose last docId is still below target
+			while (i == blockSize && remaining >= BLOCK_SIZE) {
+				int entry = in.position();
+				int last = VBIndex.readNumber(in);
+				int length = VBIndex.readNumber(in);
+				if (last >= target) {
+					in.position(entry); // this block holds target, let nextDoc() decode it
+					break;
+				}
+				in.position(in.position() + length);
+				remaining -= BLOCK_SIZE;
+				base = last;
+			}
+			while (docId < target)
+				nextDoc();
+			return docId;
+		}
+	}
+}
@@ -0,0 +1,150 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+import java.util.Arrays;
+
+/**
+ * Positions of a term within every document of its posting list, in the order of the docIds. Positions are Variable
+ * Byte coded, each document as an entry of its own: the byte length of the rest of the entry, the first position, then
+ * the gaps between positions. A position is the number of tokens before it in the document.
+ * <br>The positions of a posting list are kept apart from the posting list, in a positions file next to the index
+ * file, so that queries that do not need them never read them. Written out, they are the byte length of all the
+ * entries, then the entries. An entry may be stepped over by its length without decoding it.
+ */
+public class Positions {
+
+	private byte[] bytes;
+	private int length;
+
+	public Positions() {
+		this(new byte[8], 0);
+	}
+
+	private Positions(byte[] bytes, int length) {
+		this.bytes = bytes;
+		this.length = length;
+	}
+
+	/**
+	 * Append the entry of the next document
+	 *
+	 * @param positions
+	 *            positions of the term in the document, ascending
+	 */
+	public void add(int[] positions) {
+		int size = 0;
+		for (int i = 0, last = 0; i < positions.length; last = positions[i++])
+			size += VBIndex.numberLength(positions[i] - last);
+		ByteBuffer out = room(VBIndex.numberLength(size) + size);
+		VBIndex.writeNumber(out, size);
+		for (int i = 0, last = 0; i < positions.length; last = positions[i++])
+			VBIndex.writeNumber(out, positions[i] - last);
+		length = out.position();
+	}
+
+	/**
+	 * Append the entry at the current position of in as it is, leaving in positioned after it
+	 */
+	public void addEntry(ByteBuffer in) {
+		int start = in.position(), size = VBIndex.readNumber(in);
+		int end = in.position() + size;
+		ByteBuffer out = room(end - start);
+		in.position(start);
+		int limit = in.limit();
+		in.limit(end);
+		out.put(in);
+		in.limit(limit);
+		length = out.position();
+	}
+
+	/**
+	 * Append every entry of other
+	 */
+	public void addAll(Positions other) {
+		room(other.length).put(other.bytes, 0, other.length);
+		length += other.length;
+	}
+
+	/*
+	 * A buffer over bytes, positioned at the end of the entries, with at least n bytes left
+	 */
+	private ByteBuffer room(int n) {
+		if (length + n > bytes.length)
+			bytes = Arrays.copyOf(bytes, Math.max(length + n, bytes.length + (bytes.length >> 1)));
+		ByteBuffer out = ByteBuffer.wrap(bytes);
+		out.position(length);
+		return out;
+	}
+
+	/**
+	 * @return the entries, to walk with decode() and skip()
+	 */
+	public ByteBuffer entries() {
+		return ByteBuffer.wrap(bytes, 0, length);
+	}
+
+	/**
+	 * Heap taken by the entries, to account for while building a block
+	 */
+	public int capacity() {
+		return bytes.length;
+	}
+
+	/**
+	 * Write the positions at the current position of fc
+	 */
+	public void write(SeekableByteChannel fc) throws IOException {
+		ByteBuffer header = ByteBuffer.allocate(5), entries = entries();
+		VBIndex.writeNumber(header, length);
+		header.flip();
+		while (header.hasRemaining())
+			fc.write(header);
+		while (entries.hasRemaining())
+			fc.write(entries);
+	}
+
+	/**
+	 * Read positions written by write() at the current position of buf, leaving buf positioned after them
+	 */
+	public static Positions read(ByteBuffer buf) {
+		int length = VBIndex.readNumber(buf);
+		byte[] bytes = new byte[length];
+		buf.get(bytes);
+		return new Positions(bytes, length);
+	}
+
+	/**
+	 * @return the entries of positions written by write() at position of buf, without copying them
+	 */
+	public static ByteBuffer entries(ByteBuffer buf, int position) {
+		ByteBuffer entries = buf.duplicate();
+		entries.position(position);
+		int length = VBIndex.readNumber(entries);
+		entries.limit(entries.position() + length);
+		return entries.slice();
+	}
+
+	/**
+	 * Decode the entry at the current position of in, leaving in positioned after it
+	 */
+	public static int[] decode(ByteBuffer in) {
+		int end = VBIndex.readNumber(in);
+		end += in.position();
+		int[] positions = new int[8];
+		int n = 0, last = 0;
+		while (in.position() < end) {
+			if (n == positions.length)
+				positions = Arrays.copyOf(positions, 2 * n);
+			positions[n++] = last += VBIndex.readNumber(in);
+		}
+		return Arrays.copyOf(positions, n);
+	}
+
+	/**
+	 * Step over the entry at the current position of in without decoding it
+	 */
+	public static void skip(ByteBuffer in) {
+		int size = VBIndex.readNumber(in);
+		in.position(in.position() + size);
+	}
+}
@@ -0,0 +1,9 @@
+/**
+ * Decoded posting lists of single terms, keyed by termId
+ */
+public class PostingCache extends DocIdCache<Integer> {
+
+	public PostingCache(long budget) {
+		super(budget);
+	}
+}
@@ -0,0 +1,38 @@
+
+/**
+ * A forward-only view over a single posting list. Implementations decode docIds lazily from wherever the posting lives,
+ * so walking a list never requires materializing it as a whole.
+ */
+public interface PostingCursor {
+
+	/* Returned by nextDoc() and advance() once the posting list is exhausted */
+	public static final int NO_MORE_DOCS = Integer.MAX_VALUE;
+
+	public int getTermId();
+
+	/**
+	 * @return document frequency, i.e. the number of docIds this cursor will yield in total
+	 */
+	public int size();
+
+	/**
+	 * @return the docId the cursor is positioned on, 0 before the first call to nextDoc() or advance()
+	 */
+	public int docId();
+
+	/**
+	 * Move to the next docId
+	 *
+	 * @return the next docId, or NO_MORE_DOCS
+	 */
+	public int nextDoc();
+
+	/**
+	 * Move to the first docId that is greater than or equal to target. The cursor stays where it is if it is already
+	 * positioned on such a docId.
+	 *
+	 * @param target
+	 * @return the docId the cursor lands on, or NO_MORE_DOCS
+	 */
+	public int advance(int target);
+}
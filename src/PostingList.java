@@ -1,29 +1,129 @@
 
-
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
 
 public class PostingList {
 
 	private int termId;
-	/* A list of docIDs (i.e. postings) */
-	private List<Integer> postings;
+	/* An array of docIDs (i.e. postings), only the first size slots are in use */
+	private int[] postings;
+	private int size;
+	/* The docIds as a bitmap, for a posting list stored as one (see BitmapIndex), null otherwise */
+	private RoaringBitmap bitmap = null;
+	/* Positions of the term in every document of the list, when indexing positions (see Positions), null otherwise */
+	private Positions positions = null;
+	/* Number of times the term occurs in each document, in the same slots as the docIds, null if not known */
+	private int[] freqs = null;
 
-	public PostingList(int termId, List<Integer> list) {
+	public PostingList(int termId, int[] list, int size) {
 		this.termId = termId;
 		this.postings = list;
+		this.size = size;
+	}
+
+	public PostingList(int termId, int[] list) {
+		this(termId, list, list.length);
 	}
 
 	public PostingList(int termId) {
-		this.termId = termId;
-		this.postings = new ArrayList<Integer>();
+		this(termId, new int[4], 0);
+	}
+
+	/**
+	 * A posting list backed by a bitmap, its docIds are only laid out in an array once something asks for them
+	 */
+	public PostingList(int termId, RoaringBitmap bitmap) {
+		this(termId, null, (int) bitmap.cardinality());
+		this.bitmap = bitmap;
 	}
 
 	public int getTermId() {
 		return this.termId;
 	}
 
-	public List<Integer> getList() {
+	/**
+	 * Document frequency, i.e. the number of docIds held by this posting list
+	 */
+	public int size() {
+		return this.size;
+	}
+
+	public int get(int i) {
+		return getArray()[i];
+	}
+
+	/**
+	 * The docIds as a bitmap, or null if the posting list is not backed by one
+	 */
+	public RoaringBitmap getBitmap() {
+		return this.bitmap;
+	}
+
+	/**
+	 * Term frequencies, in the same slots as getArray(), or null if they are not known
+	 */
+	public int[] getFreqs() {
+		return this.freqs;
+	}
+
+	public void setFreqs(int[] freqs) {
+		this.freqs = freqs;
+	}
+
+	public Positions getPositions() {
+		return this.positions;
+	}
+
+	public void setPositions(Positions positions) {
+		this.positions = positions;
+	}
+
+	/**
+	 * Append a docId, growing the backing array by half whenever it runs out of room
+	 *
+	 * @param docId
+	 */
+	public void add(int docId) {
+		if (bitmap != null) {
+			getArray();
+			bitmap = null; // no longer the same docIds
+		}
+		if (size == postings.length)
+			postings = Arrays.copyOf(postings, size + (size >> 1) + 1);
+		postings[size++] = docId;
+	}
+
+	/**
+	 * Append a docId along with the frequency of the term in that document
+	 */
+	public void add(int docId, int freq) {
+		add(docId);
+		if (freqs == null || freqs.length < postings.length)
+			freqs = freqs == null ? new int[postings.length] : Arrays.copyOf(freqs, postings.length);
+		freqs[size - 1] = freq;
+	}
+
+	/**
+	 * The last docId appended, or 0 if the list is empty (docIds always start at 1)
+	 */
+	public int last() {
+		return size == 0 ? 0 : get(size - 1);
+	}
+
+	/**
+	 * The backing array itself. It may be longer than size(), so callers must only look at the first size() slots.
+	 */
+	public int[] getArray() {
+		if (postings == null)
+			postings = bitmap.toArray();
 		return this.postings;
 	}
+
+	/**
+	 * The docIds trimmed to exactly size() slots. No copy is made when the backing array already fits.
+	 */
+	public int[] toArray() {
+		if (getArray().length != size)
+			postings = Arrays.copyOf(postings, size);
+		return postings;
+	}
 }
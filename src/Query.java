@@ -8,53 +8,207 @@
 
 import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
-import java.io.RandomAccessFile;
-import java.nio.channels.FileChannel;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
-import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
-import java.util.TreeMap;
+import java.util.Locale;
 import java.util.Vector;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class Query {
 
-	// Term id -> position in index file
-	private Map<Integer, Long> posDict = new TreeMap<Integer, Long>();
-	// Term id -> document frequency
-	private Map<Integer, Integer> freqDict = new TreeMap<Integer, Integer>();
-	// Doc id -> doc name dictionary
-	private Map<Integer, String> docDict = new TreeMap<Integer, String>();
-	// Term -> term id dictionary
-	private Map<String, Integer> termDict = new TreeMap<String, Integer>();
+	/* What formatQueryResult() gives for a query matching no document */
+	static final String NO_RESULTS = "no results found";
+	/* Why documents of an index without term frequencies cannot be ranked */
+	private static final String NOT_RANKED = "Index has no term frequencies (freqs.index), index it with -frequencies"
+			+ " to rank documents";
+	/* Memory budgets of the posting list and intersection caches of the command line query service */
+	public static final long DEFAULT_CACHE_BYTES = 64L << 20;
+	public static final long DEFAULT_INTERSECTION_CACHE_BYTES = 16L << 20;
+	// Every index loaded gets a generation of its own, which caches are bound to
+	private static final AtomicLong generations = new AtomicLong();
+
+	// Term -> term id, term id -> (position in index file, document frequency) and doc id -> doc name dictionaries,
+	// all mapped into memory
+	private BinaryDictionary dict = null;
 	// Index
 	private BaseIndex index = null;
 
 	// indicate whether the query service is running or not
 	private boolean running = false;
-	private RandomAccessFile indexFile = null;
+	// The base index and every segment added to it since, oldest first
+	private List<Segment> segments = new ArrayList<Segment>();
+	// docIds of deleted documents, whose postings are still in the index files until compaction
+	private RoaringBitmap deleted = new RoaringBitmap();
+	// docIds of deleted documents whose postings compaction dropped
+	private RoaringBitmap purged = new RoaringBitmap();
+	// indicate whether every segment has the positions of its terms, which phrase queries need
+	private boolean positional = false;
+	// Ranks documents under BM25, if every segment has the frequencies of its terms and documents have lengths
+	private BlockMaxWand ranking = null;
+	// indicate whether posting lists are read through cursors over memory-mapped index files
+	private boolean mapped = false;
+	private boolean cursors = false;
+	// Posting lists are read with positional reads only, each thread through a buffer of its own, so any number of
+	// threads can retrieve() at once from the same channel
+	private final ThreadLocal<ReadAheadBuffer> readAhead = new ThreadLocal<ReadAheadBuffer>() {
+		@Override
+		protected ReadAheadBuffer initialValue() {
+			return new ReadAheadBuffer(1 << 12);
+		}
+	};
+	// Decoded posting lists of recently queried terms, and results of recent multi-term queries, if any
+	private PostingCache cache = null;
+	private IntersectionCache intersections = null;
+	private long generation = 0;
+
+	public Query() {
+	}
+
+	/**
+	 * @param mapped
+	 *            map corpus.index into memory once and walk posting lists with lazily decoding cursors instead of
+	 *            seeking and reading whole lists
+	 */
+	public Query(boolean mapped) {
+		this.mapped = mapped;
+	}
+
+	/**
+	 * Keep posting lists read through the channel in cache, so the next query with the same term does not read and
+	 * decode it again. Cursors over a mapped index decode lazily and do not use the cache.
+	 */
+	public void setCache(PostingCache cache) {
+		this.cache = cache;
+		if (cache != null)
+			cache.setGeneration(generation);
+	}
+
+	public PostingCache getCache() {
+		return cache;
+	}
+
+	/**
+	 * Keep results of multi-term queries answered through the channel in intersections, so that a later query with
+	 * the same terms, or with more terms, starts from them
+	 */
+	public void setIntersectionCache(IntersectionCache intersections) {
+		this.intersections = intersections;
+		if (intersections != null)
+			intersections.setGeneration(generation);
+	}
+
+	public IntersectionCache getIntersectionCache() {
+		return intersections;
+	}
 
 	/*
-	 * Read a posting list with a given termID from the file You should seek to the file position of this specific
-	 * posting list and read it back.
+	 * Read the posting list with a given termID from the file of every segment holding it. Rather than seeking their
+	 * channels, which every thread shares, each posting list is read at its position in the file and decoded from the
+	 * buffer of the calling thread. Segments hold increasing docIds, so their lists are simply concatenated. A list
+	 * held by a single segment keeps the bitmap it may be stored as, lists spread over segments are laid out as arrays.
 	 */
-	private PostingList readPosting(FileChannel fc, int termId) throws IOException {
-		// here, we obtain term position from posDict for seeking by FileChannel.position(long) that also returns
-		// FileChannel object reference to be used in the standard readPosting() of such BaseIndex indexer
-		return index.readPosting(fc.position(posDict.get(termId)));
+	private PostingList readPosting(int termId) throws IOException {
+		PostingList posting = null;
+		for (Segment segment : segments) {
+			if (segment.docFreq(termId) == 0)
+				continue;
+			PostingList part = readAhead.get().readPosting(index, segment.getChannel(), segment.position(termId));
+			if (posting == null)
+				posting = part;
+			else {
+				int n = posting.size();
+				int[] docIds = Arrays.copyOf(posting.toArray(), n + part.size());
+				System.arraycopy(part.toArray(), 0, docIds, n, part.size());
+				posting = new PostingList(termId, docIds);
+			}
+		}
+		return posting == null ? new PostingList(termId, new int[0]) : posting;
+	}
+
+	/*
+	 * Open a cursor over the posting list with a given termID directly on the mapped index files, nothing is read until
+	 * the cursor is moved
+	 */
+	private PostingCursor openCursor(int termId) {
+		List<PostingCursor> parts = new ArrayList<PostingCursor>();
+		for (Segment segment : segments) {
+			if (segment.docFreq(termId) > 0)
+				parts.add(index.openCursor(segment.getBuffer(), (int) segment.position(termId)));
+		}
+		return parts.size() == 1 ? parts.get(0) : new SegmentsCursor(termId, parts);
+	}
+
+	/*
+	 * Document frequency of termId over every segment
+	 */
+	private int docFreq(int termId) {
+		int docFreq = 0;
+		for (Segment segment : segments)
+			docFreq += segment.docFreq(termId);
+		return docFreq;
+	}
+
+	/**
+	 * Walks the cursors of a posting list over several segments one after another
+	 */
+	private static class SegmentsCursor implements PostingCursor {
+
+		private final int termId;
+		private final List<PostingCursor> parts;
+		private int size = 0, part = 0, docId = 0;
+
+		SegmentsCursor(int termId, List<PostingCursor> parts) {
+			this.termId = termId;
+			this.parts = parts;
+			for (PostingCursor cursor : parts)
+				size += cursor.size();
+		}
+
+		public int getTermId() {
+			return termId;
+		}
+
+		public int size() {
+			return size;
+		}
+
+		public int docId() {
+			return docId;
+		}
+
+		public int nextDoc() {
+			while (part < parts.size()) {
+				if ((docId = parts.get(part).nextDoc()) != NO_MORE_DOCS)
+					return docId;
+				part++;
+			}
+			return docId = NO_MORE_DOCS;
+		}
+
+		public int advance(int target) {
+			if (docId >= target)
+				return docId;
+			while (part < parts.size()) {
+				if ((docId = parts.get(part).advance(target)) != NO_MORE_DOCS)
+					return docId;
+				part++;
+			}
+			return docId = NO_MORE_DOCS;
+		}
 	}
 
 	public void runQueryService(String indexMode, String indexDirname) throws IOException {
 		// Get the index reader
 		try {
-			Class<?> indexClass = Class.forName(indexMode + "Index");
-			index = (BaseIndex) indexClass.newInstance();
+			index = BitmapIndex.forMethod(indexMode);
 		} catch (Exception e) {
-			System.err.println("Index method must be \"Basic\", \"VB\", or \"Gamma\"");
+			System.err.println("Index method must be \"Basic\", \"VB\", \"Gamma\", \"Delta\", or \"PFor\"");
 			throw new RuntimeException(e);
 		}
 
@@ -65,123 +219,439 @@ public class Query {
 			return;
 		}
 
-		/* Index file */
-		indexFile = new RandomAccessFile(new File(indexDirname, "corpus.index"), "r");
+		/* Index files, of the base index then of every segment */
+		close();
+		segments.add(new Segment(inputdir, mapped));
+		for (String segment : Segment.list(indexDirname))
+			segments.add(new Segment(new File(inputdir, segment), mapped));
+		// Cursors need every index file mapped
+		cursors = mapped;
+		for (Segment segment : segments)
+			cursors &= segment.getBuffer() != null;
+		positional = true;
+		for (Segment segment : segments)
+			positional &= segment.hasPositions();
+		boolean ranked = true;
+		for (Segment segment : segments)
+			ranked &= segment.hasFreqs();
 
-		String line = null;
-		/* Term dictionary */
-		BufferedReader termReader = new BufferedReader(new FileReader(new File(indexDirname, "term.dict")));
-		while ((line = termReader.readLine()) != null) {
-			String[] tokens = line.split("\t");
-			termDict.put(tokens[0], Integer.parseInt(tokens[1]));
-		}
-		termReader.close();
+		/* Term, doc and posting dictionaries, mapped as they are without any parsing */
+		dict = new BinaryDictionary(indexDirname);
+		ranking = ranked && dict.hasDocLengths() ? new BlockMaxWand(dict) : null;
+		deleted = Tombstones.read(indexDirname);
+		purged = Tombstones.readPurged(indexDirname);
 
-		/* Doc dictionary */
-		BufferedReader docReader = new BufferedReader(new FileReader(new File(indexDirname, "doc.dict")));
-		while ((line = docReader.readLine()) != null) {
-			String[] tokens = line.split("\t");
-			docDict.put(Integer.parseInt(tokens[1]), tokens[0]);
-		}
-		docReader.close();
-
-		/* Posting dictionary */
-		BufferedReader postReader = new BufferedReader(new FileReader(new File(indexDirname, "posting.dict")));
-		while ((line = postReader.readLine()) != null) {
-			String[] tokens = line.split("\t");
-			posDict.put(Integer.parseInt(tokens[0]), Long.parseLong(tokens[1]));
-			freqDict.put(Integer.parseInt(tokens[0]), Integer.parseInt(tokens[2]));
-		}
-		postReader.close();
+		/* Whatever the caches hold came from the index loaded before, if any */
+		generation = generations.incrementAndGet();
+		setCache(cache);
+		setIntersectionCache(intersections);
 
 		this.running = true;
 	}
 
-	public List<Integer> retrieve(String query) throws IOException {
+	/**
+	 * @return docIds of the documents holding every term of query, or null if there is none. A query wrapped in double
+	 *         quotes is a phrase: its terms must also follow one another in the document, in the order of the query.
+	 *         Terms may also be combined by AND, OR and NOT, grouped with parentheses (see BooleanQuery).
+	 */
+	public int[] retrieve(String query) throws IOException {
 		if (!running) {
 			System.err.println("Error: Query service must be initiated");
 		}
+		String phrase = query.trim();
+		if (phrase.length() > 1 && phrase.startsWith("\"") && phrase.endsWith("\"")) {
+			String[] tokens = phrase.substring(1, phrase.length() - 1).trim().split("\\s+");
+			if (positional)
+				return retrievePhrase(tokens);
+			System.err.println("Index has no positions, matching phrase terms anywhere in documents");
+			query = phrase.substring(1, phrase.length() - 1);
+		}
+		if (BooleanQuery.isBoolean(query))
+			return retrieveBoolean(query);
 		String[] tokens = query.split("\\s+"); // split the query into tokens (terms)
-		List<PostingList> postings = new Vector<PostingList>();
-		FileChannel fc = indexFile.getChannel();
-		Integer termId;
+		if (cursors)
+			return retrieveMapped(tokens);
+		int[] list;
+		if (intersections != null)
+			list = retrieveCached(tokens);
+		else {
+			PostingList[] postings = postings(tokens);
+			// All posting lists are intersected at once, see IntersectionEngine for how each list is searched
+			list = postings == null ? null : IntersectionEngine.intersect(postings);
+		}
+		if (list == null)
+			return null;
+		// Deleted documents are dropped from the result, the shortest list of all, rather than from every posting list.
+		// Cached lists keep them, and removeFrom() never modifies its input.
+		list = deleted.removeFrom(list);
+		return list.length == 0 ? null : list;
+	}
+
+	/*
+	 * Same as retrieve(), for a query with operators. Terms are walked by cursors over the mapped index files if
+	 * possible, otherwise their posting lists are read as retrieve() reads them, through the posting list cache.
+	 */
+	private int[] retrieveBoolean(String query) throws IOException {
+		BooleanQuery parsed;
+		try {
+			parsed = BooleanQuery.parse(query);
+		} catch (IllegalArgumentException e) {
+			System.err.println("Invalid query: " + e.getMessage());
+			return null;
+		}
+		int[] list = parsed.evaluate(new BooleanQuery.Terms() {
+			@Override
+			public PostingCursor open(String term) throws IOException {
+				int termId = dict.termId(term);
+				if (termId == -1)
+					return null;
+				return cursors ? openCursor(termId) : BooleanQuery.cursor(termId, docIds(termId));
+			}
+		}, dict.maxDocId(), purged, deleted);
+		return list.length == 0 ? null : list;
+	}
+
+	/**
+	 * @return the k documents holding any term of query that score highest under BM25, best first, as (docId, score).
+	 *         Terms that are not in the index, or that occur more than once in query, count once. Most documents are
+	 *         never scored, see BlockMaxWand.
+	 * @throws IllegalStateException
+	 *             if the index has no term frequencies, see isRanked()
+	 */
+	public List<Pair<Integer, Double>> retrieveTopK(String query, int k) throws IOException {
+		if (!running) {
+			System.err.println("Error: Query service must be initiated");
+		}
+		if (ranking == null)
+			throw new IllegalStateException(NOT_RANKED);
+		return ranking.topK(rankingTerms(query.trim().split("\\s+")), k, deleted);
+	}
+
+	/**
+	 * @return whether the index has the term frequencies and document lengths retrieveTopK() ranks documents by
+	 */
+	public boolean isRanked() {
+		return ranking != null;
+	}
+
+	/**
+	 * Open every distinct query term found in the index for ranking. docIds are walked by cursors over the mapped index
+	 * files if possible, as in retrieveBoolean(), frequencies come straight from the mapped frequency files.
+	 */
+	BlockMaxWand.Term[] rankingTerms(String[] tokens) throws IOException {
+		List<BlockMaxWand.Term> terms = new ArrayList<BlockMaxWand.Term>();
+		List<Integer> termIds = new ArrayList<Integer>();
 		for (String token : tokens) {
-			// It is possible that any term in the query does not exist in termDict (or our index file)
+			int termId = dict.termId(token);
+			if (termId == -1 || termIds.contains(termId))
+				continue;
+			termIds.add(termId);
+			List<ByteBuffer> blocks = new ArrayList<ByteBuffer>();
+			List<Integer> docFreqs = new ArrayList<Integer>();
+			for (Segment segment : segments) {
+				int docFreq = segment.docFreq(termId);
+				if (docFreq == 0)
+					continue;
+				blocks.add(segment.freqs(termId));
+				docFreqs.add(docFreq);
+			}
+			PostingCursor cursor = cursors ? openCursor(termId) : BooleanQuery.cursor(termId, docIds(termId));
+			terms.add(ranking.term(cursor, blocks, docFreqs));
+		}
+		return terms.toArray(new BlockMaxWand.Term[terms.size()]);
+	}
+
+	/*
+	 * Same as retrieve(), for the phrase made of tokens. Candidates are the documents holding every term, found as
+	 * retrieve() finds them without reading a single position. The positions of each term are then read in turn for
+	 * the candidates still standing only, the entries of every other document being stepped over by their length, and
+	 * a candidate stands as long as the phrase may start somewhere in it.
+	 */
+	private int[] retrievePhrase(String[] tokens) throws IOException {
+		PostingList[] postings = postings(tokens);
+		if (postings == null)
+			return null;
+		int[] candidates = deleted.removeFrom(IntersectionEngine.intersect(postings));
+		// Where the phrase may start in each candidate: positions of the i-th term, less i, common to every term so far
+		int[][] starts = null;
+		for (int i = 0; i < tokens.length && candidates.length > 0; i++) {
+			int[][] positions = positions(postings[i], candidates);
+			// candidates may come from the cache, the candidates left go to an array of their own
+			int[] left = new int[candidates.length];
+			int n = 0;
+			for (int c = 0; c < candidates.length; c++) {
+				int[] shifted = positions[c];
+				for (int k = 0; k < shifted.length; k++)
+					shifted[k] -= i;
+				int[] common = starts == null ? shifted : intersection(starts[c], shifted);
+				if (common.length == 0)
+					continue;
+				left[n] = candidates[c];
+				positions[n++] = common;
+			}
+			candidates = Arrays.copyOf(left, n);
+			starts = positions;
+		}
+		return candidates.length == 0 ? null : candidates;
+	}
+
+	/*
+	 * Positions of the term of posting in each of docIds, which must all be in posting. posting holds the docIds of
+	 * every segment one after another, as do the positions of the term.
+	 */
+	private int[][] positions(PostingList posting, int[] docIds) {
+		int termId = posting.getTermId();
+		int[] list = posting.toArray();
+		int[][] positions = new int[docIds.length][];
+		int i = 0, d = 0;
+		for (Segment segment : segments) {
+			int docFreq = segment.docFreq(termId);
+			if (docFreq == 0)
+				continue;
+			ByteBuffer entries = segment.positions(termId);
+			for (int end = i + docFreq; i < end && d < docIds.length; i++) {
+				if (list[i] == docIds[d])
+					positions[d++] = Positions.decode(entries);
+				else
+					Positions.skip(entries);
+			}
+			if (d == docIds.length)
+				break;
+		}
+		return positions;
+	}
+
+	/**
+	 * Read and decode the posting list of every query term
+	 * 
+	 * @param tokens
+	 *            query terms
+	 * @return docIds of every term, in query order, or null if any term is not in the index. Arrays may come from the
+	 *         cache and must not be modified.
+	 */
+	int[][] readPostings(String[] tokens) throws IOException {
+		PostingList[] postings = postings(tokens);
+		if (postings == null)
+			return null;
+		int[][] lists = new int[tokens.length][];
+		for (int i = 0; i < tokens.length; i++)
+			lists[i] = postings[i].toArray();
+		return lists;
+	}
+
+	/*
+	 * Same as readPostings(), but posting lists stored as bitmaps are left as they are
+	 */
+	private PostingList[] postings(String[] tokens) throws IOException {
+		PostingList[] postings = new PostingList[tokens.length];
+		int termId;
+		for (int i = 0; i < tokens.length; i++) {
+			// It is possible that any term in the query does not exist in the term dictionary (or our index file)
 			// We can conclude without hesitation that none of documents contain this particular term, and in effect, no
 			// document results to be printed
-			if ((termId = termDict.get(token)) == null)
+			if ((termId = dict.termId(tokens[i])) == -1)
+				return null;
+			postings[i] = posting(termId);
+		}
+		return postings;
+	}
+
+	/*
+	 * Posting list of termId, from the posting list cache if possible. Lists stored as bitmaps are not cached: reading
+	 * one back is a bulk copy with nothing to decode, while the cache would hold it as a much larger array.
+	 */
+	private PostingList posting(int termId) throws IOException {
+		int[] docIds;
+		if (cache != null && (docIds = cache.get(termId)) != null)
+			return new PostingList(termId, docIds);
+		PostingList posting = readPosting(termId);
+		if (cache != null && posting.getBitmap() == null)
+			cache.put(termId, posting.toArray());
+		return posting;
+	}
+
+	/*
+	 * docIds of termId, from the posting list cache if possible
+	 */
+	private int[] docIds(int termId) throws IOException {
+		return posting(termId).toArray();
+	}
+
+	/*
+	 * Same as retrieve(), but starting from the largest subset of the query terms whose intersection is cached. The
+	 * lists of the terms left are folded in one at a time, rarest first, and the intersection of every set of terms
+	 * folded so far is cached in turn. The result still holds deleted documents, and may be empty.
+	 */
+	private int[] retrieveCached(String[] tokens) throws IOException {
+		int[] termIds = new int[tokens.length];
+		for (int i = 0; i < tokens.length; i++) {
+			if ((termIds[i] = dict.termId(tokens[i])) == -1)
 				return null;
-			postings.add(readPosting(fc, termId));
 		}
-		// For better posting lists intersection performance, we sort the list first by increasing document frequency,
-		// also known as the size of a posting
-		Collections.sort(postings, new Comparator<PostingList>() {
+		// Query terms as a set: sorted, without duplicates
+		Arrays.sort(termIds);
+		int k = 0;
+		for (int i = 0; i < termIds.length; i++) {
+			if (k == 0 || termIds[i] != termIds[k - 1])
+				termIds[k++] = termIds[i];
+		}
+		termIds = Arrays.copyOf(termIds, k);
+		if (k == 1)
+			return docIds(termIds[0]);
+
+		int[] list = null, folded = new int[0];
+		Pair<IntersectionCache.TermSet, int[]> start = intersections.largestSubset(termIds);
+		if (start != null) {
+			folded = start.getFirst().getTermIds();
+			list = start.getSecond();
+		}
+		Integer[] left = new Integer[k - folded.length];
+		for (int i = 0, n = 0; i < k; i++) {
+			if (Arrays.binarySearch(folded, termIds[i]) < 0)
+				left[n++] = termIds[i];
+		}
+		Arrays.sort(left, new Comparator<Integer>() {
 			@Override
-			public int compare(PostingList p1, PostingList p2) {
-				return p1.getList().size() - p2.getList().size();
+			public int compare(Integer t1, Integer t2) {
+				return Integer.compare(docFreq(t1), docFreq(t2));
 			}
 		});
-		// Now we intersect from the beginning posting lists we have
-		// We can even abort the operation whenever the intersection result is empty
-		Iterator<PostingList> postingsIterator = postings.iterator();
-		List<Integer> list = postingsIterator.next().getList();
-		while (postingsIterator.hasNext()) {
-			if ((list = intersection(list, postingsIterator.next().getList())).isEmpty())
-				return null;
+		PostingList first = null;
+		for (int termId : left) {
+			folded = Arrays.copyOf(folded, folded.length + 1);
+			folded[folded.length - 1] = termId;
+			Arrays.sort(folded);
+			if (list == null && first == null) {
+				first = posting(termId); // a single term, already in the posting list cache
+				continue;
+			}
+			// The first two lists are intersected as they are, so two bitmaps are ANDed without laying out either
+			if (list == null)
+				list = IntersectionEngine.intersect(first, posting(termId));
+			// Once empty, the intersection stays empty, no need to read the lists left
+			else if (list.length > 0)
+				list = IntersectionEngine.intersect(new PostingList(0, list), posting(termId));
+			intersections.put(new IntersectionCache.TermSet(folded), list);
 		}
 		return list;
 	}
 
+	/*
+	 * Same as retrieve(), but every posting list is walked by a cursor over the mapped index file. The cursors leapfrog
+	 * each other: the shortest list proposes a docId, every other cursor advances to it, and whenever one overshoots,
+	 * the shortest list advances to that docId instead. Nothing but the matching docIds is ever copied.
+	 */
+	private int[] retrieveMapped(String[] tokens) {
+		PostingCursor[] cursors = new PostingCursor[tokens.length];
+		int termId;
+		for (int i = 0; i < tokens.length; i++) {
+			if ((termId = dict.termId(tokens[i])) == -1)
+				return null;
+			cursors[i] = openCursor(termId);
+		}
+		Arrays.sort(cursors, new Comparator<PostingCursor>() {
+			@Override
+			public int compare(PostingCursor c1, PostingCursor c2) {
+				return c1.size() - c2.size();
+			}
+		});
+		PostingList result = new PostingList(0);
+		PostingCursor lead = cursors[0];
+		int docId = lead.nextDoc();
+		search: while (docId != PostingCursor.NO_MORE_DOCS) {
+			for (int i = 1; i < cursors.length; i++) {
+				int other = cursors[i].advance(docId);
+				if (other != docId) {
+					docId = lead.advance(other);
+					continue search;
+				}
+			}
+			if (!deleted.contains(docId))
+				result.add(docId);
+			docId = lead.nextDoc();
+		}
+		return result.size() == 0 ? null : result.toArray();
+	}
+
 	/**
-	 * Intersect two document ID lists
+	 * Intersect two document ID lists. This is the pairwise step retrieve() used to fold lists with before
+	 * IntersectionEngine, it is kept as the baseline IntersectionBenchmark compares against.
 	 * 
 	 * @param list
 	 * @param next
 	 * @return
 	 */
-	public static List<Integer> intersection(List<Integer> list, List<Integer> next) {
+	public static int[] intersection(int[] list, int[] next) {
 		/*
-		 * Similar to merging algorithm, we have a list to hold the docIds result. But we don't always add an element to
-		 * the list
+		 * Similar to merging algorithm, we have an array to hold the docIds result. But we don't always add an element
+		 * to it. The result can never be longer than the shorter input, so that is all we allocate.
 		 */
-		Vector<Integer> newList = new Vector<Integer>();
-		Iterator<Integer> iterA = list.iterator();
-		Iterator<Integer> iterB = next.iterator();
-		Integer elementA = iterA.next();
-		Integer elementB = iterB.next();
-		while (elementA != null && elementB != null) {
-			if (elementA.intValue() == elementB.intValue()) {
-				newList.add(elementA); // Added to the result only if this element occurs on both list
-				elementA = iterA.hasNext() ? iterA.next() : null;
-				elementB = iterB.hasNext() ? iterB.next() : null;
-			} else if (elementA < elementB)
-				elementA = iterA.hasNext() ? iterA.next() : null; // Increment the list A
+		int[] newList = new int[Math.min(list.length, next.length)];
+		int n = 0, a = 0, b = 0;
+		while (a < list.length && b < next.length) {
+			if (list[a] == next[b]) {
+				newList[n++] = list[a]; // Added to the result only if this element occurs on both list
+				a++;
+				b++;
+			} else if (list[a] < next[b])
+				a++; // Increment the list A
 			else
-				elementB = iterB.hasNext() ? iterB.next() : null; // Increment the list B
+				b++; // Increment the list B
 		}
-		return newList;
+		return n == newList.length ? newList : Arrays.copyOf(newList, n);
 	}
 
-	String outputQueryResult(List<Integer> res) {
+	String outputQueryResult(int[] res) {
+		String result = formatQueryResult(res);
+		if (res != null && res.length > 0)
+			System.out.print(result);
+		return result;
+	}
+
+	/**
+	 * @return names of the documents in res, sorted, one per line, or "no results found"
+	 */
+	String formatQueryResult(int[] res) {
 		// This is when none of documents is matched with the query, thus no results found
-		if (res == null || res.isEmpty())
-			return "no results found";
-		// Now the easy part, iterate the docId list to get document names via docDict, add them to the docName list
+		if (res == null || res.length == 0)
+			return NO_RESULTS;
+		// Now the easy part, iterate the docId list to get document names via the doc dictionary, add them to the docName list
 		// Sort that resulting list in lexicon orders and join all the elements to the answer string using newline
 		// character
-		List<String> fileNames = new Vector<String>(res.size());
-		for (Integer docId : res)
-			fileNames.add(docDict.get(docId));
+		List<String> fileNames = new Vector<String>(res.length);
+		for (int docId : res)
+			fileNames.add(dict.docName(docId));
 		Collections.sort(fileNames);
-		for (String fileName : fileNames)
-			System.out.println(fileName);
 		return String.join("\n", fileNames).concat("\n");
 	}
 
+	/**
+	 * @return names and scores of the documents in hits, in the order of hits, one per line, or "no results found"
+	 */
+	String formatRankedResult(List<Pair<Integer, Double>> hits) {
+		if (hits.isEmpty())
+			return NO_RESULTS;
+		StringBuilder result = new StringBuilder();
+		for (Pair<Integer, Double> hit : hits)
+			result.append(String.format(Locale.ROOT, "%s\t%.4f\n", dict.docName(hit.getFirst()), hit.getSecond()));
+		return result.toString();
+	}
+
 	public static void main(String[] args) throws IOException {
 		/* Parse command line */
-		if (args.length != 2) {
-			System.err.println("Usage: java Query [Basic|VB|Gamma] index_dir");
+		boolean mmap = false, usage = args.length < 2;
+		// Rank documents holding any query term and print the top best only, rather than every document holding all
+		int top = 0;
+		for (int i = 2; i < args.length && !usage; i++) {
+			if (args[i].equals("mmap"))
+				mmap = true;
+			else if (args[i].equals("-top") && i + 1 < args.length)
+				top = Integer.parseInt(args[++i]);
+			else
+				usage = true;
+		}
+		if (usage) {
+			System.err.println("Usage: java Query [Basic|VB|Gamma|Delta|PFor] index_dir [mmap] [-top k]");
 			return;
 		}
 
@@ -190,15 +660,21 @@ public class Query {
 		try {
 			className = args[0];
 		} catch (Exception e) {
-			System.err.println("Index method must be \"Basic\", \"VB\", or \"Gamma\"");
+			System.err.println("Index method must be \"Basic\", \"VB\", \"Gamma\", \"Delta\", or \"PFor\"");
 			throw new RuntimeException(e);
 		}
 
 		/* Get index directory */
 		String input = args[1];
 
-		Query queryService = new Query();
+		Query queryService = new Query(mmap);
 		queryService.runQueryService(className, input);
+		if (top > 0 && !queryService.isRanked()) {
+			System.err.println(NOT_RANKED);
+			return;
+		}
+		queryService.setCache(new PostingCache(DEFAULT_CACHE_BYTES));
+		queryService.setIntersectionCache(new IntersectionCache(DEFAULT_INTERSECTION_CACHE_BYTES));
 
 		/* Processing queries */
 		BufferedReader br = new BufferedReader(new InputStreamReader(System.in));
@@ -206,17 +682,31 @@ public class Query {
 		/* For each query */
 		String line = null;
 		while ((line = br.readLine()) != null) {
-			List<Integer> hitDocs = queryService.retrieve(line);
+			if (top > 0) {
+				List<Pair<Integer, Double>> hits = queryService.retrieveTopK(line, top);
+				if (!hits.isEmpty())
+					System.out.print(queryService.formatRankedResult(hits));
+				continue;
+			}
+			int[] hitDocs = queryService.retrieve(line);
 			queryService.outputQueryResult(hitDocs);
 		}
 
 		br.close();
 	}
 
+	/*
+	 * Close the index files of every segment
+	 */
+	private void close() throws IOException {
+		for (Segment segment : segments)
+			segment.close();
+		segments.clear();
+	}
+
 	protected void finalize() {
 		try {
-			if (indexFile != null)
-				indexFile.close();
+			close();
 		} catch (IOException e) {
 			e.printStackTrace();
 		}
@@ -0,0 +1,202 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Serves queries concurrently from a pool of worker threads, all sharing one loaded Query. Retrieval only reads the
+ * index positionally or through the mapped file, so workers never wait on each other.
+ * <br>In batch mode, every line of stdin is a query. Queries run concurrently, but results are printed in input order,
+ * exactly as Query would print them. In socket mode, every line a client sends is a query, answered with the result
+ * followed by an empty line; a client sending "STATS" gets the latency report instead.
+ * <br>The latency report (printed to stderr at the end of a batch) gives throughput and latency percentiles of the
+ * queries served so far.
+ */
+public class QueryServer {
+
+	/**
+	 * Latency of every query served, in nanoseconds
+	 */
+	static class Latencies {
+
+		private long[] nanos = new long[1024];
+		private int count = 0;
+		private final long start = System.nanoTime();
+
+		synchronized void record(long latency) {
+			if (count == nanos.length)
+				nanos = Arrays.copyOf(nanos, count * 2);
+			nanos[count++] = latency;
+		}
+
+		/**
+		 * @return QPS since the server started, and p50, p99 and p99.9 latencies in milliseconds
+		 */
+		synchronized String report() {
+			long elapsed = System.nanoTime() - start;
+			long[] sorted = Arrays.copyOf(nanos, count);
+			Arrays.sort(sorted);
+			return String.format(Locale.ROOT, "%d queries, %.1f QPS, latency p50 %.3f ms, p99 %.3f ms, p99.9 %.3f ms",
+					count, count * 1e9 / elapsed, percentile(sorted, 0.5), percentile(sorted, 0.99),
+					percentile(sorted, 0.999));
+		}
+
+		private static double percentile(long[] sorted, double p) {
+			if (sorted.length == 0)
+				return 0;
+			return sorted[(int) Math.min(sorted.length - 1, Math.ceil(p * sorted.length) - 1)] / 1e6;
+		}
+	}
+
+	private final Query query;
+	private final ExecutorService pool;
+	private final Latencies latencies = new Latencies();
+
+	public QueryServer(Query query, int threads) {
+		this.query = query;
+		this.pool = Executors.newFixedThreadPool(threads);
+	}
+
+	/*
+	 * Retrieve and format the result of a query, recording how long it took
+	 */
+	private String serve(String line) throws IOException {
+		long start = System.nanoTime();
+		String result = query.formatQueryResult(query.retrieve(line));
+		latencies.record(System.nanoTime() - start);
+		return result;
+	}
+
+	/**
+	 * Run every query read from in, printing results to out in input order
+	 */
+	public void runBatch(BufferedReader in, Writer out) throws IOException, InterruptedException {
+		List<Future<String>> results = new ArrayList<Future<String>>();
+		String line;
+		while ((line = in.readLine()) != null) {
+			final String q = line;
+			results.add(pool.submit(new Callable<String>() {
+				@Override
+				public String call() throws IOException {
+					return serve(q);
+				}
+			}));
+		}
+		try {
+			for (Future<String> result : results) {
+				String r = result.get();
+				// Query prints nothing at all for a query without results
+				if (!r.equals(Query.NO_RESULTS))
+					out.write(r);
+			}
+		} catch (ExecutionException e) {
+			throw new IOException(e.getCause());
+		}
+		out.flush();
+	}
+
+	/**
+	 * Accept clients on port until the process is killed, each client being served by a worker thread
+	 */
+	public void runSocket(int port) throws IOException {
+		ServerSocket server = new ServerSocket(port);
+		System.err.println("Listening on port " + server.getLocalPort());
+		while (true) {
+			final Socket client = server.accept();
+			pool.submit(new Callable<Void>() {
+				@Override
+				public Void call() throws IOException {
+					try {
+						BufferedReader in = new BufferedReader(new InputStreamReader(client.getInputStream(),
+								StandardCharsets.UTF_8));
+						PrintWriter out = new PrintWriter(new OutputStreamWriter(client.getOutputStream(),
+								StandardCharsets.UTF_8));
+						String line;
+						while ((line = in.readLine()) != null) {
+							String reply = line.equals("STATS") ? report() : serve(line);
+							// Every reply ends with a line break, then an empty line marks its end
+							out.print(reply.endsWith("\n") ? reply : reply + "\n");
+							out.println();
+							out.flush();
+						}
+					} finally {
+						client.close();
+					}
+					return null;
+				}
+			});
+		}
+	}
+
+	public void shutdown() {
+		pool.shutdown();
+	}
+
+	/**
+	 * @return the latency report, followed by statistics of the caches in use
+	 */
+	public String report() {
+		PostingCache cache = query.getCache();
+		IntersectionCache intersections = query.getIntersectionCache();
+		return latencies.report() + (cache == null ? "" : "\nPosting cache: " + cache)
+				+ (intersections == null ? "" : "\nIntersection cache: " + intersections);
+	}
+
+	public static void main(String[] args) throws Exception {
+		/* Parse command line */
+		if (args.length < 2) {
+			System.err.println("Usage: java QueryServer [Basic|VB|Gamma|Delta|PFor] index_dir [mmap] [-threads n] [-port n]"
+					+ " [-cache MBs] [-intersection-cache MBs]");
+			return;
+		}
+		boolean mapped = false;
+		int threads = Runtime.getRuntime().availableProcessors(), port = -1;
+		long cacheBytes = Query.DEFAULT_CACHE_BYTES, intersectionBytes = Query.DEFAULT_INTERSECTION_CACHE_BYTES;
+		for (int i = 2; i < args.length; i++) {
+			if (args[i].equals("mmap"))
+				mapped = true;
+			else if (args[i].equals("-threads"))
+				threads = Integer.parseInt(args[++i]);
+			else if (args[i].equals("-port"))
+				port = Integer.parseInt(args[++i]);
+			else if (args[i].equals("-cache"))
+				cacheBytes = Long.parseLong(args[++i]) << 20;
+			else if (args[i].equals("-intersection-cache"))
+				intersectionBytes = Long.parseLong(args[++i]) << 20;
+			else {
+				System.err.println("Unknown option: " + args[i]);
+				return;
+			}
+		}
+
+		Query queryService = new Query(mapped);
+		queryService.runQueryService(args[0], args[1]);
+		if (cacheBytes > 0)
+			queryService.setCache(new PostingCache(cacheBytes));
+		if (intersectionBytes > 0)
+			queryService.setIntersectionCache(new IntersectionCache(intersectionBytes));
+		QueryServer server = new QueryServer(queryService, threads);
+		if (port >= 0) {
+			server.runSocket(port);
+			return;
+		}
+		BufferedReader br = new BufferedReader(new InputStreamReader(System.in));
+		server.runBatch(br, new OutputStreamWriter(System.out));
+		server.shutdown();
+		System.err.println(server.report());
+	}
+}
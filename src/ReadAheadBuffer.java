@@ -0,0 +1,88 @@
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Lets a BaseIndex read posting lists from a FileChannel in large chunks instead of a channel read per number.
+ * <br>Whatever is read past the posting list being decoded stays buffered: the channel is then positioned right after
+ * that posting list, as if it had been read exactly. The next posting list read from the same channel at that
+ * position, as when reading posting lists back to back, is decoded from those bytes without touching the channel.
+ */
+public class ReadAheadBuffer {
+
+	private ByteBuffer buffer;
+	// Channel the buffer was filled from, and the file offset of the first byte in the buffer
+	private FileChannel fc = null;
+	private long start = 0;
+	private boolean eof = false;
+
+	public ReadAheadBuffer(int capacity) {
+		buffer = ByteBuffer.allocate(capacity);
+		buffer.flip();
+	}
+
+	/**
+	 * Read the posting list at the current position of fc with index.readPosting(ByteBuffer), leaving fc positioned
+	 * right after it
+	 *
+	 * @return the posting list, or null at EOF
+	 */
+	public PostingList readPosting(BaseIndex index, FileChannel fc) throws IOException {
+		PostingList p = readPosting(index, fc, fc.position());
+		if (p != null)
+			fc.position(start + buffer.position());
+		return p;
+	}
+
+	/**
+	 * Read the posting list at the given position of fc with index.readPosting(ByteBuffer). Only positional reads are
+	 * used and the position of fc is left alone, so threads may share fc as long as each has its own ReadAheadBuffer.
+	 *
+	 * @return the posting list, or null at EOF
+	 */
+	public PostingList readPosting(BaseIndex index, FileChannel fc, long position) throws IOException {
+		if (fc != this.fc || position < start || position > start + buffer.limit()) {
+			// Nothing useful is buffered, start over at position
+			this.fc = fc;
+			this.start = position;
+			this.eof = false;
+			buffer.clear();
+			buffer.flip();
+		}
+		buffer.position((int) (position - start));
+		while (true) {
+			if (!buffer.hasRemaining() && eof)
+				return null;
+			int from = buffer.position();
+			try {
+				return index.readPosting(buffer);
+			} catch (BufferUnderflowException e) {
+				buffer.position(from);
+				if (eof) // cut short by EOF
+					return null;
+				fill();
+			}
+		}
+	}
+
+	/*
+	 * Keep what is left unread, then read as much of the channel as fits behind it. A posting list larger than the
+	 * buffer doubles the buffer.
+	 */
+	private void fill() throws IOException {
+		start += buffer.position();
+		buffer.compact();
+		if (!buffer.hasRemaining()) {
+			ByteBuffer larger = ByteBuffer.allocate(buffer.capacity() * 2);
+			buffer.flip();
+			larger.put(buffer);
+			buffer = larger;
+		}
+		while (buffer.hasRemaining() && fc.read(buffer, start + buffer.position()) != -1)
+			;
+		eof = buffer.hasRemaining();
+		buffer.flip();
+	}
+}
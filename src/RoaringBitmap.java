@@ -0,0 +1,505 @@
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * A compressed set of non-negative ints, laid out like a Roaring bitmap. Values are split by their upper 16 bits into
+ * chunks of 65536. Each chunk holds its lower 16 bits in the container that suits its density. A sorted array takes 2
+ * bytes per value, and is used while a chunk has at most ARRAY_MAX values. A bitmap always takes 8 KB, and takes over
+ * above that. Sparse sets are then as small as a sorted array of shorts. Dense sets are as small as a plain bitmap.
+ * runOptimize() further turns chunks made of long runs of consecutive values into runs, at 4 bytes per run.
+ * Either way, contains() is a binary search over the chunks followed by a lookup within one container.
+ */
+public class RoaringBitmap {
+
+	/* Most values an array container holds, past this a bitmap is smaller */
+	static final int ARRAY_MAX = 4096;
+
+	/**
+	 * A run container: every run of consecutive values as its first value followed by its length minus one
+	 */
+	private static final class Runs {
+
+		final char[] pairs;
+
+		Runs(char[] pairs) {
+			this.pairs = pairs;
+		}
+	}
+
+	// Upper 16 bits of the values of every chunk, sorted
+	private char[] keys = new char[4];
+	// Lower 16 bits of the values of every chunk: a sorted char[] of cardinalities[i] values, a long[1024] bitmap, or
+	// Runs
+	private Object[] containers = new Object[4];
+	private int[] cardinalities = new int[4];
+	private int chunks = 0;
+
+	/**
+	 * @return a bitmap holding values
+	 */
+	public static RoaringBitmap of(int... values) {
+		RoaringBitmap bitmap = new RoaringBitmap();
+		for (int value : values)
+			bitmap.add(value);
+		return bitmap;
+	}
+
+	private int chunk(char key) {
+		return Arrays.binarySearch(keys, 0, chunks, key);
+	}
+
+	/*
+	 * Append a chunk, keys must be appended in increasing order
+	 */
+	private void append(char key, Object container, int cardinality) {
+		if (chunks == keys.length) {
+			keys = Arrays.copyOf(keys, chunks * 2);
+			containers = Arrays.copyOf(containers, chunks * 2);
+			cardinalities = Arrays.copyOf(cardinalities, chunks * 2);
+		}
+		keys[chunks] = key;
+		containers[chunks] = container;
+		cardinalities[chunks++] = cardinality;
+	}
+
+	/**
+	 * Add a value >= 0
+	 *
+	 * @return whether the value was not in the set yet
+	 */
+	public boolean add(int value) {
+		char key = (char) (value >>> 16), low = (char) value;
+		int c = chunk(key);
+		if (c < 0) {
+			// A new chunk, starting out as an array
+			c = -c - 1;
+			append(key, null, 0);
+			System.arraycopy(keys, c, keys, c + 1, chunks - 1 - c);
+			System.arraycopy(containers, c, containers, c + 1, chunks - 1 - c);
+			System.arraycopy(cardinalities, c, cardinalities, c + 1, chunks - 1 - c);
+			keys[c] = key;
+			containers[c] = new char[4];
+			cardinalities[c] = 0;
+		} else if (containers[c] instanceof Runs) {
+			if (contains(c, low))
+				return false;
+			// Runs are only made by runOptimize(), a chunk that changes goes back to the container of its cardinality
+			long[] bits = bits(c);
+			containers[c] = cardinalities[c] < ARRAY_MAX ? toArray(bits, cardinalities[c]) : bits;
+		}
+		int n = cardinalities[c];
+		if (containers[c] instanceof long[]) {
+			long[] bits = (long[]) containers[c];
+			if ((bits[low >>> 6] & 1L << low) != 0)
+				return false;
+			bits[low >>> 6] |= 1L << low;
+		} else {
+			char[] array = (char[]) containers[c];
+			int i = Arrays.binarySearch(array, 0, n, low);
+			if (i >= 0)
+				return false;
+			i = -i - 1;
+			if (n == ARRAY_MAX) {
+				// Too dense for an array
+				long[] bits = new long[1024];
+				for (int j = 0; j < n; j++)
+					bits[array[j] >>> 6] |= 1L << array[j];
+				bits[low >>> 6] |= 1L << low;
+				containers[c] = bits;
+			} else {
+				if (n == array.length)
+					containers[c] = array = Arrays.copyOf(array, Math.min(ARRAY_MAX, n * 2));
+				System.arraycopy(array, i, array, i + 1, n - i);
+				array[i] = low;
+			}
+		}
+		cardinalities[c]++;
+		return true;
+	}
+
+	public boolean contains(int value) {
+		int c = chunk((char) (value >>> 16));
+		return c >= 0 && contains(c, (char) value);
+	}
+
+	private boolean contains(int c, char low) {
+		Object container = containers[c];
+		if (container instanceof long[])
+			return (((long[]) container)[low >>> 6] & 1L << low) != 0;
+		if (container instanceof Runs) {
+			char[] pairs = ((Runs) container).pairs;
+			int r = runBefore(pairs, low);
+			return r >= 0 && low - pairs[2 * r] <= pairs[2 * r + 1];
+		}
+		return Arrays.binarySearch((char[]) container, 0, cardinalities[c], low) >= 0;
+	}
+
+	/*
+	 * Index of the last run starting at or before low, -1 if there is none
+	 */
+	private static int runBefore(char[] pairs, char low) {
+		int lo = 0, hi = pairs.length / 2;
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (pairs[2 * mid] <= low)
+				lo = mid + 1;
+			else
+				hi = mid;
+		}
+		return lo - 1;
+	}
+
+	/**
+	 * @return number of values in the set
+	 */
+	public long cardinality() {
+		long n = 0;
+		for (int c = 0; c < chunks; c++)
+			n += cardinalities[c];
+		return n;
+	}
+
+	public boolean isEmpty() {
+		return chunks == 0;
+	}
+
+	/**
+	 * @return the smallest value >= from in the set, -1 if there is none
+	 */
+	public int nextValue(int from) {
+		int c = chunk((char) (from >>> 16));
+		char low = (char) from;
+		if (c < 0) {
+			// Not in any chunk, the answer is the first value of the next chunk
+			c = -c - 1;
+			low = 0;
+		}
+		for (; c < chunks; c++, low = 0) {
+			int high = keys[c] << 16;
+			Object container = containers[c];
+			if (container instanceof long[]) {
+				long[] bits = (long[]) container;
+				int w = low >>> 6;
+				for (long word = bits[w] & -1L << low; ; word = bits[w]) {
+					if (word != 0)
+						return high | w << 6 | Long.numberOfTrailingZeros(word);
+					if (++w == bits.length)
+						break;
+				}
+			} else if (container instanceof Runs) {
+				char[] pairs = ((Runs) container).pairs;
+				int r = Math.max(0, runBefore(pairs, low));
+				for (; r < pairs.length / 2; r++) {
+					if (low <= pairs[2 * r] + pairs[2 * r + 1])
+						return high | Math.max(low, pairs[2 * r]);
+				}
+			} else {
+				char[] array = (char[]) container;
+				int i = Arrays.binarySearch(array, 0, cardinalities[c], low);
+				if (i < 0)
+					i = -i - 1;
+				if (i < cardinalities[c])
+					return high | array[i];
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * @return number of chunks, each holding the values sharing their upper 16 bits
+	 */
+	int chunks() {
+		return chunks;
+	}
+
+	/**
+	 * @return upper 16 bits of the values of chunk c
+	 */
+	int key(int c) {
+		return keys[c];
+	}
+
+	/**
+	 * @return the container of chunk c as a bitmap, which is the container itself if it already is one. It must not be
+	 *         modified.
+	 */
+	long[] bits(int c) {
+		Object container = containers[c];
+		if (container instanceof long[])
+			return (long[]) container;
+		long[] bits = new long[1024];
+		if (container instanceof Runs) {
+			char[] pairs = ((Runs) container).pairs;
+			for (int r = 0; r < pairs.length; r += 2) {
+				for (int v = pairs[r], end = pairs[r] + pairs[r + 1]; v <= end; v++)
+					bits[v >>> 6] |= 1L << v;
+			}
+		} else {
+			char[] array = (char[]) container;
+			for (int i = 0; i < cardinalities[c]; i++)
+				bits[array[i] >>> 6] |= 1L << array[i];
+		}
+		return bits;
+	}
+
+	/*
+	 * The cardinality values of a bitmap as a sorted array
+	 */
+	private static char[] toArray(long[] bits, int cardinality) {
+		char[] array = new char[Math.max(4, cardinality)];
+		int n = 0;
+		for (int w = 0; w < bits.length; w++) {
+			for (long word = bits[w]; word != 0; word &= word - 1)
+				array[n++] = (char) (w << 6 | Long.numberOfTrailingZeros(word));
+		}
+		return array;
+	}
+
+	/**
+	 * @return a new bitmap holding the values in both this set and other. Two bitmap containers are ANDed a word at a
+	 *         time, two arrays are merged, and an array and a bitmap are ANDed by probing the bitmap with every value
+	 *         of the array. Runs are treated as bitmaps.
+	 */
+	public RoaringBitmap and(RoaringBitmap other) {
+		RoaringBitmap result = new RoaringBitmap();
+		int c = 0, d = 0;
+		while (c < chunks && d < other.chunks) {
+			if (keys[c] < other.keys[d]) {
+				c++;
+				continue;
+			}
+			if (keys[c] > other.keys[d]) {
+				d++;
+				continue;
+			}
+			boolean mine = containers[c] instanceof char[], theirs = other.containers[d] instanceof char[];
+			if (mine && theirs) {
+				char[] a = (char[]) containers[c], b = (char[]) other.containers[d];
+				int na = cardinalities[c], nb = other.cardinalities[d];
+				char[] both = new char[Math.max(4, Math.min(na, nb))];
+				int n = 0;
+				for (int i = 0, j = 0; i < na && j < nb;) {
+					if (a[i] == b[j]) {
+						both[n++] = a[i++];
+						j++;
+					} else if (a[i] < b[j])
+						i++;
+					else
+						j++;
+				}
+				if (n > 0)
+					result.append(keys[c], both, n);
+			} else if (mine || theirs) {
+				char[] array = (char[]) (mine ? containers[c] : other.containers[d]);
+				int size = mine ? cardinalities[c] : other.cardinalities[d];
+				long[] bits = mine ? other.bits(d) : bits(c);
+				char[] both = new char[Math.max(4, size)];
+				int n = 0;
+				for (int i = 0; i < size; i++) {
+					char v = array[i];
+					both[n] = v;
+					n += (int) (bits[v >>> 6] >>> v) & 1;
+				}
+				if (n > 0)
+					result.append(keys[c], both, n);
+			} else {
+				long[] a = bits(c), b = other.bits(d), both = new long[1024];
+				int n = 0;
+				for (int w = 0; w < both.length; w++)
+					n += Long.bitCount(both[w] = a[w] & b[w]);
+				if (n > ARRAY_MAX)
+					result.append(keys[c], both, n);
+				else if (n > 0)
+					result.append(keys[c], toArray(both, n), n);
+			}
+			c++;
+			d++;
+		}
+		return result;
+	}
+
+	/**
+	 * Turn every chunk that takes less room as runs of consecutive values into a run container
+	 *
+	 * @return this
+	 */
+	public RoaringBitmap runOptimize() {
+		for (int c = 0; c < chunks; c++) {
+			if (containers[c] instanceof Runs)
+				continue;
+			long[] bits = bits(c);
+			// A run starts at every set bit whose previous bit is clear
+			int runs = 0;
+			for (int w = 0; w < bits.length; w++)
+				runs += Long.bitCount(bits[w] & ~(bits[w] << 1 | (w == 0 ? 0 : bits[w - 1] >>> 63)));
+			if (4 * runs >= containerBytes(c))
+				continue;
+			char[] pairs = new char[2 * runs];
+			int r = 0;
+			for (int v = nextSet(bits, 0); v >= 0; r += 2) {
+				int end = v;
+				while (end < 0xffff && (bits[(end + 1) >>> 6] & 1L << end + 1) != 0)
+					end++;
+				pairs[r] = (char) v;
+				pairs[r + 1] = (char) (end - v);
+				v = end == 0xffff ? -1 : nextSet(bits, end + 1);
+			}
+			containers[c] = new Runs(pairs);
+		}
+		return this;
+	}
+
+	/*
+	 * First set bit at or after from, -1 if there is none
+	 */
+	private static int nextSet(long[] bits, int from) {
+		int w = from >>> 6;
+		for (long word = bits[w] & -1L << from; ; word = bits[w]) {
+			if (word != 0)
+				return w << 6 | Long.numberOfTrailingZeros(word);
+			if (++w == bits.length)
+				return -1;
+		}
+	}
+
+	/**
+	 * @return every value, sorted
+	 */
+	public int[] toArray() {
+		int[] values = new int[(int) cardinality()];
+		int n = 0;
+		for (int c = 0; c < chunks; c++) {
+			int high = keys[c] << 16;
+			Object container = containers[c];
+			if (container instanceof long[]) {
+				long[] bits = (long[]) container;
+				for (int w = 0; w < bits.length; w++) {
+					for (long word = bits[w]; word != 0; word &= word - 1)
+						values[n++] = high | w << 6 | Long.numberOfTrailingZeros(word);
+				}
+			} else if (container instanceof Runs) {
+				char[] pairs = ((Runs) container).pairs;
+				for (int r = 0; r < pairs.length; r += 2) {
+					for (int v = pairs[r], end = pairs[r] + pairs[r + 1]; v <= end; v++)
+						values[n++] = high | v;
+				}
+			} else {
+				char[] array = (char[]) container;
+				for (int i = 0; i < cardinalities[c]; i++)
+					values[n++] = high | array[i];
+			}
+		}
+		return values;
+	}
+
+	/**
+	 * @return the values of sorted that are not in the set, in the same order. sorted itself if none is.
+	 */
+	public int[] removeFrom(int[] sorted) {
+		return filter(sorted, false);
+	}
+
+	/**
+	 * @return the values of sorted that are also in the set, in the same order. sorted itself if all of them are.
+	 */
+	public int[] retainFrom(int[] sorted) {
+		return filter(sorted, true);
+	}
+
+	private int[] filter(int[] sorted, boolean keep) {
+		if (chunks == 0)
+			return keep ? new int[0] : sorted;
+		int[] kept = null;
+		int n = 0;
+		for (int i = 0; i < sorted.length; i++) {
+			if (contains(sorted[i]) == keep) {
+				if (kept != null)
+					kept[n++] = sorted[i];
+			} else if (kept == null) {
+				// First value dropped, copy what was kept so far
+				kept = Arrays.copyOf(sorted, sorted.length);
+				n = i;
+			}
+		}
+		return kept == null ? sorted : Arrays.copyOf(kept, n);
+	}
+
+	private int containerBytes(int c) {
+		if (containers[c] instanceof long[])
+			return 8 * 1024;
+		if (containers[c] instanceof Runs)
+			return 2 * ((Runs) containers[c]).pairs.length;
+		return 2 * cardinalities[c];
+	}
+
+	/**
+	 * @return number of bytes write() takes
+	 */
+	public int serializedSize() {
+		int size = 4;
+		for (int c = 0; c < chunks; c++)
+			size += 8 + containerBytes(c);
+		return size;
+	}
+
+	/**
+	 * Serialize: number of chunks, then for each the key and the number of runs (chars, no runs unless a run
+	 * container) and the cardinality (int), followed by the array values or the runs (chars) or the bitmap words
+	 * (longs)
+	 */
+	public void write(ByteBuffer buf) {
+		buf.putInt(chunks);
+		for (int c = 0; c < chunks; c++) {
+			Object container = containers[c];
+			buf.putChar(keys[c]);
+			buf.putChar((char) (container instanceof Runs ? ((Runs) container).pairs.length / 2 : 0));
+			buf.putInt(cardinalities[c]);
+			if (container instanceof long[]) {
+				for (long word : (long[]) container)
+					buf.putLong(word);
+			} else if (container instanceof Runs) {
+				for (char v : ((Runs) container).pairs)
+					buf.putChar(v);
+			} else {
+				char[] array = (char[]) container;
+				for (int i = 0; i < cardinalities[c]; i++)
+					buf.putChar(array[i]);
+			}
+		}
+	}
+
+	/**
+	 * Read a bitmap written by write() from the current position of buf, leaving buf positioned right after it. A
+	 * bitmap cut short by the end of buf ends in a BufferUnderflowException.
+	 */
+	public static RoaringBitmap read(ByteBuffer buf) {
+		RoaringBitmap bitmap = new RoaringBitmap();
+		int chunks = buf.getInt();
+		bitmap.keys = new char[Math.max(4, chunks)];
+		bitmap.containers = new Object[bitmap.keys.length];
+		bitmap.cardinalities = new int[bitmap.keys.length];
+		for (int c = 0; c < chunks; c++) {
+			bitmap.keys[c] = buf.getChar();
+			int runs = buf.getChar();
+			int n = bitmap.cardinalities[c] = buf.getInt();
+			if (runs > 0) {
+				char[] pairs = new char[2 * runs];
+				buf.asCharBuffer().get(pairs);
+				buf.position(buf.position() + 2 * pairs.length);
+				bitmap.containers[c] = new Runs(pairs);
+			} else if (n > ARRAY_MAX) {
+				long[] bits = new long[1024];
+				buf.asLongBuffer().get(bits);
+				buf.position(buf.position() + 8 * bits.length);
+				bitmap.containers[c] = bits;
+			} else {
+				char[] array = new char[Math.max(4, n)];
+				buf.asCharBuffer().get(array, 0, n);
+				buf.position(buf.position() + 2 * n);
+				bitmap.containers[c] = array;
+			}
+		}
+		bitmap.chunks = chunks;
+		return bitmap;
+	}
+}
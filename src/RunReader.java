@@ -0,0 +1,215 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * Streams the posting lists of a block run file in order. The file is read sequentially in large chunks and posting
+ * lists are decoded from memory, so a posting list costs no channel read of its own.
+ * <br>Reads are double buffered: while posting lists are decoded from one chunk, the next chunk is already being read
+ * into a second buffer through an AsynchronousFileChannel, so decoding and merging overlap with the disk.
+ * <br>A run of a positional index comes with a positions file holding the positions of its posting lists in the same
+ * order (see Positions), which is streamed alongside. So is the file of term frequencies of a run that has one (see
+ * Frequencies).
+ */
+public class RunReader {
+
+	/* Size of a chunk read from the run file at once, unless told otherwise */
+	public static final int BUFFER_SIZE = 1 << 20;
+
+	private final File file, positionsFile, freqsFile;
+	private final Stream postings, positions, freqs;
+	private final BaseIndex index;
+
+	// The posting list next() returned last
+	private PostingList current = null;
+
+	public RunReader(File file, BaseIndex index) throws IOException {
+		this(file, null, null, index);
+	}
+
+	/**
+	 * @param positionsFile
+	 *            positions of the posting lists of file, null if it has none
+	 * @param freqsFile
+	 *            term frequencies of the posting lists of file, null if it has none
+	 */
+	public RunReader(File file, File positionsFile, File freqsFile, BaseIndex index) throws IOException {
+		this(file, positionsFile, freqsFile, index, BUFFER_SIZE);
+	}
+
+	/**
+	 * @param bufferSize
+	 *            size of a chunk read at once from each file. Every file is read through two buffers of this size,
+	 *            which only grow for a posting list larger than a chunk.
+	 */
+	public RunReader(File file, File positionsFile, File freqsFile, BaseIndex index, int bufferSize)
+			throws IOException {
+		this.file = file;
+		this.positionsFile = positionsFile;
+		this.freqsFile = freqsFile;
+		this.postings = new Stream(file, bufferSize);
+		this.positions = positionsFile == null ? null : new Stream(positionsFile, bufferSize);
+		this.freqs = freqsFile == null ? null : new Stream(freqsFile, bufferSize);
+		this.index = index;
+	}
+
+	/**
+	 * Decode the next posting list of the run, along with its positions and frequencies if the run has any
+	 *
+	 * @return the posting list, or null once the run is exhausted
+	 */
+	public PostingList next() throws IOException {
+		while (true) {
+			ByteBuffer buffer = postings.buffer;
+			if (!buffer.hasRemaining() && postings.eof)
+				return current = null;
+			int start = buffer.position();
+			try {
+				current = index.readPosting(buffer);
+				break;
+			} catch (BufferUnderflowException e) {
+				// The posting list continues past what has been read so far
+				buffer.position(start);
+				if (postings.eof)
+					throw new IOException("Truncated run file " + file.getName());
+				postings.fill();
+			}
+		}
+		while (positions != null) {
+			ByteBuffer buffer = positions.buffer;
+			int start = buffer.position();
+			try {
+				current.setPositions(Positions.read(buffer));
+				break;
+			} catch (BufferUnderflowException e) {
+				buffer.position(start);
+				if (positions.eof)
+					throw new IOException("Truncated positions file " + positionsFile.getName());
+				positions.fill();
+			}
+		}
+		while (freqs != null) {
+			ByteBuffer buffer = freqs.buffer;
+			int start = buffer.position();
+			try {
+				current.setFreqs(Frequencies.read(buffer, current.size()));
+				break;
+			} catch (BufferUnderflowException e) {
+				buffer.position(start);
+				if (freqs.eof)
+					throw new IOException("Truncated frequencies file " + freqsFile.getName());
+				freqs.fill();
+			}
+		}
+		return current;
+	}
+
+	/**
+	 * @return the posting list next() returned last
+	 */
+	public PostingList current() {
+		return current;
+	}
+
+	/**
+	 * A file read in chunks, the next chunk always being read ahead
+	 */
+	private static class Stream {
+
+		private final AsynchronousFileChannel fc;
+		// Bytes read and not decoded yet
+		private ByteBuffer buffer;
+		// The chunk being read ahead of buffer, at file offset ahead, by pending
+		private ByteBuffer spare;
+		private Future<Integer> pending = null;
+		private long ahead = 0;
+		private boolean eof = false;
+		private long bytesRead = 0;
+
+		Stream(File file, int bufferSize) throws IOException {
+			buffer = ByteBuffer.allocate(bufferSize);
+			spare = ByteBuffer.allocate(bufferSize);
+			fc = AsynchronousFileChannel.open(file.toPath(), StandardOpenOption.READ);
+			buffer.flip(); // nothing read yet
+			readAhead();
+		}
+
+		/*
+		 * Start reading the chunk after the last one into spare
+		 */
+		private void readAhead() {
+			spare.clear();
+			pending = fc.read(spare, ahead);
+		}
+
+		/*
+		 * Keep what is left unread, then append the chunk read ahead behind it and start reading the next one. A
+		 * posting list larger than the buffer doubles the buffer.
+		 */
+		private void fill() throws IOException {
+			int n;
+			try {
+				n = pending.get();
+			} catch (InterruptedException e) {
+				throw new IOException(e);
+			} catch (ExecutionException e) {
+				throw new IOException(e.getCause());
+			}
+			buffer.compact();
+			if (n > 0) {
+				spare.flip();
+				if (buffer.remaining() < spare.remaining()) {
+					ByteBuffer larger = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + spare
+							.remaining()));
+					buffer.flip();
+					larger.put(buffer);
+					buffer = larger;
+				}
+				buffer.put(spare);
+				bytesRead += n;
+				ahead += n;
+			}
+			// A short read is not the end of the file, an empty one is
+			eof = n <= 0;
+			if (!eof)
+				readAhead();
+			buffer.flip();
+		}
+	}
+
+	public long getBytesRead() {
+		return postings.bytesRead + (positions == null ? 0 : positions.bytesRead) + (freqs == null ? 0
+				: freqs.bytesRead);
+	}
+
+	public File getFile() {
+		return file;
+	}
+
+	/**
+	 * @return the positions file of the run, null if it has none
+	 */
+	public File getPositionsFile() {
+		return positionsFile;
+	}
+
+	/**
+	 * @return the frequencies file of the run, null if it has none
+	 */
+	public File getFreqsFile() {
+		return freqsFile;
+	}
+
+	public void close() throws IOException {
+		postings.fc.close();
+		if (positions != null)
+			positions.fc.close();
+		if (freqs != null)
+			freqs.fc.close();
+	}
+}
@@ -0,0 +1,163 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A corpus.index along with the posting dictionary locating its posting lists: either the base index of an index
+ * directory, or one of the segments added to it since (see Index.addDocuments()). A segment only holds docIds past
+ * those of the segments before it, so the posting list of a term over the whole index is that of every segment
+ * holding the term, one after another.
+ * <br>A segment of an index of positions also has a positions.index, and one of term frequencies a freqs.index, which
+ * are always mapped into memory.
+ * <br>The segments of an index are listed, oldest first, in its "segments" file.
+ */
+public class Segment {
+
+	private final BinaryDictionary postings;
+	private final RandomAccessFile file;
+	private MappedByteBuffer buffer = null;
+	// positions.index, null if positions are not indexed
+	private MappedByteBuffer positions = null;
+	// freqs.index, null if term frequencies are not indexed
+	private MappedByteBuffer freqs = null;
+
+	/**
+	 * @param mapped
+	 *            map corpus.index into memory, if it is small enough
+	 */
+	public Segment(File dir, boolean mapped) throws IOException {
+		postings = new BinaryDictionary(dir.getPath());
+		file = new RandomAccessFile(new File(dir, "corpus.index"), "r");
+		if (mapped) {
+			FileChannel fc = file.getChannel();
+			// A single MappedByteBuffer is addressed by int, so larger index files are read through the channel instead
+			if (fc.size() <= Integer.MAX_VALUE)
+				buffer = fc.map(FileChannel.MapMode.READ_ONLY, 0, fc.size());
+			else
+				System.err.println("Index file is too large to be mapped, falling back to channel reads");
+		}
+		File positionsFile = new File(dir, "positions.index"), freqsFile = new File(dir, "freqs.index");
+		if (postings.hasPositions() && positionsFile.exists()) {
+			positions = map(positionsFile);
+			if (positions == null)
+				System.err.println("Positions file is too large to be mapped, phrase queries are not available");
+		}
+		if (postings.hasFreqs() && freqsFile.exists()) {
+			freqs = map(freqsFile);
+			if (freqs == null)
+				System.err.println("Frequencies file is too large to be mapped, ranking is not available");
+		}
+	}
+
+	/*
+	 * Map a whole file into memory, null if it is too large for a MappedByteBuffer
+	 */
+	private static MappedByteBuffer map(File file) throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try {
+			FileChannel fc = raf.getChannel();
+			return fc.size() <= Integer.MAX_VALUE ? fc.map(FileChannel.MapMode.READ_ONLY, 0, fc.size()) : null;
+		} finally {
+			raf.close(); // the mapping stays valid
+		}
+	}
+
+	public FileChannel getChannel() {
+		return file.getChannel();
+	}
+
+	/**
+	 * @return corpus.index mapped into memory, or null if it is not
+	 */
+	public MappedByteBuffer getBuffer() {
+		return buffer;
+	}
+
+	/**
+	 * @return position of the posting list of termId in corpus.index
+	 */
+	public long position(int termId) {
+		return postings.position(termId);
+	}
+
+	/**
+	 * @return document frequency of termId within the segment, 0 if the segment does not hold termId
+	 */
+	public int docFreq(int termId) {
+		return postings.docFreq(termId);
+	}
+
+	/**
+	 * @return whether the positions of terms are indexed in the segment
+	 */
+	public boolean hasPositions() {
+		return positions != null;
+	}
+
+	/**
+	 * @return the positions of termId in every document of its posting list in the segment, to walk with
+	 *         Positions.decode() and Positions.skip(). termId must be in the segment.
+	 */
+	public ByteBuffer positions(int termId) {
+		return Positions.entries(positions, (int) postings.positionsPosition(termId));
+	}
+
+	/**
+	 * @return whether term frequencies are indexed in the segment
+	 */
+	public boolean hasFreqs() {
+		return freqs != null;
+	}
+
+	/**
+	 * @return the blocks of frequencies of termId in the segment (see Frequencies). termId must be in the segment.
+	 */
+	public ByteBuffer freqs(int termId) {
+		return Frequencies.blocks(freqs, (int) postings.freqsPosition(termId));
+	}
+
+	public void close() throws IOException {
+		file.close();
+	}
+
+	/**
+	 * @return names of the segment directories of an index, oldest first
+	 */
+	public static List<String> list(String indexDirname) throws IOException {
+		List<String> segments = new ArrayList<String>();
+		File file = new File(indexDirname, "segments");
+		if (!file.exists())
+			return segments;
+		BufferedReader reader = new BufferedReader(new FileReader(file));
+		String line;
+		while ((line = reader.readLine()) != null) {
+			if (!line.isEmpty())
+				segments.add(line);
+		}
+		reader.close();
+		return segments;
+	}
+
+	/**
+	 * Replace the list of segments of an index. The new list is written aside, then renamed over the old one, so a
+	 * reader sees either list in full.
+	 */
+	public static void write(String indexDirname, List<String> segments) throws IOException {
+		File file = new File(indexDirname, "segments"), temp = new File(indexDirname, "segments.tmp");
+		BufferedWriter writer = new BufferedWriter(new FileWriter(temp));
+		for (String segment : segments)
+			writer.write(segment + "\n");
+		writer.close();
+		if (!temp.renameTo(file))
+			throw new IOException("Cannot replace " + file);
+	}
+}
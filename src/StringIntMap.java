@@ -0,0 +1,100 @@
+import java.util.Arrays;
+
+/**
+ * Map from String to non-negative int, in an open-addressing hash table with linear probing. Keys and values sit in
+ * two plain arrays, so an entry costs no node and no boxed Integer, unlike a TreeMap or a HashMap. Entries are kept in
+ * no particular order; sortedKeys() sorts them once, when the map is dumped.
+ */
+public class StringIntMap {
+
+	private String[] keys = new String[32];
+	private int[] values = new int[32];
+	private int size = 0;
+	/* The table is kept at most half full, a slot is taken from the high bits of the hash (Fibonacci hashing) */
+	private int shift = 32 - 5;
+
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return value of key, -1 if key is not in the map
+	 */
+	public int get(String key) {
+		for (int slot = slot(key);; slot = (slot + 1) & (keys.length - 1)) {
+			if (keys[slot] == null)
+				return -1;
+			if (keys[slot].equals(key))
+				return values[slot];
+		}
+	}
+
+	public boolean containsKey(String key) {
+		return get(key) != -1;
+	}
+
+	/**
+	 * Map key to value, replacing the value it had if any
+	 */
+	public void put(String key, int value) {
+		int slot = slot(key);
+		for (; keys[slot] != null; slot = (slot + 1) & (keys.length - 1)) {
+			if (keys[slot].equals(key)) {
+				values[slot] = value;
+				return;
+			}
+		}
+		keys[slot] = key;
+		values[slot] = value;
+		if (2 * ++size > keys.length)
+			rehash();
+	}
+
+	/**
+	 * Remove every entry
+	 */
+	public void clear() {
+		keys = new String[32];
+		values = new int[32];
+		size = 0;
+		shift = 32 - 5;
+	}
+
+	/**
+	 * @return every key, sorted in their natural order, as TreeMap would iterate them
+	 */
+	public String[] sortedKeys() {
+		String[] sorted = new String[size];
+		int n = 0;
+		for (String key : keys) {
+			if (key != null)
+				sorted[n++] = key;
+		}
+		Arrays.sort(sorted);
+		return sorted;
+	}
+
+	private int slot(String key) {
+		return key.hashCode() * 0x9E3779B9 >>> shift;
+	}
+
+	/*
+	 * Twice as many slots, every entry is placed again
+	 */
+	private void rehash() {
+		String[] oldKeys = keys;
+		int[] oldValues = values;
+		keys = new String[2 * oldKeys.length];
+		values = new int[2 * oldValues.length];
+		shift--;
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldKeys[i] == null)
+				continue;
+			int slot = slot(oldKeys[i]);
+			while (keys[slot] != null)
+				slot = (slot + 1) & (keys.length - 1);
+			keys[slot] = oldKeys[i];
+			values[slot] = oldValues[i];
+		}
+	}
+}
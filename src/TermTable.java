@@ -0,0 +1,133 @@
+import java.util.Arrays;
+
+/**
+ * Terms keyed by their bytes, in an open-addressing hash table with linear probing, so that a term can be looked up
+ * straight from a slice of the buffer a file was read into, without decoding it into a String first. Entries are
+ * numbered in the order they are added and each carries an int value. The bytes of every entry are copied once into
+ * a single growing array, and a slot of the table only holds the number of an entry, so the table is a handful of
+ * arrays however many terms it holds.
+ */
+public class TermTable {
+
+	/* Bytes of every entry, one after another */
+	private byte[] bytes = new byte[256];
+	private int used = 0;
+	/* Where the bytes of every entry start in bytes, how many there are, their hash, and the value of the entry */
+	private int[] offsets = new int[16], lengths = new int[16], hashes = new int[16], values = new int[16];
+	private int size = 0;
+	/* Number of an entry plus one in every slot, 0 for an empty slot. The table is kept at most half full. */
+	private int[] slots = new int[32];
+	private int shift = 32 - 5;
+
+	/**
+	 * Number of entries
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return number of the entry holding the bytes of key in [from, from + length), -1 if there is none
+	 */
+	public int find(byte[] key, int from, int length) {
+		int hash = hash(key, from, length);
+		for (int slot = hash >>> shift;; slot = (slot + 1) & (slots.length - 1)) {
+			int entry = slots[slot] - 1;
+			if (entry == -1)
+				return -1;
+			if (hashes[entry] == hash && equals(entry, key, from, length))
+				return entry;
+		}
+	}
+
+	/**
+	 * @return number of the entry holding the bytes of key in [from, from + length), added with a value of 0 if there
+	 *         is none, in which case it is size() - 1
+	 */
+	public int add(byte[] key, int from, int length) {
+		int hash = hash(key, from, length), slot = hash >>> shift;
+		for (;; slot = (slot + 1) & (slots.length - 1)) {
+			int entry = slots[slot] - 1;
+			if (entry == -1)
+				break;
+			if (hashes[entry] == hash && equals(entry, key, from, length))
+				return entry;
+		}
+		if (size == offsets.length) {
+			offsets = Arrays.copyOf(offsets, 2 * size);
+			lengths = Arrays.copyOf(lengths, 2 * size);
+			hashes = Arrays.copyOf(hashes, 2 * size);
+			values = Arrays.copyOf(values, 2 * size);
+		}
+		if (used + length > bytes.length)
+			bytes = Arrays.copyOf(bytes, Math.max(2 * bytes.length, used + length));
+		System.arraycopy(key, from, bytes, used, length);
+		offsets[size] = used;
+		lengths[size] = length;
+		hashes[size] = hash;
+		used += length;
+		slots[slot] = ++size;
+		if (2 * size > slots.length)
+			rehash();
+		return size - 1;
+	}
+
+	public int getValue(int entry) {
+		return values[entry];
+	}
+
+	public void setValue(int entry, int value) {
+		values[entry] = value;
+	}
+
+	/**
+	 * The array holding the bytes of every entry, see offset() and length()
+	 */
+	public byte[] bytes() {
+		return bytes;
+	}
+
+	public int offset(int entry) {
+		return offsets[entry];
+	}
+
+	public int length(int entry) {
+		return lengths[entry];
+	}
+
+	/*
+	 * Twice as many slots, every entry is placed again from its hash
+	 */
+	private void rehash() {
+		slots = new int[2 * slots.length];
+		shift--;
+		for (int entry = 0; entry < size; entry++) {
+			int slot = hashes[entry] >>> shift;
+			while (slots[slot] != 0)
+				slot = (slot + 1) & (slots.length - 1);
+			slots[slot] = entry + 1;
+		}
+	}
+
+	/*
+	 * Polynomial hash of the bytes, taken as signed, with the multiplier of String.hashCode(), then spread over the
+	 * high bits, where the slot of a hash is taken from (Fibonacci hashing). Before spreading it only equals
+	 * String.hashCode() of the term for ASCII terms; every hash of the table comes from here, so that does not matter.
+	 */
+	private static int hash(byte[] key, int from, int length) {
+		int h = 0;
+		for (int i = from; i < from + length; i++)
+			h = 31 * h + key[i];
+		return h * 0x9E3779B9;
+	}
+
+	private boolean equals(int entry, byte[] key, int from, int length) {
+		if (lengths[entry] != length)
+			return false;
+		for (int i = 0, offset = offsets[entry]; i < length; i++) {
+			if (bytes[offset + i] != key[from + i])
+				return false;
+		}
+		return true;
+	}
+}
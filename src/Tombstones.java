@@ -0,0 +1,70 @@
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+
+/**
+ * docIds of the documents deleted from an index, kept as a RoaringBitmap in the "deleted.bin" file next to its
+ * corpus.index (see Index.deleteDocuments()). Postings of deleted documents stay in the index files, Query drops them
+ * from its results, until compaction drops them from the index files for good and clears the tombstones.
+ * <br>Cleared tombstones move to "purged.bin". A purged document holds no term any more, but its docId is still
+ * assigned, so a query that matches documents without some term (see BooleanQuery) must leave it out.
+ */
+public class Tombstones {
+
+	/**
+	 * @return docIds deleted from the index of indexDirname, empty if none is
+	 */
+	public static RoaringBitmap read(String indexDirname) throws IOException {
+		return read(new File(indexDirname, "deleted.bin"));
+	}
+
+	/**
+	 * @return docIds of the documents deleted from the index of indexDirname whose postings compaction dropped, empty
+	 *         if none is
+	 */
+	public static RoaringBitmap readPurged(String indexDirname) throws IOException {
+		return read(new File(indexDirname, "purged.bin"));
+	}
+
+	private static RoaringBitmap read(File file) throws IOException {
+		if (!file.exists())
+			return new RoaringBitmap();
+		return RoaringBitmap.read(ByteBuffer.wrap(Files.readAllBytes(file.toPath())));
+	}
+
+	/**
+	 * Replace the tombstones of an index. As with the segments file, the new bitmap is written aside then renamed over
+	 * the old one. An empty bitmap removes the file.
+	 */
+	public static void write(String indexDirname, RoaringBitmap deleted) throws IOException {
+		write(new File(indexDirname, "deleted.bin"), new File(indexDirname, "deleted.tmp"), deleted);
+	}
+
+	/**
+	 * Move the tombstones of an index to the purged docIds, once compaction dropped their postings
+	 */
+	public static void purge(String indexDirname) throws IOException {
+		RoaringBitmap purged = readPurged(indexDirname);
+		for (int docId : read(indexDirname).toArray())
+			purged.add(docId);
+		write(new File(indexDirname, "purged.bin"), new File(indexDirname, "purged.tmp"), purged);
+		write(indexDirname, new RoaringBitmap());
+	}
+
+	private static void write(File file, File temp, RoaringBitmap deleted) throws IOException {
+		if (deleted.isEmpty()) {
+			if (file.exists() && !file.delete())
+				throw new IOException("Cannot remove " + file);
+			return;
+		}
+		ByteBuffer buffer = ByteBuffer.allocate(deleted.serializedSize());
+		deleted.write(buffer);
+		FileOutputStream out = new FileOutputStream(temp);
+		out.write(buffer.array());
+		out.close();
+		if (!temp.renameTo(file))
+			throw new IOException("Cannot replace " + file);
+	}
+}
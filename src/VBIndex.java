@@ -10,15 +10,24 @@ import java.io.IOException;
 import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
-import java.util.LinkedList;
-import java.util.List;
-import java.util.Vector;
+import java.nio.channels.SeekableByteChannel;
+import java.util.Arrays;
 
 public class VBIndex implements BaseIndex {
 
+	/* A posting list longer than this is split into blocks of SKIP_INTERVAL gaps, each led by a skip entry */
+	static final int SKIP_INTERVAL = 128;
+
+	// Reused for every PostingList read from a FileChannel, and for every PostingList written
+	private final ReadAheadBuffer readAhead = new ReadAheadBuffer(1 << 16);
+	private ByteBuffer writeBuffer = ByteBuffer.allocate(1 << 16);
+
 	/**
 	 * This method is used to return a PostingList which is read from the FileChannel fc.
 	 * <br>It is used Variable Byte decoding, so it reads as ByteStream.
+	 * <br>The layout is termId, docFreq, then the docId gaps. When docFreq exceeds SKIP_INTERVAL, every block of
+	 * SKIP_INTERVAL gaps is preceded by a skip entry: the last docId of the block and the byte length of the block.
+	 * The first gap of a block is taken from the last docId of the block before it, so a block can be skipped as a whole.
 	 * @param fc a FileChannel that connects to a file (index file)
 	 * @return <b>PostingList</b> a posting list contains termId and a list of docIds
 	 * 
@@ -26,119 +35,220 @@ public class VBIndex implements BaseIndex {
 	@Override
 	public PostingList readPosting(FileChannel fc) {
 		try {
-			ByteBuffer buffer = ByteBuffer.allocate(1); // TODO: possible overkill
-			Vector<Integer> numbers = new Vector<Integer>(); // To store numbers decoded from ByteStream
-			int n = 0, docFreq = 0;
-			// Start changing from gaps to real numbers, stored in a list
-			while (fc.read(buffer) != -1) {
-				buffer.rewind();
-				Byte b = buffer.get(); // Get a byte, b, from ByteStream
-				if ((b & 0xff) < 128) { // Check if the first bit of b is 0 which means not ending for an encoded byte
-					n = 128 * n + b;
-				} else { // If the first bit of b is 1 meaning ending for an encoded byte
-					n = 128 * n + ((b & 0xff) - 128); // Extract the first bit of b out and calculate a number
-					numbers.add(n); // Store a decoded number to a vector
-					n = 0;
-					if (numbers.size() == 2) // Check if it decodes document frequency
-						docFreq = numbers.lastElement();
-					if (numbers.size() - 2 == docFreq) // Check if it is the last element of {docId}
-						break;
-				}
-				buffer.clear();
-			}
-			if (!numbers.isEmpty()) {
-				numbers.trimToSize();
-				List<Integer> postings = docGap(numbers.subList(2, numbers.size()), true); // Convert a sequence of docId in term of docGap to a normal sequence
-				return new PostingList(numbers.get(0), postings); // Return PostingList
-			}
-			return null;
+			// Bytes are read ahead in large chunks, then decoded by readPosting(ByteBuffer)
+			return readAhead.readPosting(this, fc);
 		} catch (IOException e) {
 			return null;
 		}
+	}
 
+	/**
+	 * This method is used to return a PostingList which is read from the current position of buf.
+	 * <br>It is the same as readPosting(FileChannel), only decoding from memory.
+	 * @param buf a ByteBuffer holding encoded PostingLists
+	 * @return <b>PostingList</b> a posting list contains termId and a list of docIds
+	 */
+	@Override
+	public PostingList readPosting(ByteBuffer buf) {
+		int termId = readNumber(buf);
+		int docFreq = readNumber(buf);
+		int[] docIds = new int[docFreq];
+		boolean skips = docFreq > SKIP_INTERVAL;
+		int last = 0;
+		for (int i = 0; i < docFreq; i++) {
+			if (skips && i % SKIP_INTERVAL == 0) {
+				// Skip entries are only useful to cursors, we are decoding every block anyway
+				readNumber(buf);
+				readNumber(buf);
+			}
+			docIds[i] = last += readNumber(buf); // Turn a docGap back into a docId
+		}
+		return new PostingList(termId, docIds);
+	}
+
+	/**
+	 * This method is used to read a single Variable Byte encoded number from the current position of buf.
+	 * @param buf a ByteBuffer
+	 * @return the decoded number
+	 */
+	static int readNumber(ByteBuffer buf) {
+		int n = 0, b;
+		while ((b = buf.get() & 0xff) < 128)
+			n = 128 * n + b;
+		return 128 * n + (b - 128);
 	}
 
 	/**
 	 * This method is used to write a PostingList p to a FileChannel fc.
-	 * <br>It is used Variable Byte encoding with p before writing to fc.
+	 * <br>It is used Variable Byte encoding with p before writing to fc, in the layout described at readPosting().
+	 * <br>Numbers are encoded straight into a ByteBuffer reused for every PostingList, so nothing is allocated per number.
 	 * @param fc a FileChannel that connects to a file (index file)
 	 * @param p a PostingList written to fc
 	 */
 	@Override
-	public void writePosting(FileChannel fc, PostingList p) {
-		List<Byte> encodedTermId = VBEncodeNumber(p.getTermId()); // Encoding a termID with VBEncoding
-		List<Byte> encodedDocFreq = VBEncodeNumber(p.getList().size()); // Encoding a docFreq with VBEncoding
-		List<Byte> encodedDocIds = VBEncode(docGap(p.getList(), false)); // Convert a sequence of docIds to be a sequence of docGap and then VBEncoding it
-
-		ByteBuffer byteBuffer = ByteBuffer
-				.allocate(encodedTermId.size() + encodedDocFreq.size() + encodedDocIds.size()); // Allocate the buffer size
-		
-		/*Put all encoded numbers into ByteBuffer*/
-		for (Byte b : encodedTermId)
-			byteBuffer.put(b);
-		for (Byte b : encodedDocFreq)
-			byteBuffer.put(b);
-		for (Byte b : encodedDocIds)
-			byteBuffer.put(b);
-		byteBuffer.flip();
+	public void writePosting(SeekableByteChannel fc, PostingList p) {
+		int size = p.size();
+		int[] docIds = p.getArray();
+		// At most 5 bytes per number, plus a skip entry of 2 numbers per block
+		int bound = 5 * (2 + size + 2 * (size / SKIP_INTERVAL + 1));
+		if (writeBuffer.capacity() < bound)
+			writeBuffer = ByteBuffer.allocate(Math.max(bound, writeBuffer.capacity() * 2));
+		writeBuffer.clear();
+		writeNumber(writeBuffer, p.getTermId()); // Encoding a termID with VBEncoding
+		writeNumber(writeBuffer, size); // Encoding a docFreq with VBEncoding
+		if (size <= SKIP_INTERVAL) {
+			for (int i = 0, last = 0; i < size; last = docIds[i++])
+				writeNumber(writeBuffer, docIds[i] - last); // VBEncoding the docGap
+		} else {
+			for (int from = 0; from < size; from += SKIP_INTERVAL) {
+				int to = Math.min(from + SKIP_INTERVAL, size);
+				int base = from == 0 ? 0 : docIds[from - 1];
+				// The skip entry needs the byte length of the block before it is written
+				int length = 0;
+				for (int i = from, last = base; i < to; last = docIds[i++])
+					length += numberLength(docIds[i] - last);
+				writeNumber(writeBuffer, docIds[to - 1]); // Skip entry: last docId of the block
+				writeNumber(writeBuffer, length); // and how many bytes to jump over it
+				for (int i = from, last = base; i < to; last = docIds[i++])
+					writeNumber(writeBuffer, docIds[i] - last);
+			}
+		}
+		writeBuffer.flip();
 		try {
-			fc.write(byteBuffer);
+			while (writeBuffer.hasRemaining())
+				fc.write(writeBuffer);
 		} catch (IOException e) {
 			e.printStackTrace();
 		}
 	}
 
 	/**
-	 * This method is used to encode a sequence of numbers with Variable Byte encoding algorithm
-	 * @param numbers a sequence of numbers
-	 * @return ByteStream
+	 * This method is used to open a cursor over a PostingList stored at position of buf.
+	 * <br>Gaps are Variable Byte decoded one block at a time, only when the cursor walks into that block.
+	 * @param buf a ByteBuffer holding the index file, e.g. a MappedByteBuffer
+	 * @param position absolute offset of the PostingList in buf
+	 * @return <b>PostingCursor</b> a cursor positioned before the first docId
 	 */
-	private static List<Byte> VBEncode(List<Integer> numbers) {
-		Vector<Byte> byteStream = new Vector<Byte>();
-		for (Integer number : numbers) {
-			List<Byte> bytes = VBEncodeNumber(number); // Encode each number
-			byteStream.addAll(bytes); // Append the new byteStream to the old ByteStream
-		}
-		byteStream.trimToSize();
-		return byteStream;
+	@Override
+	public PostingCursor openCursor(ByteBuffer buf, int position) {
+		return new VBCursor(buf, position);
 	}
 
 	/**
-
-	 * This method is used to encode a number with Variable Byte encoding algorithm
-	 * @param number
-	 * @return
+	 * Decodes at most SKIP_INTERVAL docIds ahead of the caller into a small reusable array. advance() jumps over whole
+	 * blocks through their skip entries without decoding them.
 	 */
-	private static List<Byte> VBEncodeNumber(int number) {
-		LinkedList<Byte> bytes = new LinkedList<Byte>();
-		while (true) {
-			bytes.addFirst((byte) (number % 128)); // Add into the front of the list
-			if (number < 128)
-				break;
-			number /= 128;
+	private static class VBCursor implements PostingCursor {
+
+		private final ByteBuffer buf;
+		private final int termId;
+		private final int size;
+		// Whether blocks are led by skip entries
+		private final boolean skips;
+		// Absolute offset of the next encoded byte
+		private int pos;
+		// Number of docIds not yet decoded into block
+		private int remaining;
+		private final int[] block = new int[SKIP_INTERVAL];
+		private int blockSize = 0, i = 0;
+		// Last docId of the block before the next one, the base its first gap is taken from
+		private int base = 0;
+		private int docId = 0;
+
+		VBCursor(ByteBuffer buf, int position) {
+			this.buf = buf;
+			this.pos = position;
+			this.termId = nextNumber();
+			this.remaining = this.size = nextNumber();
+			this.skips = size > SKIP_INTERVAL;
+		}
+
+		private int nextNumber() {
+			int n = 0, b;
+			while ((b = buf.get(pos++) & 0xff) < 128)
+				n = 128 * n + b;
+			return 128 * n + (b - 128);
+		}
+
+		public int getTermId() {
+			return termId;
+		}
+
+		public int size() {
+			return size;
+		}
+
+		public int docId() {
+			return docId;
+		}
+
+		public int nextDoc() {
+			if (i == blockSize) {
+				if (remaining == 0)
+					return docId = NO_MORE_DOCS;
+				if (skips) {
+					// The skip entry is of no use when decoding the block anyway
+					nextNumber();
+					nextNumber();
+				}
+				// Decode the next block, turning gaps back into docIds as we go
+				blockSize = Math.min(remaining, SKIP_INTERVAL);
+				remaining -= blockSize;
+				int last = base;
+				for (int k = 0; k < blockSize; k++)
+					block[k] = last += nextNumber();
+				base = last;
+				i = 0;
+			}
+			return docId = block[i++];
+		}
+
+		public int advance(int target) {
+			if (docId >= target)
+				return docId;
+			if (skips) {
+				// Nothing left in the decoded block can reach target
+				if (blockSize > 0 && block[blockSize - 1] < target)
+					i = blockSize;
+				// Jump over every encoded block whose last docId is still below target
+				while (i == blockSize && remaining > 0) {
+					int entry = pos;
+					int last = nextNumber();
+					int length = nextNumber();
+					if (last >= target) {
+						pos = entry; // this block holds target, let nextDoc() decode it
+						break;
+					}
+					pos += length;
+					remaining -= Math.min(remaining, SKIP_INTERVAL);
+					base = last;
+				}
+			}
+			while (docId < target)
+				nextDoc();
+			return docId;
 		}
-		byte b = (byte) (bytes.getLast() + (byte) 128); // The first bit of the last byte change to 1 for ending bit.
-		bytes.removeLast();
-		bytes.addLast(b);
-		return bytes;
 	}
 
 	/**
-	 * change in-order list to be gap list for example docIds 824 829 215406 gap 824 5 214577
-	 * 
-	 * @param postings
-	 * @param inverse
-	 * @return
+	 * This method is used to encode a number with Variable Byte encoding algorithm straight into buf
+	 * <br>Groups of 7 bits are written most significant first, the last byte has its first bit set to 1 as the ending bit.
+	 * @param buf a ByteBuffer with room for at least 5 more bytes
+	 * @param number a non-negative number
 	 */
-	private static List<Integer> docGap(List<Integer> postings, boolean inverse) {
-		if (inverse) {
-			for (int i = 1; i < postings.size(); i++)
-				postings.set(i, postings.get(i) + postings.get(i - 1));
-		} else {
-			for (int i = postings.size() - 1; i > 0; i--)
-				postings.set(i, postings.get(i) - postings.get(i - 1));
-		}
-		return postings;
+	static void writeNumber(ByteBuffer buf, int number) {
+		for (int shift = 7 * (numberLength(number) - 1); shift > 0; shift -= 7)
+			buf.put((byte) ((number >>> shift) & 127));
+		buf.put((byte) ((number & 127) | 128));
+	}
+
+	/**
+	 * This method is used to tell how many bytes a number takes with Variable Byte encoding algorithm
+	 * @param number a non-negative number
+	 * @return 1 to 5
+	 */
+	static int numberLength(int number) {
+		return number == 0 ? 1 : (38 - Integer.numberOfLeadingZeros(number)) / 7;
 	}
 
 	/**
@@ -156,10 +266,7 @@ public class VBIndex implements BaseIndex {
 		VBIndex index = new VBIndex();
 		int i = 0;
 		while (i++ < 3) {
-			List<Integer> l = new Vector<Integer>();
-			l.add(824 + i * 100);
-			l.add(829 + i * 9000);
-			l.add(215406 + i * 4);
+			int[] l = { 824 + i * 100, 829 + i * 9000, 215406 + i * 4 };
 			PostingList p = new PostingList(i, l);
 			index.writePosting(fc, p);
 		}
@@ -168,7 +275,7 @@ public class VBIndex implements BaseIndex {
 		PostingList posting = null;
 		while ((posting = index.readPosting(fc)) != null) {
 			System.out.println("Term id: " + posting.getTermId());
-			System.out.println("List: " + posting.getList());
+			System.out.println("List: " + Arrays.toString(posting.toArray()));
 		}
 
 		raf.close();
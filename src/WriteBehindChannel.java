@@ -0,0 +1,200 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.NonReadableChannelException;
+import java.nio.channels.SeekableByteChannel;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Write-only channel over a FileChannel that copies whatever is written into one of two large direct buffers, while a
+ * background thread writes the other one out. A posting list written to it therefore costs a copy, not a system call,
+ * and encoding carries on while the disk is busy.
+ * <br>position(), position(long) and truncate() work on what is still buffered, so a BaseIndex may go back over what it
+ * has just written, as BitmapIndex does. The file itself is written with positional writes only. Nothing is read
+ * through this channel, read() throws NonReadableChannelException as it would for a FileChannel opened for writing
+ * only.
+ */
+public class WriteBehindChannel implements SeekableByteChannel {
+
+	/* Size of each of the two buffers */
+	public static final int BUFFER_SIZE = 1 << 20;
+
+	private static final ThreadFactory DAEMONS = new ThreadFactory() {
+		public Thread newThread(Runnable r) {
+			Thread thread = new Thread(r, "write-behind");
+			thread.setDaemon(true);
+			return thread;
+		}
+	};
+
+	private final FileChannel out;
+	private final ExecutorService writer = Executors.newSingleThreadExecutor(DAEMONS);
+	// The buffer being filled, and the one being written out by pending, if any
+	private ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE), spare = ByteBuffer.allocateDirect(BUFFER_SIZE);
+	private Future<Void> pending = null;
+	// File offset of the first byte of buffer, and how far into buffer anything has been written
+	private long base;
+	private int high = 0;
+	// Where the file ends once every buffer handed to the writer is written out
+	private long flushed;
+	private boolean open = true;
+
+	/**
+	 * Write through out from its current position on
+	 */
+	public WriteBehindChannel(FileChannel out) throws IOException {
+		this.out = out;
+		this.base = out.position();
+		this.flushed = out.size();
+	}
+
+	@Override
+	public int write(ByteBuffer src) throws IOException {
+		ensureOpen();
+		int n = src.remaining();
+		while (src.hasRemaining()) {
+			if (!buffer.hasRemaining())
+				flush();
+			int limit = src.limit();
+			src.limit(src.position() + Math.min(src.remaining(), buffer.remaining()));
+			buffer.put(src);
+			src.limit(limit);
+			high = Math.max(high, buffer.position());
+		}
+		return n;
+	}
+
+	@Override
+	public long position() {
+		return base + buffer.position();
+	}
+
+	@Override
+	public WriteBehindChannel position(long newPosition) throws IOException {
+		ensureOpen();
+		if (newPosition >= base && newPosition <= base + high) {
+			buffer.position((int) (newPosition - base));
+		} else {
+			flush();
+			buffer.clear();
+			base = newPosition;
+		}
+		return this;
+	}
+
+	@Override
+	public long size() throws IOException {
+		return Math.max(flushed, base + high);
+	}
+
+	@Override
+	public WriteBehindChannel truncate(long size) throws IOException {
+		ensureOpen();
+		if (size < flushed) {
+			// Cuts into what has already gone to the writer
+			flush();
+			drain();
+			out.truncate(size);
+			flushed = out.size();
+			base = Math.min(base, size);
+		} else if (size < base + high) {
+			high = (int) Math.max(0, size - base);
+		}
+		if (position() > size)
+			position(size);
+		return this;
+	}
+
+	/*
+	 * Hand what is buffered to the writer, once the previous buffer is out, and go on filling the other buffer
+	 */
+	private void flush() throws IOException {
+		drain();
+		if (high == 0)
+			return;
+		final ByteBuffer full = buffer;
+		final long at = base;
+		full.limit(high);
+		full.position(0);
+		pending = writer.submit(new Callable<Void>() {
+			public Void call() throws IOException {
+				for (long p = at; full.hasRemaining();)
+					p += out.write(full, p);
+				return null;
+			}
+		});
+		base += high;
+		flushed = Math.max(flushed, base);
+		high = 0;
+		buffer = spare;
+		spare = full;
+		buffer.clear();
+	}
+
+	/*
+	 * Wait for the writer to be done with the buffer it has
+	 */
+	private void drain() throws IOException {
+		if (pending == null)
+			return;
+		try {
+			pending.get();
+		} catch (InterruptedException e) {
+			throw new IOException(e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException)
+				throw (IOException) e.getCause();
+			throw new RuntimeException(e.getCause());
+		} finally {
+			pending = null;
+		}
+	}
+
+	private void ensureOpen() throws ClosedChannelException {
+		if (!open)
+			throw new ClosedChannelException();
+	}
+
+	/**
+	 * Write out what is buffered, then force the underlying channel to the disk, as FileChannel.force() does
+	 */
+	public void force(boolean metaData) throws IOException {
+		ensureOpen();
+		flush();
+		drain();
+		out.force(metaData);
+	}
+
+	@Override
+	public boolean isOpen() {
+		return open;
+	}
+
+	/**
+	 * Write out what is buffered, then close the underlying channel
+	 */
+	@Override
+	public void close() throws IOException {
+		if (!open)
+			return;
+		open = false;
+		try {
+			flush();
+			drain();
+		} finally {
+			writer.shutdown();
+			out.close();
+		}
+	}
+
+	@Override
+	public int read(ByteBuffer dst) {
+		throw new NonReadableChannelException();
+	}
+}